@@ -0,0 +1,45 @@
+package ru.skypro.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.skypro.school.component.FacultyCatalog;
+import ru.skypro.school.component.RecordMapper;
+import ru.skypro.school.event.FacultyChangedEvent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The price of keeping {@link FacultyCatalog} precomputed: every committed change rebuilds the snapshot and its
+ * indexes, which grows with the number of faculties, while reads like
+ * {@link PrecomputedReadsBenchmark#getFacultyLongestName()} stay constant.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FacultyCatalogBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int size;
+
+    private FacultyCatalog facultyCatalog;
+    private long version;
+
+    @Setup
+    public void setUp() {
+        facultyCatalog = new FacultyCatalog(Repositories.facultyRepository(SyntheticData.faculties(size)),
+                new RecordMapper());
+        facultyCatalog.snapshot();
+    }
+
+    /**
+     * Renames one faculty, with a growing version so that no event is ignored as stale.
+     */
+    @Benchmark
+    public FacultyCatalog.Snapshot onFacultyChanged() {
+        version++;
+        facultyCatalog.onFacultyChanged(new FacultyChangedEvent(1, "Гриффиндор " + version, "red", version));
+        return facultyCatalog.snapshot();
+    }
+}
@@ -0,0 +1,70 @@
+package ru.skypro.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.skypro.school.component.CursorCodec;
+import ru.skypro.school.component.FacultyCatalog;
+import ru.skypro.school.component.RecordMapper;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.repository.FacultyRepository;
+import ru.skypro.school.service.FacultyService;
+import ru.skypro.school.service.StudentAggregateService;
+import ru.skypro.school.service.StudentService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads answered from values maintained on every change rather than computed from the table, so their cost
+ * does not depend on the number of rows and there is no {@code size} parameter. The cost of maintaining the
+ * faculty one is measured by {@link FacultyCatalogBenchmark}; the student totals are updated in the database.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrecomputedReadsBenchmark {
+
+    private static final int SIZE = 1000;
+
+    private StudentService studentService;
+    private FacultyService facultyService;
+
+    @Setup
+    public void setUp() {
+        List<Student> students = SyntheticData.students(SIZE);
+        studentService = new StudentService(
+                Repositories.studentRepository(students),
+                new RecordMapper(),
+                new CursorCodec(),
+                new StudentAggregateService(Repositories.studentAggregateRepository(students)),
+                null,
+                null);
+        FacultyRepository facultyRepository = Repositories.facultyRepository(SyntheticData.faculties(SIZE));
+        facultyService = new FacultyService(
+                facultyRepository,
+                null,
+                new RecordMapper(),
+                null,
+                new FacultyCatalog(facultyRepository, new RecordMapper()));
+        facultyService.getFacultyLongestName();
+    }
+
+    /**
+     * Sums the {@code StudentAggregate.STRIPES} rows of the totals, fetched by an in-memory stand-in, see
+     * {@link Repositories#studentAggregateRepository}, so the query itself is not measured.
+     */
+    @Benchmark
+    public Double getStudentAverageAgeFromStream() {
+        return studentService.getStudentAverageAgeFromStream();
+    }
+
+    /**
+     * Copies the first record of the catalog snapshot, loaded once in {@link #setUp()}.
+     */
+    @Benchmark
+    public String getFacultyLongestName() {
+        return facultyService.getFacultyLongestName();
+    }
+}
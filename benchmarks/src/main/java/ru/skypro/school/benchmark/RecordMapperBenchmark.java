@@ -0,0 +1,57 @@
+package ru.skypro.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.skypro.school.component.RecordMapper;
+import ru.skypro.school.entity.Avatar;
+import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.entity.Student;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordMapperBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int size;
+
+    private final RecordMapper recordMapper = new RecordMapper();
+
+    private List<Student> students;
+    private List<Faculty> faculties;
+    private List<Avatar> avatars;
+
+    @Setup
+    public void setUp() {
+        students = SyntheticData.students(size);
+        faculties = SyntheticData.faculties(size);
+        avatars = SyntheticData.avatars(size);
+    }
+
+    @Benchmark
+    public void studentsToRecords(Blackhole blackhole) {
+        for (Student student : students) {
+            blackhole.consume(recordMapper.toRecord(student));
+        }
+    }
+
+    @Benchmark
+    public void facultiesToRecords(Blackhole blackhole) {
+        for (Faculty faculty : faculties) {
+            blackhole.consume(recordMapper.toRecord(faculty));
+        }
+    }
+
+    @Benchmark
+    public void avatarsToRecords(Blackhole blackhole) {
+        for (Avatar avatar : avatars) {
+            blackhole.consume(recordMapper.toRecord(avatar));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.skypro.school.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.skypro.school.component.RecordMapper;
+import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.record.StudentRecord;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Serializes the record lists the way the controllers return them, into a sink that only counts bytes,
+ * so that the measured allocations belong to Jackson and not to a growing output buffer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordSerializationBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int size;
+
+    private ObjectWriter writer;
+    private List<StudentRecord> studentRecords;
+    private List<FacultyRecord> facultyRecords;
+
+    @Setup
+    public void setUp() {
+        RecordMapper recordMapper = new RecordMapper();
+        writer = Jackson2ObjectMapperBuilder.json().build().writer();
+        studentRecords = SyntheticData.students(size).stream()
+                .map(recordMapper::toRecord)
+                .collect(Collectors.toList());
+        facultyRecords = SyntheticData.faculties(size).stream()
+                .map(recordMapper::toRecord)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public long studentRecords() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writer.writeValue(out, studentRecords);
+        return out.count;
+    }
+
+    @Benchmark
+    public long facultyRecords() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writer.writeValue(out, facultyRecords);
+        return out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ru.skypro.school.benchmark;
+
+import org.springframework.data.domain.Pageable;
+import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.entity.StudentAggregate;
+import ru.skypro.school.repository.FacultyRepository;
+import ru.skypro.school.repository.StudentAggregateRepository;
+import ru.skypro.school.repository.StudentRepository;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * In-memory repositories that answer {@code findAll()} from a prepared list,
+ * and {@code findById(..)} from its only element.
+ * Plain JDK proxies are used instead of mocks so that the repository call itself
+ * adds no allocations to the {@code -prof gc} numbers.
+ */
+final class Repositories {
+
+    private Repositories() {
+    }
+
+    /**
+     * Also answers {@code findNamesInRange(..)} with the names in {@code [from, to)}, found by a binary search
+     * over the names sorted in Java order, which is the {@code "C"} collation of the query outside surrogates.
+     * The {@code LIKE} pattern is ignored, so this stands in for the query only to measure the service code
+     * around it, not the query itself.
+     */
+    static StudentRepository studentRepository(List<Student> students) {
+        String[] names = students.stream().map(Student::getName).sorted().toArray(String[]::new);
+        return inMemory(StudentRepository.class, students, (method, args) -> {
+            if (!method.getName().equals("findNamesInRange")) {
+                return null;
+            }
+            String from = (String) args[0];
+            String to = (String) args[1];
+            int limit = ((Pageable) args[3]).getPageSize();
+            int start = Arrays.binarySearch(names, from);
+            List<String> result = new ArrayList<>();
+            for (int i = start < 0 ? -start - 1 : start; i < names.length && result.size() < limit; i++) {
+                if (names[i].compareTo(to) >= 0) {
+                    break;
+                }
+                result.add(names[i]);
+            }
+            return result;
+        });
+    }
+
+    static FacultyRepository facultyRepository(List<Faculty> faculties) {
+        return inMemory(FacultyRepository.class, faculties);
+    }
+
+    /**
+     * Spreads the totals of {@code students} over all {@link StudentAggregate#STRIPES} rows, as concurrent
+     * writers leave them.
+     */
+    static StudentAggregateRepository studentAggregateRepository(List<Student> students) {
+        List<StudentAggregate> stripes = new ArrayList<>(StudentAggregate.STRIPES);
+        for (int i = 0; i < StudentAggregate.STRIPES; i++) {
+            StudentAggregate stripe = new StudentAggregate();
+            stripe.setId(StudentAggregate.ID + i);
+            stripes.add(stripe);
+        }
+        for (int i = 0; i < students.size(); i++) {
+            StudentAggregate stripe = stripes.get(i % StudentAggregate.STRIPES);
+            stripe.setQuantity(stripe.getQuantity() + 1);
+            stripe.setAgeSum(stripe.getAgeSum() + students.get(i).getAge());
+        }
+        return inMemory(StudentAggregateRepository.class, stripes);
+    }
+
+    private static <T> T inMemory(Class<T> repositoryType, List<?> content) {
+        return inMemory(repositoryType, content, (method, args) -> null);
+    }
+
+    private static <T> T inMemory(Class<T> repositoryType, List<?> content,
+                                  BiFunction<Method, Object[], Object> query) {
+        Object proxy = Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                (self, method, args) -> {
+                    Object result = query.apply(method, args);
+                    if (result != null) {
+                        return result;
+                    }
+                    switch (method.getName()) {
+                        case "findAll":
+                            if (method.getParameterCount() == 0) {
+                                return content;
+                            }
+                            break;
+                        case "findById":
+                            return content.stream().findFirst();
+                        case "hashCode":
+                            return System.identityHashCode(self);
+                        case "equals":
+                            return self == args[0];
+                        case "toString":
+                            return repositoryType.getSimpleName() + "[in-memory]";
+                        default:
+                            break;
+                    }
+                    throw new UnsupportedOperationException(method.toString());
+                });
+        return repositoryType.cast(proxy);
+    }
+}
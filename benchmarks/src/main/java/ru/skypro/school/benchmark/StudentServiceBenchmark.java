@@ -0,0 +1,48 @@
+package ru.skypro.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.skypro.school.component.CursorCodec;
+import ru.skypro.school.component.RecordMapper;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.service.StudentAggregateService;
+import ru.skypro.school.service.StudentService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StudentServiceBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int size;
+
+    private StudentService studentService;
+
+    @Setup
+    public void setUp() {
+        List<Student> students = SyntheticData.students(size);
+        studentService = new StudentService(
+                Repositories.studentRepository(students),
+                new RecordMapper(),
+                new CursorCodec(),
+                new StudentAggregateService(Repositories.studentAggregateRepository(students)),
+                null,
+                null);
+    }
+
+    /**
+     * Measures only the service overhead: computing the range and pattern and mapping the page. The lookup
+     * itself is pushed down to {@code students_name_index} and is answered here by an in-memory stand-in, see
+     * {@link Repositories#studentRepository}, so the numbers say nothing about the cost of the query.
+     */
+    @Benchmark
+    public Collection<String> getNamesStudentsStartWith() {
+        return studentService.getNamesStudentsStartWith("Г", 50);
+    }
+}
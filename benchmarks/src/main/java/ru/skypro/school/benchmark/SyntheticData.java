@@ -0,0 +1,81 @@
+package ru.skypro.school.benchmark;
+
+import ru.skypro.school.entity.Avatar;
+import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.entity.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic entity generators, so that every run measures the same collections.
+ */
+final class SyntheticData {
+
+    private static final long SEED = 42L;
+
+    private static final String[] FIRST_NAMES = {
+            "Гарри", "Гермиона", "Драко", "Маркус", "Рон", "Полумна", "Невилл", "Седрик", "Джинни", "Чжоу"
+    };
+    private static final String[] LAST_NAMES = {
+            "Поттер", "Грейнджер", "Малфой", "Флинт", "Уизли", "Лавгуд", "Долгопупс", "Диггори", "Чанг"
+    };
+    private static final String[] FACULTY_NAMES = {
+            "Гриффиндор", "Слизерин", "Когтевран", "Пуффендуй"
+    };
+    private static final String[] COLORS = {"red", "green", "blue", "yellow"};
+
+    private SyntheticData() {
+    }
+
+    static List<Faculty> faculties(int size) {
+        Random random = new Random(SEED);
+        List<Faculty> faculties = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Faculty faculty = new Faculty();
+            faculty.setId((long) i + 1);
+            faculty.setName(FACULTY_NAMES[random.nextInt(FACULTY_NAMES.length)] + " " + random.nextInt(size));
+            faculty.setColor(COLORS[random.nextInt(COLORS.length)]);
+            faculties.add(faculty);
+        }
+        return faculties;
+    }
+
+    static List<Avatar> avatars(int size) {
+        List<Avatar> avatars = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Avatar avatar = new Avatar();
+            avatar.setId(i + 1);
+            avatar.setMediaType("image/png");
+            avatar.setFilePath("./avatars/" + (i + 1) + ".png");
+            avatar.setFileSize(1024);
+            avatars.add(avatar);
+        }
+        return avatars;
+    }
+
+    /**
+     * Students share a small pool of faculties and every second one has an avatar,
+     * which is roughly what the roster endpoints return.
+     */
+    static List<Student> students(int size) {
+        Random random = new Random(SEED);
+        List<Faculty> faculties = faculties(FACULTY_NAMES.length);
+        List<Avatar> avatars = avatars(Math.max(1, size / 2));
+        List<Student> students = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Student student = new Student();
+            student.setId((long) i + 1);
+            student.setName(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                    + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + i);
+            student.setAge(16 + random.nextInt(10));
+            student.setFaculty(faculties.get(random.nextInt(faculties.size())));
+            if (i % 2 == 0) {
+                student.setAvatar(avatars.get(i / 2));
+            }
+            students.add(student);
+        }
+        return students;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.skypro.school.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache of avatar content keyed by its SHA-256 hash.
+ * <p>
+ * The bytes are kept in direct buffers, so cached images live outside the Java heap and do not add to GC work.
+ * Caffeine evicts by W-TinyLFU, which keeps the few frequently requested avatars cached while a scan over
+ * rarely requested ones passes through. Since the key is the hash of the content, an entry can never be stale;
+ * it is only invalidated to release memory when the content is deleted.
+ */
+@Component
+public class AvatarCache {
+
+    private final Cache<String, ByteBuffer> cache;
+
+    public AvatarCache(@Value("${avatar.cache.max-size}") DataSize maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String hash, ByteBuffer data) -> data.capacity())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param loader reads the content on a miss and returns {@code null} when there is none
+     * @return a read-only view of the cached content, or {@code null}
+     */
+    public ByteBuffer get(String hash, Function<String, byte[]> loader) {
+        ByteBuffer data = cache.get(hash, key -> {
+            byte[] bytes = loader.apply(key);
+            return bytes == null ? null : ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        });
+        return data == null ? null : data.asReadOnlyBuffer();
+    }
+
+    public void invalidate(String hash) {
+        cache.invalidate(hash);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    public long weightedSize() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+    }
+}
@@ -0,0 +1,43 @@
+package ru.skypro.school.component;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of fixed-size heap buffers for copying uploads to disk.
+ * When the pool is exhausted a fresh buffer is handed out, and it is dropped again on release
+ * if the pool is already full, so the pool never blocks and never grows beyond its capacity.
+ */
+@Component
+public class ByteBufferPool {
+
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> buffers;
+
+    public ByteBufferPool(@Value("${avatar.upload.buffer-size}") DataSize bufferSize,
+                          @Value("${avatar.upload.buffer-count}") int bufferCount) {
+        this.bufferSize = Math.toIntExact(bufferSize.toBytes());
+        this.buffers = new ArrayBlockingQueue<>(bufferCount);
+    }
+
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocate(bufferSize);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize) {
+            buffer.clear();
+            buffers.offer(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
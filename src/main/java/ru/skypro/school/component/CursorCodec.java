@@ -0,0 +1,64 @@
+package ru.skypro.school.component;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import ru.skypro.school.exception.InvalidCursorException;
+import ru.skypro.school.record.CursorPage;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset pagination over ascending ids. The cursor is the last id of a page encoded as an opaque token,
+ * so the next page is a {@code WHERE id > :after} index range scan, no matter how deep it is.
+ */
+@Component
+public class CursorCodec {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    public String encode(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+    }
+
+    /**
+     * @return the id to continue after; {@code 0} for the first page
+     */
+    public long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != Long.BYTES) {
+                throw new InvalidCursorException(cursor);
+            }
+            return ByteBuffer.wrap(bytes).getLong();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    /**
+     * A request for the first {@code size} rows; returned as a {@link Slice}, it reads one extra row instead of counting.
+     */
+    public Pageable firstRows(int size) {
+        return PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    public <E, R> CursorPage<R> toPage(Slice<E> slice, ToLongFunction<E> id, Function<E, R> mapper) {
+        List<E> content = slice.getContent();
+        CursorPage<R> page = new CursorPage<>();
+        page.setContent(content.stream().map(mapper).collect(Collectors.toList()));
+        if (slice.hasNext()) {
+            page.setNextCursor(encode(id.applyAsLong(content.get(content.size() - 1))));
+        }
+        return page;
+    }
+}
@@ -0,0 +1,225 @@
+package ru.skypro.school.component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.skypro.school.event.FacultyChangedEvent;
+import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.repository.FacultyRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of all faculties. Readers get an immutable {@link Snapshot} without locking; every change
+ * builds a new snapshot and swaps it in atomically. The snapshot is loaded on first use, follows
+ * {@link FacultyChangedEvent}s after commit and is reloaded every {@code faculty.catalog.refresh-delay}
+ * to pick up changes made around the application.
+ */
+@Component
+public class FacultyCatalog {
+
+    private final Logger logger = LoggerFactory.getLogger(FacultyCatalog.class);
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong changes = new AtomicLong();
+    private final FacultyRepository facultyRepository;
+    private final RecordMapper recordMapper;
+
+    public FacultyCatalog(FacultyRepository facultyRepository, RecordMapper recordMapper) {
+        this.facultyRepository = facultyRepository;
+        this.recordMapper = recordMapper;
+    }
+
+    public Snapshot snapshot() {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            current = refresh();
+        }
+        return current;
+    }
+
+    @Scheduled(initialDelayString = "${faculty.catalog.refresh-delay}",
+            fixedDelayString = "${faculty.catalog.refresh-delay}")
+    public Snapshot refresh() {
+        logger.info("Was invoked method to refresh faculty catalog");
+        while (true) {
+            Snapshot current = snapshot.get();
+            long before = changes.get();
+            Snapshot loaded = new Snapshot(facultyRepository.findAll().stream()
+                    .map(recordMapper::toRecord)
+                    .collect(Collectors.toList()));
+            // a change committed while loading may be missing from the loaded rows; the current snapshot has it
+            if (changes.get() == before && snapshot.compareAndSet(current, loaded)) {
+                logger.debug("{} faculties were loaded into the catalog", loaded.size());
+                return loaded;
+            }
+            if (snapshot.get() != null) {
+                logger.debug("Faculty catalog changed while refreshing, keeping the current snapshot");
+                return snapshot.get();
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFacultyChanged(FacultyChangedEvent event) {
+        logger.debug("Was received {}", event);
+        changes.incrementAndGet();
+        if (event.isDeleted()) {
+            update(current -> current.without(event.getId()));
+        } else {
+            FacultyRecord facultyRecord = new FacultyRecord();
+            facultyRecord.setId(event.getId());
+            facultyRecord.setName(event.getName());
+            facultyRecord.setColor(event.getColor());
+            facultyRecord.setVersion(event.getVersion());
+            update(current -> current.with(facultyRecord));
+        }
+    }
+
+    private void update(UnaryOperator<Snapshot> change) {
+        // not loaded yet: the first read loads the committed state anyway
+        snapshot.updateAndGet(current -> current == null ? null : change.apply(current));
+    }
+
+    /**
+     * Immutable set of faculties indexed by id, by color and by name length. {@link FacultyRecord} is mutable,
+     * so the records are kept private and every accessor returns copies.
+     */
+    public static final class Snapshot {
+
+        private final Map<Long, FacultyRecord> byId;
+        private final Map<String, List<FacultyRecord>> byColor;
+        private final List<FacultyRecord> byNameLength;
+
+        public Snapshot(Collection<FacultyRecord> faculties) {
+            Map<Long, FacultyRecord> byId = new TreeMap<>();
+            faculties.forEach(faculty -> byId.put(faculty.getId(), faculty));
+            this.byId = Collections.unmodifiableMap(byId);
+
+            Map<String, List<FacultyRecord>> byColor = new HashMap<>();
+            byId.values().stream()
+                    .filter(faculty -> faculty.getColor() != null)
+                    .forEach(faculty -> byColor.computeIfAbsent(faculty.getColor(), color -> new ArrayList<>()).add(faculty));
+            byColor.replaceAll((color, list) -> Collections.unmodifiableList(list));
+            this.byColor = Collections.unmodifiableMap(byColor);
+
+            this.byNameLength = byId.values().stream()
+                    .filter(faculty -> faculty.getName() != null)
+                    .sorted(Comparator.comparingInt((FacultyRecord faculty) -> faculty.getName().length()).reversed())
+                    .collect(Collectors.toUnmodifiableList());
+        }
+
+        public Optional<FacultyRecord> get(long id) {
+            return Optional.ofNullable(byId.get(id)).map(Snapshot::copy);
+        }
+
+        public Collection<FacultyRecord> getAll() {
+            return copies(byId.values());
+        }
+
+        public List<FacultyRecord> findByColor(String color) {
+            return copies(byColor.getOrDefault(color, List.of()));
+        }
+
+        /**
+         * Faculties whose name or color matches the SQL {@code LIKE} pattern, ignoring case.
+         */
+        public List<FacultyRecord> findByNameOrColorLike(String pattern) {
+            Pattern regex = likeToRegex(pattern);
+            return byId.values().stream()
+                    .filter(faculty -> matches(regex, faculty.getName()) || matches(regex, faculty.getColor()))
+                    .map(Snapshot::copy)
+                    .collect(Collectors.toList());
+        }
+
+        /**
+         * The faculties ordered from the longest name to the shortest.
+         */
+        public List<FacultyRecord> byNameLength() {
+            return copies(byNameLength);
+        }
+
+        /**
+         * The first of {@link #byNameLength()}, without copying the others.
+         */
+        public Optional<FacultyRecord> withLongestName() {
+            return byNameLength.stream().findFirst().map(Snapshot::copy);
+        }
+
+        public int size() {
+            return byId.size();
+        }
+
+        /**
+         * Events may arrive out of order, so a record older than the one held is ignored.
+         */
+        Snapshot with(FacultyRecord faculty) {
+            FacultyRecord current = byId.get(faculty.getId());
+            if (current != null && current.getVersion() != null && faculty.getVersion() != null
+                    && current.getVersion() > faculty.getVersion()) {
+                return this;
+            }
+            Map<Long, FacultyRecord> faculties = new HashMap<>(byId);
+            faculties.put(faculty.getId(), faculty);
+            return new Snapshot(faculties.values());
+        }
+
+        Snapshot without(long id) {
+            Map<Long, FacultyRecord> faculties = new HashMap<>(byId);
+            faculties.remove(id);
+            return new Snapshot(faculties.values());
+        }
+
+        private static List<FacultyRecord> copies(Collection<FacultyRecord> faculties) {
+            return faculties.stream().map(Snapshot::copy).collect(Collectors.toList());
+        }
+
+        private static FacultyRecord copy(FacultyRecord faculty) {
+            FacultyRecord copy = new FacultyRecord();
+            copy.setId(faculty.getId());
+            copy.setName(faculty.getName());
+            copy.setColor(faculty.getColor());
+            copy.setVersion(faculty.getVersion());
+            return copy;
+        }
+
+        private static boolean matches(Pattern regex, String value) {
+            return value != null && regex.matcher(value).matches();
+        }
+
+        /**
+         * {@code %} and {@code _} are wildcards and {@code \} escapes the next character, as in the derived query.
+         */
+        static Pattern likeToRegex(String pattern) {
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '\\' && i + 1 < pattern.length()) {
+                    regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+                } else if (c == '%') {
+                    regex.append(".*");
+                } else if (c == '_') {
+                    regex.append('.');
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+        }
+    }
+}
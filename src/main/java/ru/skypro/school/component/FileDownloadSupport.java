@@ -0,0 +1,115 @@
+package ru.skypro.school.component;
+
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Builds download responses for files on disk.
+ * <p>
+ * When the servlet container supports it, the file is handed over to Tomcat's sendfile, so the bytes go
+ * from the page cache to the socket without passing through the JVM. Otherwise the file is returned as a
+ * {@link Resource}, and Spring MVC streams it and answers {@code Range} requests with partial content.
+ * {@code If-Range} is evaluated here, because Spring MVC applies {@code Range} unconditionally.
+ */
+@Component
+public class FileDownloadSupport {
+
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    public ResponseEntity<Resource> download(Resource file, MediaType mediaType, HttpServletRequest request)
+            throws IOException {
+        return download(file, mediaType, new HttpHeaders(), request);
+    }
+
+    /**
+     * @param responseHeaders validators and cache headers for the file; a strong {@code ETag} among them is
+     *                        used to evaluate {@code If-Range} in addition to {@code Last-Modified}
+     */
+    public ResponseEntity<Resource> download(Resource file, MediaType mediaType, HttpHeaders responseHeaders,
+                                             HttpServletRequest request) throws IOException {
+        long length = file.contentLength();
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(responseHeaders);
+        headers.setContentType(mediaType);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (headers.getLastModified() < 0) {
+            headers.setLastModified(file.lastModified());
+        }
+
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && !isIfRangeSatisfied(request.getHeader(HttpHeaders.IF_RANGE), headers)) {
+            // the client's copy is stale, so the whole current file is sent; InputStreamResource is the one
+            // resource type Spring MVC does not split into ranges
+            headers.setContentLength(length);
+            return ResponseEntity.ok().headers(headers).body(new InputStreamResource(file.getInputStream()));
+        }
+
+        if (file.isFile() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            ResourceRegion region = singleRegion(range, file);
+            if (region != null) {
+                request.setAttribute(SENDFILE_FILENAME, file.getFile().getCanonicalPath());
+                request.setAttribute(SENDFILE_START, region.getPosition());
+                request.setAttribute(SENDFILE_END, region.getPosition() + region.getCount());
+                headers.setContentLength(region.getCount());
+                if (range == null) {
+                    return ResponseEntity.ok().headers(headers).build();
+                }
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + region.getPosition() + "-"
+                        + (region.getPosition() + region.getCount() - 1) + "/" + length);
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers).build();
+            }
+        }
+
+        return ResponseEntity.ok().headers(headers).body(file);
+    }
+
+    /**
+     * Returns the region to send for a request without a range or with a single satisfiable range,
+     * and {@code null} for multipart and invalid ranges, which are left to Spring MVC.
+     */
+    private ResourceRegion singleRegion(String range, Resource file) throws IOException {
+        if (range == null) {
+            return new ResourceRegion(file, 0, file.contentLength());
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            if (ranges.size() != 1) {
+                return null;
+            }
+            return ranges.get(0).toResourceRegion(file);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean isIfRangeSatisfied(String ifRange, HttpHeaders headers) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            // only strong validators may be used with If-Range
+            return ifRange.equals(headers.getETag());
+        }
+        HttpHeaders date = new HttpHeaders();
+        date.set(HttpHeaders.DATE, ifRange);
+        try {
+            return date.getDate() == headers.getLastModified();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
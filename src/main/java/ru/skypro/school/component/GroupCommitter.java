@@ -0,0 +1,243 @@
+package ru.skypro.school.component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs short writes in a transaction. With {@code student.group-commit.enabled} the writes of concurrent callers
+ * are queued and a single thread runs them in one shared transaction: it waits up to
+ * {@code student.group-commit.window} after the first write for others to arrive, taking at most
+ * {@code student.group-commit.max-batch}, so that a burst of updates costs one connection and one commit
+ * instead of one each. Every caller still gets its own result or exception.
+ * <p>
+ * A write that throws a business exception does not affect the others, so it must throw before changing anything,
+ * as the {@code StudentService} writes do. If a write fails in the database or with an {@link Error}, or the commit
+ * fails, the group is rolled back and every write is retried in a transaction of its own.
+ * Transactional event listeners see the events of the group after its commit.
+ * <p>
+ * A caller whose write is still queued after {@code student.group-commit.timeout} withdraws it and gets a
+ * {@link TransactionTimedOutException}; a write already taken into a group is waited for, as it may commit.
+ */
+@Component
+public class GroupCommitter {
+
+    private final Logger logger = LoggerFactory.getLogger(GroupCommitter.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final long timeoutNanos;
+    private final BlockingQueue<Write<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private volatile boolean stopped;
+
+    public GroupCommitter(PlatformTransactionManager transactionManager,
+                          @Value("${student.group-commit.enabled}") boolean enabled,
+                          @Value("${student.group-commit.window}") Duration window,
+                          @Value("${student.group-commit.max-batch}") int maxBatch,
+                          @Value("${student.group-commit.timeout}") Duration timeout) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxBatch = Math.max(1, maxBatch);
+        this.timeoutNanos = timeout.toNanos();
+        if (enabled) {
+            flusher = new Thread(this::run, "group-commit");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Runs {@code write} in a transaction, possibly shared with concurrent writes, and waits for it to commit.
+     * Inside a transaction the write joins it instead, as waiting for a group would hold its connection idle
+     * and split it from the rest of the caller's work.
+     */
+    public <T> T execute(Supplier<T> write) {
+        if (!enabled || stopped || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(status -> write.get());
+        }
+        Write<T> pending = new Write<>(write);
+        queue.add(pending);
+        if (stopped) {
+            // the flusher may have drained the queue for the last time before this write was added
+            flushQueued();
+        }
+        return await(pending);
+    }
+
+    private <T> T await(Write<T> pending) {
+        boolean interrupted = false;
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            while (true) {
+                try {
+                    if (!queue.contains(pending)) {
+                        // taken into a group, which always completes it
+                        return pending.result.get();
+                    }
+                    return pending.result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (TimeoutException e) {
+                    if (queue.remove(pending)) {
+                        throw new TransactionTimedOutException("Write was not taken into a group within "
+                                + Duration.ofNanos(timeoutNanos));
+                    }
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new CompletionException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopped = true;
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher.join();
+            flushQueued();
+        }
+    }
+
+    private void flushQueued() {
+        List<Write<?>> group = new ArrayList<>();
+        queue.drainTo(group);
+        flush(group);
+    }
+
+    private void run() {
+        List<Write<?>> group = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                group.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (group.size() < maxBatch) {
+                    Write<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                // shutting down: whatever was taken still gets written, the rest is left to stop()
+                flush(group);
+                return;
+            }
+            try {
+                flush(group);
+            } catch (Throwable e) {
+                // keep the thread alive for the next groups; no caller of this one may be left waiting
+                logger.error("Group of {} writes failed", group.size(), e);
+                group.forEach(write -> write.result.completeExceptionally(e));
+            }
+            group.clear();
+        }
+    }
+
+    void flush(List<Write<?>> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        boolean committed;
+        try {
+            committed = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                for (Write<?> write : group) {
+                    write.run();
+                    if (write.failure instanceof DataAccessException || write.failure instanceof TransactionException
+                            || write.failure instanceof Error) {
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                }
+                return !status.isRollbackOnly();
+            }));
+        } catch (Throwable e) {
+            logger.warn("Group of {} writes was not committed", group.size(), e);
+            committed = false;
+        }
+        if (committed) {
+            logger.debug("Group of {} writes was committed", group.size());
+            group.forEach(Write::complete);
+            return;
+        }
+        logger.debug("Group of {} writes is retried one write per transaction", group.size());
+        group.forEach(this::retry);
+    }
+
+    private <T> void retry(Write<T> write) {
+        try {
+            write.result.complete(transactionTemplate.execute(status -> write.write.get()));
+        } catch (Throwable e) {
+            write.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * A queued write. Its outcome is kept until the group commits, since a failed commit turns it into a retry.
+     */
+    static final class Write<T> {
+
+        private final Supplier<T> write;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private Throwable failure;
+
+        Write(Supplier<T> write) {
+            this.write = write;
+        }
+
+        void run() {
+            value = null;
+            failure = null;
+            try {
+                value = write.get();
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        void complete() {
+            if (failure == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        }
+    }
+}
@@ -7,7 +7,9 @@ import ru.skypro.school.entity.Faculty;
 import ru.skypro.school.entity.Student;
 import ru.skypro.school.record.AvatarRecord;
 import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.record.FacultyRow;
 import ru.skypro.school.record.StudentRecord;
+import ru.skypro.school.record.StudentRow;
 
 @Component
 public class RecordMapper {
@@ -17,6 +19,7 @@ public class RecordMapper {
         studentRecord.setId(student.getId());
         studentRecord.setName(student.getName());
         studentRecord.setAge(student.getAge());
+        studentRecord.setVersion(student.getVersion());
 
         if (student.getFaculty() != null) {
             studentRecord.setFacultyRecord(toRecord(student.getFaculty()));
@@ -29,6 +32,28 @@ public class RecordMapper {
         return studentRecord;
     }
 
+    public StudentRecord toRecord(StudentRow row) {
+        StudentRecord studentRecord = new StudentRecord();
+        studentRecord.setId(row.getId());
+        studentRecord.setName(row.getName());
+        studentRecord.setAge(row.getAge());
+        studentRecord.setVersion(row.getVersion());
+
+        if (row.getFacultyId() != null) {
+            FacultyRecord facultyRecord = new FacultyRecord();
+            facultyRecord.setId(row.getFacultyId());
+            facultyRecord.setName(row.getFacultyName());
+            facultyRecord.setColor(row.getFacultyColor());
+            studentRecord.setFacultyRecord(facultyRecord);
+        }
+
+        if (row.getAvatarId() != null) {
+            studentRecord.setAvatarRecord(toAvatarRecord(row.getAvatarId(), row.getAvatarMediaType()));
+        }
+
+        return studentRecord;
+    }
+
     public Student toEntity(StudentRecord studentRecord) {
         Student student = new Student();
         student.setName(studentRecord.getName());
@@ -42,10 +67,20 @@ public class RecordMapper {
         facultyRecord.setId(faculty.getId());
         facultyRecord.setName(faculty.getName());
         facultyRecord.setColor(faculty.getColor());
+        facultyRecord.setVersion(faculty.getVersion());
 
         return facultyRecord;
     }
 
+    public FacultyRecord toRecord(FacultyRow row) {
+        FacultyRecord facultyRecord = new FacultyRecord();
+        facultyRecord.setId(row.getId());
+        facultyRecord.setName(row.getName());
+        facultyRecord.setColor(row.getColor());
+        facultyRecord.setVersion(row.getVersion());
+        return facultyRecord;
+    }
+
     public Faculty toEntity(FacultyRecord facultyRecord) {
         Faculty faculty = new Faculty();
         faculty.setName(facultyRecord.getName());
@@ -54,10 +89,14 @@ public class RecordMapper {
     }
 
     public AvatarRecord toRecord(Avatar avatar) {
+        return toAvatarRecord(avatar.getId(), avatar.getMediaType());
+    }
+
+    private AvatarRecord toAvatarRecord(long id, String mediaType) {
         AvatarRecord avatarRecord = new AvatarRecord();
-        avatarRecord.setId(avatar.getId());
-        avatarRecord.setMediaType(avatar.getMediaType());
-        avatarRecord.setUrl("http://localhost:8080/avatars/" + avatar.getId() + "/from-db");
+        avatarRecord.setId(id);
+        avatarRecord.setMediaType(mediaType);
+        avatarRecord.setUrl("http://localhost:8080/avatars/" + id + "/from-db");
         return avatarRecord;
     }
 }
@@ -0,0 +1,110 @@
+package ru.skypro.school.component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Loads an in-memory snapshot of a table while changes to it keep arriving. The snapshot is built into fresh
+ * structures without blocking anyone, then swapped in; the changes that arrived meanwhile are buffered and
+ * replayed on the new snapshot in their order. A change committed before the load read its row is applied twice,
+ * so changes must be idempotent, e.g. carry the new state of a row rather than a delta.
+ * <p>
+ * A failed load is retried up to {@link #DEFAULT_ATTEMPTS} times with a growing pause, then the buffered changes
+ * are applied to the old snapshot and the last exception is thrown, which fails the application startup.
+ */
+public class SnapshotLoader {
+
+    static final int DEFAULT_ATTEMPTS = 3;
+    static final Duration DEFAULT_BACKOFF = Duration.ofSeconds(1);
+
+    private final Logger logger = LoggerFactory.getLogger(SnapshotLoader.class);
+
+    private final int attempts;
+    private final long backoffMillis;
+    private List<Runnable> buffered;
+
+    public SnapshotLoader() {
+        this(DEFAULT_ATTEMPTS, DEFAULT_BACKOFF);
+    }
+
+    /**
+     * @param backoff the pause before the second attempt, doubled before each further one
+     */
+    public SnapshotLoader(int attempts, Duration backoff) {
+        this.attempts = Math.max(1, attempts);
+        this.backoffMillis = backoff.toMillis();
+    }
+
+    /**
+     * Applies {@code change} to the current snapshot, or buffers it while a load is in progress.
+     */
+    public synchronized void apply(Runnable change) {
+        if (buffered != null) {
+            buffered.add(change);
+        } else {
+            change.run();
+        }
+    }
+
+    /**
+     * Builds a snapshot with {@code loader}, then hands it to {@code swap} and replays the buffered changes,
+     * which must read the snapshot they change only when run.
+     */
+    public <T> void load(Supplier<T> loader, Consumer<T> swap) {
+        synchronized (this) {
+            if (buffered != null) {
+                throw new IllegalStateException("Snapshot is already being loaded");
+            }
+            buffered = new ArrayList<>();
+        }
+        T snapshot;
+        try {
+            snapshot = loadWithRetries(loader);
+        } catch (RuntimeException | Error e) {
+            replay(() -> {
+            });
+            throw e;
+        }
+        replay(() -> swap.accept(snapshot));
+    }
+
+    private <T> T loadWithRetries(Supplier<T> loader) {
+        long pause = backoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return loader.get();
+            } catch (RuntimeException e) {
+                if (attempt >= attempts) {
+                    throw e;
+                }
+                logger.warn("Snapshot load attempt {} of {} failed, retrying in {} ms", attempt, attempts, pause, e);
+            }
+            try {
+                Thread.sleep(pause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading a snapshot", e);
+            }
+            pause *= 2;
+        }
+    }
+
+    private synchronized void replay(Runnable swap) {
+        List<Runnable> changes = buffered;
+        buffered = null;
+        swap.run();
+        for (Runnable change : changes) {
+            try {
+                change.run();
+            } catch (RuntimeException e) {
+                logger.error("Failed to replay a change on the snapshot", e);
+            }
+        }
+    }
+}
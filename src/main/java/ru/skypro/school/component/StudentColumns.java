@@ -0,0 +1,408 @@
+package ru.skypro.school.component;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented copy of the students table: the ids, ages and faculty ids of all students are kept in three
+ * parallel primitive arrays sorted by id, so that aggregates are computed by scanning arrays instead of objects.
+ * <p>
+ * Writers update one row in place under the write lock, appending when the id is the largest, which is the
+ * common case for a sequence. Queries hold the read lock and split large scans into fork/join tasks of
+ * {@link #SPLIT_THRESHOLD} rows run in the common pool; the per-row loops do not allocate.
+ */
+public class StudentColumns {
+
+    /**
+     * The faculty id stored for a student without a faculty.
+     */
+    public static final long NO_FACULTY = 0;
+
+    static final int SPLIT_THRESHOLD = 1 << 15;
+
+    /**
+     * Largest age range counted with one bucket per age, which every fork/join leaf allocates.
+     */
+    static final int MAX_DENSE_BUCKETS = 1 << 12;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private long[] facultyIds = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Inserts the student or replaces its row.
+     */
+    public void put(long id, int age, Long facultyId) {
+        long faculty = facultyId == null ? NO_FACULTY : facultyId;
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int position = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                position = -position - 1;
+                ensureCapacity(size + 1);
+                System.arraycopy(ids, position, ids, position + 1, size - position);
+                System.arraycopy(ages, position, ages, position + 1, size - position);
+                System.arraycopy(facultyIds, position, facultyIds, position + 1, size - position);
+                size++;
+            }
+            ids[position] = id;
+            ages[position] = age;
+            facultyIds[position] = faculty;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(long id) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                System.arraycopy(ages, position + 1, ages, position, size - position - 1);
+                System.arraycopy(facultyIds, position + 1, facultyIds, position, size - position - 1);
+                size--;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Detaches all students from a deleted faculty.
+     */
+    public void removeFaculty(long facultyId) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (facultyIds[i] == facultyId) {
+                    facultyIds[i] = NO_FACULTY;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Moves the students matching {@code filter} to the faculty, as the bulk update did in the database.
+     *
+     * @param ids the students to consider, all if {@code null}
+     */
+    public void moveToFaculty(long[] ids, Filter filter, long facultyId) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (ids == null) {
+                for (int i = 0; i < size; i++) {
+                    moveIfMatches(i, filter, facultyId);
+                }
+            } else {
+                for (long id : ids) {
+                    int position = Arrays.binarySearch(this.ids, 0, size, id);
+                    if (position >= 0) {
+                        moveIfMatches(position, filter, facultyId);
+                    }
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void moveIfMatches(int position, Filter filter, long facultyId) {
+        if (filter.matches(ages[position], facultyIds[position])) {
+            facultyIds[position] = facultyId;
+        }
+    }
+
+    public void clear() {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            size = 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Count, age sum and age range of the students matching {@code filter}.
+     */
+    public Summary summarize(Filter filter) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return summarize(filter, size);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Number of students of every age among those matching {@code filter}; ages without students are omitted.
+     */
+    public SortedMap<Integer, Long> histogram(Filter filter) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            SortedMap<Integer, Long> histogram = new TreeMap<>();
+            Summary summary = summarize(filter, size);
+            if (summary.getCount() == 0) {
+                return histogram;
+            }
+            if ((long) summary.getMaxAge() - summary.getMinAge() >= MAX_DENSE_BUCKETS) {
+                return sparseHistogram(filter, summary);
+            }
+            long[] counts = invoke(new HistogramTask(ages, facultyIds, 0, size, filter,
+                    summary.getMinAge(), summary.getMaxAge()), size);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    histogram.put(summary.getMinAge() + i, counts[i]);
+                }
+            }
+            return histogram;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Counts ages spread too widely for one bucket per age, e.g. because of a mistyped age, by sorting the
+     * matching ones. Called under the read lock.
+     */
+    private SortedMap<Integer, Long> sparseHistogram(Filter filter, Summary summary) {
+        int[] matching = new int[(int) summary.getCount()];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.matches(ages[i], facultyIds[i])) {
+                matching[count++] = ages[i];
+            }
+        }
+        Arrays.parallelSort(matching);
+        SortedMap<Integer, Long> histogram = new TreeMap<>();
+        for (int from = 0, to; from < count; from = to) {
+            to = from + 1;
+            while (to < count && matching[to] == matching[from]) {
+                to++;
+            }
+            histogram.put(matching[from], (long) (to - from));
+        }
+        return histogram;
+    }
+
+    private Summary summarize(Filter filter, int size) {
+        return invoke(new SummaryTask(ages, facultyIds, 0, size, filter), size);
+    }
+
+    private static <T> T invoke(RecursiveTask<T> task, int size) {
+        // a small scan is cheaper in the calling thread than handing it to the pool
+        return size < SPLIT_THRESHOLD ? task.invoke() : ForkJoinPool.commonPool().invoke(task);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, newCapacity);
+            ages = Arrays.copyOf(ages, newCapacity);
+            facultyIds = Arrays.copyOf(facultyIds, newCapacity);
+        }
+    }
+
+    /**
+     * Inclusive age bounds and an optional faculty.
+     */
+    public static final class Filter {
+
+        private static final long ANY_FACULTY = Long.MIN_VALUE;
+
+        private final int minAge;
+        private final int maxAge;
+        private final long facultyId;
+
+        private Filter(int minAge, int maxAge, long facultyId) {
+            this.minAge = minAge;
+            this.maxAge = maxAge;
+            this.facultyId = facultyId;
+        }
+
+        /**
+         * @param minAge    lower bound, none if {@code null}
+         * @param maxAge    upper bound, none if {@code null}
+         * @param facultyId any faculty if {@code null}
+         */
+        public static Filter of(Integer minAge, Integer maxAge, Long facultyId) {
+            return new Filter(minAge == null ? Integer.MIN_VALUE : minAge,
+                    maxAge == null ? Integer.MAX_VALUE : maxAge,
+                    facultyId == null ? ANY_FACULTY : facultyId);
+        }
+
+        public static Filter all() {
+            return of(null, null, null);
+        }
+
+        boolean matches(int age, long faculty) {
+            return age >= minAge && age <= maxAge && (facultyId == ANY_FACULTY || faculty == facultyId);
+        }
+    }
+
+    public static final class Summary {
+
+        private final long count;
+        private final long ageSum;
+        private final int minAge;
+        private final int maxAge;
+
+        Summary(long count, long ageSum, int minAge, int maxAge) {
+            this.count = count;
+            this.ageSum = ageSum;
+            this.minAge = minAge;
+            this.maxAge = maxAge;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getAgeSum() {
+            return ageSum;
+        }
+
+        /**
+         * Meaningless when {@link #getCount()} is {@code 0}, as is {@link #getMaxAge()}.
+         */
+        public int getMinAge() {
+            return minAge;
+        }
+
+        public int getMaxAge() {
+            return maxAge;
+        }
+
+        Summary merge(Summary other) {
+            return new Summary(count + other.count, ageSum + other.ageSum,
+                    Math.min(minAge, other.minAge), Math.max(maxAge, other.maxAge));
+        }
+    }
+
+    private static final class SummaryTask extends RecursiveTask<Summary> {
+
+        private final int[] ages;
+        private final long[] facultyIds;
+        private final int from;
+        private final int to;
+        private final Filter filter;
+
+        SummaryTask(int[] ages, long[] facultyIds, int from, int to, Filter filter) {
+            this.ages = ages;
+            this.facultyIds = facultyIds;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                SummaryTask right = new SummaryTask(ages, facultyIds, middle, to, filter);
+                right.fork();
+                Summary left = new SummaryTask(ages, facultyIds, from, middle, filter).compute();
+                return left.merge(right.join());
+            }
+            int minAge = filter.minAge;
+            int maxAge = filter.maxAge;
+            long faculty = filter.facultyId;
+            boolean anyFaculty = faculty == Filter.ANY_FACULTY;
+            long count = 0;
+            long sum = 0;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                int age = ages[i];
+                if (age < minAge || age > maxAge || !anyFaculty && facultyIds[i] != faculty) {
+                    continue;
+                }
+                count++;
+                sum += age;
+                min = Math.min(min, age);
+                max = Math.max(max, age);
+            }
+            return new Summary(count, sum, min, max);
+        }
+    }
+
+    private static final class HistogramTask extends RecursiveTask<long[]> {
+
+        private final int[] ages;
+        private final long[] facultyIds;
+        private final int from;
+        private final int to;
+        private final Filter filter;
+        private final int lowest;
+        private final int highest;
+
+        /**
+         * @param lowest  the smallest matching age, counted in the first bucket
+         * @param highest the largest matching age, counted in the last bucket
+         */
+        HistogramTask(int[] ages, long[] facultyIds, int from, int to, Filter filter, int lowest, int highest) {
+            this.ages = ages;
+            this.facultyIds = facultyIds;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+            this.lowest = lowest;
+            this.highest = highest;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                HistogramTask right = new HistogramTask(ages, facultyIds, middle, to, filter, lowest, highest);
+                right.fork();
+                long[] counts = new HistogramTask(ages, facultyIds, from, middle, filter, lowest, highest).compute();
+                long[] rightCounts = right.join();
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += rightCounts[i];
+                }
+                return counts;
+            }
+            long faculty = filter.facultyId;
+            boolean anyFaculty = faculty == Filter.ANY_FACULTY;
+            long[] counts = new long[highest - lowest + 1];
+            for (int i = from; i < to; i++) {
+                int age = ages[i];
+                if (age < lowest || age > highest || !anyFaculty && facultyIds[i] != faculty) {
+                    continue;
+                }
+                counts[age - lowest]++;
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package ru.skypro.school.component;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+/**
+ * Inverted index from the trigrams of a text to the ids of the documents containing them, for case-insensitive
+ * substring search. Each posting list is a sorted array of ids stored as varint-encoded deltas.
+ * <p>
+ * Reads take no locks: writers replace whole posting lists, and every candidate is verified against the current
+ * text of its document, so a reader racing with a writer never returns a wrong match. Queries shorter than
+ * a trigram cannot use the postings and scan the texts instead.
+ * <p>
+ * {@link #put(long, String)} re-encodes the posting list of every trigram it touches, which suits single changes;
+ * a whole corpus is indexed through a {@link Builder} instead, encoding each list once.
+ */
+public class TrigramIndex {
+
+    private static final int N = 3;
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::getRank)
+            .thenComparingInt(match -> match.getText().length())
+            .thenComparing(Match::getText)
+            .thenComparingLong(Match::getId);
+
+    private final Map<Long, String> texts;
+    private final Map<Long, byte[]> postings;
+
+    public TrigramIndex() {
+        this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    }
+
+    private TrigramIndex(Map<Long, String> texts, Map<Long, byte[]> postings) {
+        this.texts = texts;
+        this.postings = postings;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Indexes {@code text} as the document {@code id}, replacing its previous text. A {@code null} text, e.g. of a
+     * nameless student, cannot match anything and removes the document instead.
+     */
+    public synchronized void put(long id, String text) {
+        if (text == null) {
+            remove(id);
+            return;
+        }
+        String previous = texts.put(id, text);
+        if (text.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            trigramsOf(normalize(previous)).forEach(trigram -> postings.computeIfPresent(trigram,
+                    (key, ids) -> nullIfEmpty(remove(ids, id))));
+        }
+        trigramsOf(normalize(text)).forEach(trigram -> postings.merge(trigram, encode(new long[]{id}),
+                (ids, single) -> add(ids, id)));
+    }
+
+    public synchronized void remove(long id) {
+        String previous = texts.remove(id);
+        if (previous != null) {
+            trigramsOf(normalize(previous)).forEach(trigram -> postings.computeIfPresent(trigram,
+                    (key, ids) -> nullIfEmpty(remove(ids, id))));
+        }
+    }
+
+    public String get(long id) {
+        return texts.get(id);
+    }
+
+    public int size() {
+        return texts.size();
+    }
+
+    /**
+     * @return up to {@code limit} documents containing {@code query}: exact matches first, then those starting
+     * with it, then those with a word starting with it, then any other; shorter texts first within a rank
+     */
+    public List<Match> search(String query, int limit) {
+        String normalized = normalize(query);
+        List<Match> matches = new ArrayList<>();
+        if (normalized.length() < N) {
+            texts.forEach((id, text) -> addIfMatches(matches, id, text, normalized));
+        } else {
+            for (long id : candidates(normalized)) {
+                String text = texts.get(id);
+                if (text != null) {
+                    addIfMatches(matches, id, text, normalized);
+                }
+            }
+        }
+        matches.sort(RANKING);
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Ids present in the posting list of every trigram of {@code query}, starting from the shortest list.
+     */
+    private long[] candidates(String query) {
+        List<byte[]> lists = new ArrayList<>();
+        for (long trigram : trigrams(query)) {
+            byte[] ids = postings.get(trigram);
+            if (ids == null) {
+                return new long[0];
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(ids -> ids.length));
+        long[] result = decode(lists.get(0));
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, decode(lists.get(i)));
+        }
+        return result;
+    }
+
+    private static void addIfMatches(List<Match> matches, long id, String text, String query) {
+        String normalized = normalize(text);
+        int position = normalized.indexOf(query);
+        if (position < 0) {
+            return;
+        }
+        int rank;
+        if (normalized.length() == query.length()) {
+            rank = 0;
+        } else if (position == 0) {
+            rank = 1;
+        } else if (normalized.contains(" " + query)) {
+            rank = 2;
+        } else {
+            rank = 3;
+        }
+        matches.add(new Match(id, text, rank));
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Distinct trigrams of {@code text}, each packed as three 16-bit chars into a {@code long}.
+     */
+    static long[] trigrams(String text) {
+        if (text.length() < N) {
+            return new long[0];
+        }
+        long[] trigrams = new long[text.length() - N + 1];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = (long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16 | text.charAt(i + 2);
+        }
+        return Arrays.stream(trigrams).distinct().toArray();
+    }
+
+    private static LongStream trigramsOf(String text) {
+        return Arrays.stream(trigrams(text));
+    }
+
+    private static byte[] add(byte[] encoded, long id) {
+        long[] ids = decode(encoded);
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return encoded;
+        }
+        int insertion = -position - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, insertion);
+        result[insertion] = id;
+        System.arraycopy(ids, insertion, result, insertion + 1, ids.length - insertion);
+        return encode(result);
+    }
+
+    private static byte[] remove(byte[] encoded, long id) {
+        long[] ids = decode(encoded);
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return encoded;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        System.arraycopy(ids, position + 1, result, position, ids.length - position - 1);
+        return encode(result);
+    }
+
+    private static byte[] nullIfEmpty(byte[] encoded) {
+        return encoded.length == 0 ? null : encoded;
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Writes the gaps between ascending ids as unsigned LEB128 varints, the first gap being the id itself.
+     */
+    static byte[] encode(long[] ids) {
+        if (ids.length == 0) {
+            return EMPTY;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(ids.length * 2);
+        long previous = 0;
+        for (long id : ids) {
+            long gap = id - previous;
+            previous = id;
+            while ((gap & ~0x7FL) != 0) {
+                out.write((int) (gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            out.write((int) gap);
+        }
+        return out.toByteArray();
+    }
+
+    static long[] decode(byte[] encoded) {
+        long[] ids = new long[encoded.length];
+        int size = 0;
+        long previous = 0;
+        long gap = 0;
+        int shift = 0;
+        for (byte b : encoded) {
+            gap |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                previous += gap;
+                ids[size++] = previous;
+                gap = 0;
+                shift = 0;
+            } else {
+                shift += 7;
+            }
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Collects the texts of a corpus and indexes them at once: the ids of each trigram are gathered unsorted,
+     * then sorted and encoded a single time. Not thread-safe.
+     */
+    public static class Builder {
+        private final Map<Long, String> texts = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds {@code text} as the document {@code id}, replacing its previous text; a {@code null} text is skipped
+         * like in {@link TrigramIndex#put(long, String)}.
+         */
+        public Builder put(long id, String text) {
+            if (text == null) {
+                texts.remove(id);
+            } else {
+                texts.put(id, text);
+            }
+            return this;
+        }
+
+        public TrigramIndex build() {
+            Map<Long, IdList> lists = new HashMap<>();
+            texts.forEach((id, text) -> {
+                for (long trigram : trigrams(normalize(text))) {
+                    lists.computeIfAbsent(trigram, key -> new IdList()).add(id);
+                }
+            });
+            Map<Long, byte[]> postings = new ConcurrentHashMap<>(Math.max(16, lists.size() * 4 / 3 + 1));
+            lists.forEach((trigram, ids) -> postings.put(trigram, encode(ids.toSortedArray())));
+            return new TrigramIndex(new ConcurrentHashMap<>(texts), postings);
+        }
+    }
+
+    /**
+     * A growable array of ids, each added at most once, since {@link #trigrams(String)} are distinct.
+     */
+    private static class IdList {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        long[] toSortedArray() {
+            long[] result = Arrays.copyOf(ids, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    public static class Match {
+        private final long id;
+        private final String text;
+        private final int rank;
+
+        public Match(long id, String text, int rank) {
+            this.id = id;
+            this.text = text;
+            this.rank = rank;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * {@code 0} for an exact match, {@code 1} for a prefix, {@code 2} for a word prefix, {@code 3} otherwise.
+         */
+        public int getRank() {
+            return rank;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Match match = (Match) o;
+            return id == match.id && rank == match.rank && Objects.equals(text, match.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, text, rank);
+        }
+    }
+}
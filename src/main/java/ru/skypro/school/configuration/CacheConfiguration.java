@@ -0,0 +1,36 @@
+package ru.skypro.school.configuration;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches are backed by Caffeine, see {@code spring.cache.*} in application.properties.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    public static final String FACULTY_STUDENT_COUNTS = "facultyStudentCounts";
+
+    /**
+     * Defers puts and evictions made inside a transaction until it commits, and drops them on rollback.
+     * Otherwise an eviction by a write nested in a longer transaction, e.g. a batch, lets a concurrent reader cache
+     * the counts from before the commit again.
+     */
+    @Bean
+    public static BeanPostProcessor transactionAwareCacheManagerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof CacheManager && !(bean instanceof TransactionAwareCacheManagerProxy)) {
+                    return new TransactionAwareCacheManagerProxy((CacheManager) bean);
+                }
+                return bean;
+            }
+        };
+    }
+}
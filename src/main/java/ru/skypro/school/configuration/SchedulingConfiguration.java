@@ -0,0 +1,12 @@
+package ru.skypro.school.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Background maintenance jobs, e.g. the reconciliation of student aggregates.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
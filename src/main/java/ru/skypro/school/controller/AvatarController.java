@@ -1,53 +1,145 @@
 package ru.skypro.school.controller;
 
 
+import org.springframework.core.io.Resource;
 import org.springframework.data.util.Pair;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.school.component.ByteBufferResource;
+import ru.skypro.school.component.FileDownloadSupport;
+import ru.skypro.school.entity.Avatar;
+import ru.skypro.school.record.AvatarCacheStats;
 import ru.skypro.school.record.AvatarRecord;
+import ru.skypro.school.record.CursorPage;
 import ru.skypro.school.service.AvatarService;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/avatars")
 public class AvatarController {
 
+    // CacheControl has no immutable directive before Spring 6
+    private static final String IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue()
+            + ", immutable";
+
     private final AvatarService avatarService;
+    private final FileDownloadSupport fileDownloadSupport;
 
-    public AvatarController(AvatarService avatarService) {
+    public AvatarController(AvatarService avatarService, FileDownloadSupport fileDownloadSupport) {
         this.avatarService = avatarService;
+        this.fileDownloadSupport = fileDownloadSupport;
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public void upload(@RequestParam MultipartFile avatarFile) throws IOException {
-        avatarService.upload(avatarFile);
+    public AvatarRecord upload(@RequestParam MultipartFile avatarFile) throws IOException {
+        return avatarService.upload(avatarFile);
     }
 
     @GetMapping("/{id}/from-db")
-    public ResponseEntity<byte[]> readAvatarFromDb(@PathVariable Long id) {
-        Pair<String, byte[]> content = avatarService.readAvatarFromDb(id);
+    public ResponseEntity<Resource> readAvatarFromDb(@PathVariable Long id, HttpServletRequest request) {
+        Avatar avatar = avatarService.readAvatar(id);
+        HttpHeaders headers = cacheHeaders(avatar, avatar.getChecksum());
+        if (isNotModified(headers, request)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        Pair<String, ByteBuffer> content = avatarService.readAvatarFromDb(avatar);
         return ResponseEntity.ok()
+                .headers(headers)
                 .contentType(MediaType.parseMediaType(content.getFirst()))
-                .contentLength(content.getSecond().length)
-                .body(content.getSecond());
+                .contentLength(content.getSecond().remaining())
+                .body(new ByteBufferResource(content.getSecond(), "avatar " + id));
     }
 
     @GetMapping("/{id}/from-fs")
-    public ResponseEntity<byte[]> readAvatarFromFs(@PathVariable Long id) throws IOException {
-        Pair<String, byte[]> content = avatarService.readAvatarFromFs(id);
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(content.getFirst()))
-                .contentLength(content.getSecond().length)
-                .body(content.getSecond());
+    public ResponseEntity<Resource> readAvatarFromFs(@PathVariable Long id,
+                                                     @RequestParam(name = "w", required = false) Integer width,
+                                                     HttpServletRequest request) throws IOException {
+        Avatar avatar = avatarService.readAvatar(id);
+        if (width != null) {
+            HttpHeaders variantHeaders = cacheHeaders(avatar, avatar.getChecksum() + "-w" + width);
+            if (isNotModified(variantHeaders, request)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(variantHeaders).build();
+            }
+            Optional<Pair<String, Resource>> variant = avatarService.readAvatarVariant(avatar, width);
+            if (variant.isPresent()) {
+                return download(variant.get(), variantHeaders, request);
+            }
+            if (avatarService.isGeneratingVariants(avatar)) {
+                // the original stands in until the variant is generated, so it must not be cached under this URL
+                HttpHeaders noStore = new HttpHeaders();
+                noStore.setCacheControl(CacheControl.noStore());
+                return download(avatarService.readAvatarFromFs(avatar), noStore, request);
+            }
+            // no variant will be generated for this width, the original is the answer for good
+        }
+        HttpHeaders headers = cacheHeaders(avatar, avatar.getChecksum());
+        if (isNotModified(headers, request)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        return download(avatarService.readAvatarFromFs(avatar), headers, request);
+    }
+
+    private ResponseEntity<Resource> download(Pair<String, Resource> content, HttpHeaders headers,
+                                              HttpServletRequest request) throws IOException {
+        return fileDownloadSupport.download(content.getSecond(), MediaType.parseMediaType(content.getFirst()),
+                headers, request);
+    }
+
+    /**
+     * The content of an avatar never changes once uploaded, so its checksum is a strong validator
+     * and the response may be cached for as long as the client wants.
+     */
+    private HttpHeaders cacheHeaders(Avatar avatar, String tag) {
+        HttpHeaders headers = new HttpHeaders();
+        if (avatar.getChecksum() != null) {
+            headers.setETag("\"" + tag + "\"");
+            headers.setCacheControl(IMMUTABLE);
+        }
+        if (avatar.getUploadedAt() != null) {
+            headers.setLastModified(avatar.getUploadedAt());
+        }
+        return headers;
     }
 
-    @GetMapping
+    /**
+     * Evaluates {@code If-None-Match} and {@code If-Modified-Since} against the metadata only;
+     * the request is wrapped without the response so that no headers are written here.
+     */
+    private boolean isNotModified(HttpHeaders headers, HttpServletRequest request) {
+        return new ServletWebRequest(request).checkNotModified(headers.getETag(), headers.getLastModified());
+    }
+
+    @GetMapping("/cache/stats")
+    public AvatarCacheStats getCacheStats() {
+        return avatarService.getCacheStats();
+    }
+
+    @DeleteMapping("{id}")
+    public AvatarRecord delete(@PathVariable Long id) {
+        return avatarService.delete(id);
+    }
+
+    @GetMapping(params = "page")
     public Collection<AvatarRecord> getAllAvatars(@RequestParam Integer page,
                                                   @RequestParam Integer size) {
         return avatarService.getAllAvatars(page, size);
     }
+
+    @GetMapping(params = "!page")
+    public CursorPage<AvatarRecord> getAvatars(@RequestParam(required = false) String after,
+                                               @RequestParam(defaultValue = "20") int size) {
+        return avatarService.getAvatars(after, size);
+    }
 }
@@ -0,0 +1,33 @@
+package ru.skypro.school.controller;
+
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.skypro.school.record.BatchOperation;
+import ru.skypro.school.record.BatchResult;
+import ru.skypro.school.service.BatchService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/batch")
+public class BatchController {
+
+    private final BatchService batchService;
+
+    public BatchController(BatchService batchService) {
+        this.batchService = batchService;
+    }
+
+    /**
+     * E.g. {@code [{"type": "CREATE_FACULTY", "ref": "f", "faculty": {...}},
+     * {"type": "CREATE_STUDENT", "ref": "s", "student": {...}},
+     * {"type": "SET_STUDENT_FACULTY", "id": "$s", "facultyId": "$f"}]}. If an operation fails, none is applied
+     * and the answer is the one of its own endpoint.
+     */
+    @PostMapping
+    public List<BatchResult> execute(@RequestBody List<BatchOperation> operations) {
+        return batchService.execute(operations);
+    }
+}
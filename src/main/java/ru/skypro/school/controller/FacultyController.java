@@ -1,12 +1,20 @@
 package ru.skypro.school.controller;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.skypro.school.record.BulkUpdateResult;
+import ru.skypro.school.record.FacultyMergeResult;
 import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.record.MultiGetResult;
 import ru.skypro.school.record.StudentRecord;
+import ru.skypro.school.record.StudentSelection;
 import ru.skypro.school.service.FacultyService;
 
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequestMapping("/faculties")
@@ -28,14 +36,30 @@ public class FacultyController {
         return facultyService.read(id);
     }
 
+    /**
+     * E.g. {@code ?ids=1,2,3}; ids that are not found are listed in the answer instead of failing it.
+     */
+    @GetMapping(params = "ids")
+    public MultiGetResult<FacultyRecord> read(@RequestParam List<Long> ids) {
+        return facultyService.read(ids);
+    }
+
+    /**
+     * Same as {@code GET ?ids=}, for lists too long for a URL.
+     */
+    @PostMapping("/by-ids")
+    public MultiGetResult<FacultyRecord> readByIds(@RequestBody List<Long> ids) {
+        return facultyService.read(ids);
+    }
+
     @PutMapping("{id}")
     public FacultyRecord update(@PathVariable Long id, @RequestBody FacultyRecord facultyRecord) {
         return facultyService.update(id, facultyRecord);
     }
 
     @DeleteMapping("{id}")
-    public FacultyRecord delete(@PathVariable Long id) {
-        return facultyService.delete(id);
+    public FacultyRecord delete(@PathVariable Long id, @RequestParam(required = false) Long version) {
+        return facultyService.delete(id, version);
     }
 
     @GetMapping(params = "color")
@@ -53,6 +77,25 @@ public class FacultyController {
         return facultyService.getStudentsByFaculty(id);
     }
 
+    /**
+     * Paged variant, e.g. {@code ?page=1&size=20&sort=name,desc}; pages are numbered from 1 as in {@code /avatars}.
+     */
+    @GetMapping(value = "/{id}/students", params = "page")
+    public Page<StudentRecord> getStudentsByFaculty(@PathVariable Long id,
+                                                    @PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        return facultyService.getStudentsByFaculty(id, pageable);
+    }
+
+    @PatchMapping("/{id}/students")
+    public BulkUpdateResult moveStudents(@PathVariable Long id, @RequestBody StudentSelection selection) {
+        return facultyService.moveStudents(id, selection);
+    }
+
+    @PostMapping(value = "/{id}/merge", params = "into")
+    public FacultyMergeResult merge(@PathVariable Long id, @RequestParam Long into) {
+        return facultyService.merge(id, into);
+    }
+
     @GetMapping("/longestName")
     public ResponseEntity<String> getFacultyWithLongestName() {
         return ResponseEntity.ok(facultyService.getFacultyLongestName());
@@ -0,0 +1,26 @@
+package ru.skypro.school.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.skypro.school.record.SearchHit;
+import ru.skypro.school.service.SearchService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/search")
+public class SearchController {
+
+    private final SearchService searchService;
+
+    public SearchController(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    @GetMapping
+    public List<SearchHit> search(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        return searchService.search(q, limit);
+    }
+}
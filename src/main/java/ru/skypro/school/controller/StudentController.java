@@ -1,23 +1,52 @@
 package ru.skypro.school.controller;
 
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.skypro.school.record.CursorPage;
 import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.record.MultiGetResult;
 import ru.skypro.school.record.StudentAverageAge;
+import ru.skypro.school.record.StudentImportResult;
 import ru.skypro.school.record.StudentQuantity;
 import ru.skypro.school.record.StudentRecord;
+import ru.skypro.school.record.StudentStats;
+import ru.skypro.school.service.StudentAutocompleteService;
+import ru.skypro.school.service.StudentExportService;
+import ru.skypro.school.service.StudentFormat;
+import ru.skypro.school.service.StudentImportService;
 import ru.skypro.school.service.StudentService;
+import ru.skypro.school.service.StudentStatsService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedMap;
 
 @RestController
 @RequestMapping("/students")
 public class StudentController {
 
     private final StudentService studentService;
-
-    public StudentController(StudentService studentService) {
+    private final StudentExportService studentExportService;
+    private final StudentImportService studentImportService;
+    private final StudentAutocompleteService studentAutocompleteService;
+    private final StudentStatsService studentStatsService;
+
+    public StudentController(StudentService studentService, StudentExportService studentExportService,
+                             StudentImportService studentImportService,
+                             StudentAutocompleteService studentAutocompleteService,
+                             StudentStatsService studentStatsService) {
         this.studentService = studentService;
+        this.studentExportService = studentExportService;
+        this.studentImportService = studentImportService;
+        this.studentAutocompleteService = studentAutocompleteService;
+        this.studentStatsService = studentStatsService;
     }
 
     @PostMapping
@@ -30,6 +59,28 @@ public class StudentController {
         return studentService.read(id);
     }
 
+    /**
+     * E.g. {@code ?ids=1,2,3}; ids that are not found are listed in the answer instead of failing it.
+     */
+    @GetMapping(params = "ids")
+    public MultiGetResult<StudentRecord> read(@RequestParam List<Long> ids) {
+        return studentService.read(ids);
+    }
+
+    /**
+     * Same as {@code GET ?ids=}, for lists too long for a URL.
+     */
+    @PostMapping("/by-ids")
+    public MultiGetResult<StudentRecord> readByIds(@RequestBody List<Long> ids) {
+        return studentService.read(ids);
+    }
+
+    @GetMapping
+    public CursorPage<StudentRecord> getStudents(@RequestParam(required = false) String after,
+                                                 @RequestParam(defaultValue = "20") int size) {
+        return studentService.getStudents(after, size);
+    }
+
     @PutMapping("{id}")
     public StudentRecord update(@PathVariable Long id,
                                 @RequestBody StudentRecord studentRecord) {
@@ -37,8 +88,8 @@ public class StudentController {
     }
 
     @DeleteMapping("{id}")
-    public StudentRecord delete(@PathVariable Long id) {
-        return studentService.delete(id);
+    public StudentRecord delete(@PathVariable Long id, @RequestParam(required = false) Long version) {
+        return studentService.delete(id, version);
     }
 
     @GetMapping(params = "age")
@@ -66,6 +117,29 @@ public class StudentController {
         return studentService.updateAvatar(id, avatarId);
     }
 
+    /**
+     * Streams the whole roster, {@code format} is {@code ndjson} (default) or {@code csv}.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format) {
+        StudentFormat exportFormat = StudentFormat.of(format);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("students." + exportFormat.name().toLowerCase(Locale.ROOT))
+                        .build().toString())
+                .body(out -> studentExportService.export(exportFormat, out));
+    }
+
+    /**
+     * Imports an NDJSON or CSV body, as chosen by its content type, and reports the rows that were rejected.
+     */
+    @PostMapping(value = "/import", consumes = {StudentFormat.NDJSON_VALUE, StudentFormat.CSV_VALUE})
+    public StudentImportResult importStudents(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                              InputStream body) throws IOException {
+        return studentImportService.importStudents(StudentFormat.of(contentType), body);
+    }
+
     @GetMapping("/quantity")
     public ResponseEntity<StudentQuantity> getStudentQuantity() {
         return ResponseEntity.ok(studentService.getStudentQuantity());
@@ -82,8 +156,28 @@ public class StudentController {
     }
 
     @GetMapping(params = "firstChar")
-    public Collection<String> getNamesStudentsStartWith(@RequestParam String firstChar) {
-        return studentService.getNamesStudentsStartWith(firstChar);
+    public Collection<String> getNamesStudentsStartWith(@RequestParam String firstChar,
+                                                        @RequestParam(required = false) Integer limit) {
+        return studentService.getNamesStudentsStartWith(firstChar, limit);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<String> autocomplete(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        return studentAutocompleteService.complete(prefix, limit);
+    }
+
+    @GetMapping("/stats")
+    public StudentStats getStats(@RequestParam(required = false) Integer minAge,
+                                 @RequestParam(required = false) Integer maxAge,
+                                 @RequestParam(required = false) Long facultyId) {
+        return studentStatsService.getStats(minAge, maxAge, facultyId);
+    }
+
+    @GetMapping("/stats/age-histogram")
+    public SortedMap<Integer, Long> getAgeHistogram(@RequestParam(required = false) Integer minAge,
+                                                    @RequestParam(required = false) Integer maxAge,
+                                                    @RequestParam(required = false) Long facultyId) {
+        return studentStatsService.getAgeHistogram(minAge, maxAge, facultyId);
     }
 
     @GetMapping("/age-average-stream")
@@ -1,6 +1,7 @@
 package ru.skypro.school.entity;
 
 import javax.persistence.*;
+import java.time.Instant;
 import java.util.Objects;
 
 @Entity
@@ -13,7 +14,8 @@ public class Avatar {
     private String filePath;
     private long fileSize;
     private String mediaType;
-    private byte[] data;
+    private String checksum;
+    private Instant uploadedAt;
 
     public long getId() {
         return id;
@@ -47,12 +49,20 @@ public class Avatar {
         this.mediaType = mediaType;
     }
 
-    public byte[] getData() {
-        return data;
+    public String getChecksum() {
+        return checksum;
     }
 
-    public void setData(byte[] data) {
-        this.data = data;
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public Instant getUploadedAt() {
+        return uploadedAt;
+    }
+
+    public void setUploadedAt(Instant uploadedAt) {
+        this.uploadedAt = uploadedAt;
     }
 
 
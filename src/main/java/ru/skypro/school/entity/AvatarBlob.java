@@ -0,0 +1,66 @@
+package ru.skypro.school.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Objects;
+
+/**
+ * Avatar content stored once per distinct SHA-256 hash and shared by every {@link Avatar} with that checksum.
+ * The bytes themselves are mapped separately by {@link AvatarBlobContent}, so loading a blob never reads them.
+ */
+@Entity
+@Table(name = "avatar_blobs")
+public class AvatarBlob {
+
+    @Id
+    private String hash;
+    private String filePath;
+    private long fileSize;
+    private int referenceCount;
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public int getReferenceCount() {
+        return referenceCount;
+    }
+
+    public void setReferenceCount(int referenceCount) {
+        this.referenceCount = referenceCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AvatarBlob that = (AvatarBlob) o;
+        return Objects.equals(hash, that.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hash);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.skypro.school.entity;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Objects;
+
+/**
+ * Read-only view of the {@code data} column of {@link AvatarBlob}. It is only fetched when the image itself
+ * is served from the database; the column is written by streaming, see {@code AvatarBlobDataRepository}.
+ */
+@Entity
+@Immutable
+@Table(name = "avatar_blobs")
+public class AvatarBlobContent {
+
+    @Id
+    private String hash;
+    private byte[] data;
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AvatarBlobContent that = (AvatarBlobContent) o;
+        return Objects.equals(hash, that.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hash);
+    }
+}
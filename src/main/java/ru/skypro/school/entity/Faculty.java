@@ -14,6 +14,9 @@ public class Faculty {
     private String name;
     private String color;
 
+    @Version
+    private long version;
+
     @OneToMany(mappedBy = "faculty")
     private List<Student> students;
 
@@ -25,6 +28,14 @@ public class Faculty {
         this.students = students;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public Long getId() {
         return id;
     }
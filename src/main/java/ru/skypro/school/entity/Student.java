@@ -7,20 +7,33 @@ import java.util.Objects;
 @Table(name = "students")
 public class Student {
 
+    /**
+     * Pooled sequence, so that Hibernate knows the ids before inserting and can batch the inserts.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "students_id_seq")
+    @SequenceGenerator(name = "students_id_seq", sequenceName = "students_id_seq", allocationSize = 50)
     private Long id;
 
     private String name;
     private int age;
 
-    @ManyToOne
+    /**
+     * Lazy, as is {@link #avatar}: the repository finders that need them fetch both with a join.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "faculty_id")
     private Faculty faculty;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     private Avatar avatar;
 
+    /**
+     * Incremented by every update, including the single-statement ones in {@code StudentRepository}.
+     */
+    @Version
+    private long version;
+
     public void setAvatar(Avatar avatar) {
         this.avatar = avatar;
     }
@@ -37,6 +50,14 @@ public class Student {
         this.faculty = faculty;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public Long getId() {
         return id;
     }
@@ -80,7 +101,7 @@ public class Student {
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", age=" + age +
-                ", faculty=" + faculty +
+                ", facultyId=" + (faculty == null ? null : faculty.getId()) +
                 '}';
     }
 }
@@ -0,0 +1,80 @@
+package ru.skypro.school.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Objects;
+
+/**
+ * One stripe of the number of students and the sum of their ages, kept up to date by the writes to
+ * {@link Student}, so that the totals never need a scan of the table. The totals are the sums over the
+ * {@link #STRIPES} rows, so that concurrent writers mostly update different rows.
+ */
+@Entity
+@Table(name = "student_aggregates")
+public class StudentAggregate {
+
+    /**
+     * The stripe holding the totals right after they are recomputed, the others being zero then.
+     */
+    public static final int ID = 1;
+
+    /**
+     * Number of rows, with ids from {@link #ID} on.
+     */
+    public static final int STRIPES = 16;
+
+    @Id
+    private int id = ID;
+    private long quantity;
+    private long ageSum;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(long quantity) {
+        this.quantity = quantity;
+    }
+
+    public long getAgeSum() {
+        return ageSum;
+    }
+
+    public void setAgeSum(long ageSum) {
+        this.ageSum = ageSum;
+    }
+
+    public double getAverageAge() {
+        return quantity == 0 ? 0 : (double) ageSum / quantity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StudentAggregate that = (StudentAggregate) o;
+        return id == that.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "StudentAggregate{" +
+                "quantity=" + quantity +
+                ", ageSum=" + ageSum +
+                '}';
+    }
+}
@@ -0,0 +1,61 @@
+package ru.skypro.school.event;
+
+/**
+ * Published when a faculty is created, updated or deleted. {@code name} and {@code color} are {@code null}
+ * for a deleted faculty.
+ */
+public class FacultyChangedEvent {
+
+    private final long id;
+    private final String name;
+    private final String color;
+    private final long version;
+    private final boolean deleted;
+
+    public FacultyChangedEvent(long id, String name, String color, long version) {
+        this(id, name, color, version, false);
+    }
+
+    private FacultyChangedEvent(long id, String name, String color, long version, boolean deleted) {
+        this.id = id;
+        this.name = name;
+        this.color = color;
+        this.version = version;
+        this.deleted = deleted;
+    }
+
+    public static FacultyChangedEvent deleted(long id) {
+        return new FacultyChangedEvent(id, null, null, 0, true);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "FacultyChangedEvent{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", color='" + color + '\'' +
+                ", version=" + version +
+                ", deleted=" + deleted +
+                '}';
+    }
+}
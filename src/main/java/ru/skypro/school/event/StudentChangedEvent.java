@@ -0,0 +1,79 @@
+package ru.skypro.school.event;
+
+import ru.skypro.school.entity.Student;
+
+/**
+ * Published when a student is created, updated or deleted, with the state after the change.
+ * {@code oldName} is {@code null} for a new student and {@code newName} is {@code null} for a deleted one,
+ * but also for a student without a name, so deletion is told by {@link #isDeleted()}.
+ */
+public class StudentChangedEvent {
+
+    private final long id;
+    private final String oldName;
+    private final String newName;
+    private final int age;
+    private final Long facultyId;
+    private final boolean deleted;
+
+    public StudentChangedEvent(long id, String oldName, String newName, int age, Long facultyId) {
+        this(id, oldName, newName, age, facultyId, false);
+    }
+
+    private StudentChangedEvent(long id, String oldName, String newName, int age, Long facultyId, boolean deleted) {
+        this.id = id;
+        this.oldName = oldName;
+        this.newName = newName;
+        this.age = age;
+        this.facultyId = facultyId;
+        this.deleted = deleted;
+    }
+
+    /**
+     * @param oldName name before the change, {@code null} if the student has just been created
+     */
+    public static StudentChangedEvent of(String oldName, Student student) {
+        Long facultyId = student.getFaculty() == null ? null : student.getFaculty().getId();
+        return new StudentChangedEvent(student.getId(), oldName, student.getName(), student.getAge(), facultyId);
+    }
+
+    public static StudentChangedEvent deleted(long id, String name) {
+        return new StudentChangedEvent(id, name, null, 0, null, true);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getOldName() {
+        return oldName;
+    }
+
+    public String getNewName() {
+        return newName;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public Long getFacultyId() {
+        return facultyId;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "StudentChangedEvent{" +
+                "id=" + id +
+                ", oldName='" + oldName + '\'' +
+                ", newName='" + newName + '\'' +
+                ", age=" + age +
+                ", facultyId=" + facultyId +
+                ", deleted=" + deleted +
+                '}';
+    }
+}
@@ -0,0 +1,37 @@
+package ru.skypro.school.event;
+
+import ru.skypro.school.record.StudentSelection;
+
+/**
+ * Published when a bulk update moves the selected students to another faculty. The selection is the one the
+ * update statement used, so listeners can apply the same change without knowing the affected ids.
+ */
+public class StudentsMovedEvent {
+
+    private final StudentSelection selection;
+    private final long facultyId;
+
+    public StudentsMovedEvent(StudentSelection selection, long facultyId) {
+        this.selection = selection;
+        this.facultyId = facultyId;
+    }
+
+    public StudentSelection getSelection() {
+        return selection;
+    }
+
+    public long getFacultyId() {
+        return facultyId;
+    }
+
+    @Override
+    public String toString() {
+        return "StudentsMovedEvent{" +
+                "ids=" + selection.getIds() +
+                ", minAge=" + selection.getMinAge() +
+                ", maxAge=" + selection.getMaxAge() +
+                ", fromFacultyId=" + selection.getFacultyId() +
+                ", facultyId=" + facultyId +
+                '}';
+    }
+}
@@ -0,0 +1,14 @@
+package ru.skypro.school.exception;
+
+public class AvatarTooLargeException extends RuntimeException {
+
+    private final long maxSize;
+
+    public AvatarTooLargeException(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+}
@@ -0,0 +1,4 @@
+package ru.skypro.school.exception;
+
+public class EmptyStudentSelectionException extends RuntimeException {
+}
@@ -25,6 +25,48 @@ public class ExceptionHandler {
                 .body(String.format("Факультет с id = %d не найден!", e.getId()));
     }
 
+    @org.springframework.web.bind.annotation.ExceptionHandler(StudentVersionConflictException.class)
+    public ResponseEntity<String> handleStudentVersionConflictException(StudentVersionConflictException e) {
+        logger.error("Student with id = {} is no longer at version {}!", e.getId(), e.getVersion());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(String.format("Студент с id = %d был изменён после версии %d!", e.getId(), e.getVersion()));
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(FacultyVersionConflictException.class)
+    public ResponseEntity<String> handleFacultyVersionConflictException(FacultyVersionConflictException e) {
+        logger.error("Faculty with id = {} is no longer at version {}!", e.getId(), e.getVersion());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(String.format("Факультет с id = %d был изменён после версии %d!", e.getId(), e.getVersion()));
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(EmptyStudentSelectionException.class)
+    public ResponseEntity<String> handleEmptyStudentSelectionException(EmptyStudentSelectionException e) {
+        logger.error("Neither student ids nor a filter were given!");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Не указаны ни id студентов, ни фильтр!");
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(NullIdException.class)
+    public ResponseEntity<String> handleNullIdException(NullIdException e) {
+        logger.error("List of ids contains null!");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Список id содержит пустое значение!");
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(TooManyIdsException.class)
+    public ResponseEntity<String> handleTooManyIdsException(TooManyIdsException e) {
+        logger.error("{} ids were requested, at most {} are allowed!", e.getCount(), e.getLimit());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(String.format("Запрошено %d id, допускается не более %d!", e.getCount(), e.getLimit()));
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(FacultySelfMergeException.class)
+    public ResponseEntity<String> handleFacultySelfMergeException(FacultySelfMergeException e) {
+        logger.error("Faculty with id = {} can't be merged into itself!", e.getId());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(String.format("Факультет с id = %d нельзя объединить с самим собой!", e.getId()));
+    }
+
     @org.springframework.web.bind.annotation.ExceptionHandler(StudentFacultyNotFoundException.class)
     public ResponseEntity<String> handleStudentFacultyNotFoundException(StudentFacultyNotFoundException e) {
         logger.error("Student with id = {} don't have faculty!", e.getId());
@@ -38,4 +80,39 @@ public class ExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
                 .body(String.format("Аватар с id = %d не найден!", e.getId()));
     }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(AvatarTooLargeException.class)
+    public ResponseEntity<String> handleAvatarTooLargeException(AvatarTooLargeException e) {
+        logger.error("Avatar is larger than {} bytes!", e.getMaxSize());
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(String.format("Размер аватара превышает %d байт!", e.getMaxSize()));
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(UnsupportedSortException.class)
+    public ResponseEntity<String> handleUnsupportedSortException(UnsupportedSortException e) {
+        logger.error("Sorting by {} is not supported!", e.getProperty());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(String.format("Сортировка по полю %s не поддерживается!", e.getProperty()));
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursorException(InvalidCursorException e) {
+        logger.error("Cursor {} is invalid!", e.getCursor());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(String.format("Некорректный курсор %s!", e.getCursor()));
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(UnsupportedFormatException.class)
+    public ResponseEntity<String> handleUnsupportedFormatException(UnsupportedFormatException e) {
+        logger.error("Format {} is not supported!", e.getFormat());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(String.format("Формат %s не поддерживается!", e.getFormat()));
+    }
+
+    @org.springframework.web.bind.annotation.ExceptionHandler(InvalidBatchOperationException.class)
+    public ResponseEntity<String> handleInvalidBatchOperationException(InvalidBatchOperationException e) {
+        logger.error("Batch operation {} is invalid: {}", e.getIndex(), e.getReason());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(String.format("Операция %d: %s!", e.getIndex(), e.getReason()));
+    }
 }
@@ -0,0 +1,13 @@
+package ru.skypro.school.exception;
+
+public class FacultySelfMergeException extends RuntimeException {
+    private final long id;
+
+    public FacultySelfMergeException(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
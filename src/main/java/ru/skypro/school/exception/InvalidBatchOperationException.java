@@ -0,0 +1,20 @@
+package ru.skypro.school.exception;
+
+public class InvalidBatchOperationException extends RuntimeException {
+
+    private final int index;
+    private final String reason;
+
+    public InvalidBatchOperationException(int index, String reason) {
+        this.index = index;
+        this.reason = reason;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
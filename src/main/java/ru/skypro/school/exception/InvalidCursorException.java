@@ -0,0 +1,14 @@
+package ru.skypro.school.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    private final String cursor;
+
+    public InvalidCursorException(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.skypro.school.exception;
+
+public class StudentVersionConflictException extends RuntimeException {
+    private final long id;
+    private final long version;
+
+    public StudentVersionConflictException(long id, long version) {
+        this.id = id;
+        this.version = version;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.skypro.school.exception;
+
+public class TooManyIdsException extends RuntimeException {
+
+    private final int count;
+    private final int limit;
+
+    public TooManyIdsException(int count, int limit) {
+        this.count = count;
+        this.limit = limit;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
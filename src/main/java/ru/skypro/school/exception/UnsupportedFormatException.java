@@ -0,0 +1,14 @@
+package ru.skypro.school.exception;
+
+public class UnsupportedFormatException extends RuntimeException {
+
+    private final String format;
+
+    public UnsupportedFormatException(String format) {
+        this.format = format;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+}
@@ -0,0 +1,14 @@
+package ru.skypro.school.exception;
+
+public class UnsupportedSortException extends RuntimeException {
+
+    private final String property;
+
+    public UnsupportedSortException(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+}
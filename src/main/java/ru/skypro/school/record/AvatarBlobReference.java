@@ -0,0 +1,11 @@
+package ru.skypro.school.record;
+
+public interface AvatarBlobReference {
+
+    String getFilePath();
+
+    /**
+     * {@code true} if the blob was created by this reference, {@code false} if it already existed.
+     */
+    boolean getInserted();
+}
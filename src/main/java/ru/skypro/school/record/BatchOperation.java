@@ -0,0 +1,109 @@
+package ru.skypro.school.record;
+
+/**
+ * One write of a {@code /batch} request. The id fields take a number, or {@code $ref} for the id created by an
+ * earlier operation with that {@code ref}.
+ */
+public class BatchOperation {
+
+    private Type type;
+    private String ref;
+    private String id;
+    private Long version;
+    private String facultyId;
+    private String avatarId;
+    private StudentRecord student;
+    private FacultyRecord faculty;
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Name under which the id of the student or faculty written by this operation can be referenced later.
+     */
+    public String getRef() {
+        return ref;
+    }
+
+    public void setRef(String ref) {
+        this.ref = ref;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * For the deletes, as the {@code version} parameter of the {@code DELETE} endpoints.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getFacultyId() {
+        return facultyId;
+    }
+
+    public void setFacultyId(String facultyId) {
+        this.facultyId = facultyId;
+    }
+
+    public String getAvatarId() {
+        return avatarId;
+    }
+
+    public void setAvatarId(String avatarId) {
+        this.avatarId = avatarId;
+    }
+
+    public StudentRecord getStudent() {
+        return student;
+    }
+
+    public void setStudent(StudentRecord student) {
+        this.student = student;
+    }
+
+    public FacultyRecord getFaculty() {
+        return faculty;
+    }
+
+    public void setFaculty(FacultyRecord faculty) {
+        this.faculty = faculty;
+    }
+
+    /**
+     * The writes of {@code /students} and {@code /faculties} a batch can contain, with the fields each one uses.
+     */
+    public enum Type {
+        /** {@code faculty} */
+        CREATE_FACULTY,
+        /** {@code id}, {@code faculty} */
+        UPDATE_FACULTY,
+        /** {@code id}, optional {@code version} */
+        DELETE_FACULTY,
+        /** {@code student} */
+        CREATE_STUDENT,
+        /** {@code id}, {@code student} */
+        UPDATE_STUDENT,
+        /** {@code id}, optional {@code version} */
+        DELETE_STUDENT,
+        /** {@code id}, {@code facultyId} */
+        SET_STUDENT_FACULTY,
+        /** {@code id}, {@code avatarId} */
+        SET_STUDENT_AVATAR
+    }
+}
@@ -0,0 +1,54 @@
+package ru.skypro.school.record;
+
+public class BatchResult {
+
+    private int index;
+    private String ref;
+    private Long id;
+    /**
+     * The {@link StudentRecord} or {@link FacultyRecord} the operation's endpoint would have answered.
+     */
+    private Object result;
+
+    public BatchResult() {
+    }
+
+    public BatchResult(int index, String ref, Long id, Object result) {
+        this.index = index;
+        this.ref = ref;
+        this.id = id;
+        this.result = result;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    public void setRef(String ref) {
+        this.ref = ref;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public void setResult(Object result) {
+        this.result = result;
+    }
+}
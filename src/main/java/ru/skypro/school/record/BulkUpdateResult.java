@@ -0,0 +1,21 @@
+package ru.skypro.school.record;
+
+public class BulkUpdateResult {
+
+    private long updated;
+
+    public BulkUpdateResult() {
+    }
+
+    public BulkUpdateResult(long updated) {
+        this.updated = updated;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.skypro.school.record;
+
+import java.util.List;
+
+public class CursorPage<T> {
+
+    private List<T> content;
+    private String nextCursor;
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    /**
+     * @return value of {@code after} for the next page, or {@code null} on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
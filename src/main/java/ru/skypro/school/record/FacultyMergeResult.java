@@ -0,0 +1,34 @@
+package ru.skypro.school.record;
+
+public class FacultyMergeResult {
+
+    private long movedStudents;
+    /**
+     * The faculty that was merged into the other one and deleted.
+     */
+    private FacultyRecord removedFaculty;
+
+    public FacultyMergeResult() {
+    }
+
+    public FacultyMergeResult(long movedStudents, FacultyRecord removedFaculty) {
+        this.movedStudents = movedStudents;
+        this.removedFaculty = removedFaculty;
+    }
+
+    public long getMovedStudents() {
+        return movedStudents;
+    }
+
+    public void setMovedStudents(long movedStudents) {
+        this.movedStudents = movedStudents;
+    }
+
+    public FacultyRecord getRemovedFaculty() {
+        return removedFaculty;
+    }
+
+    public void setRemovedFaculty(FacultyRecord removedFaculty) {
+        this.removedFaculty = removedFaculty;
+    }
+}
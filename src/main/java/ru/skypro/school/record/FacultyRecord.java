@@ -7,6 +7,10 @@ public class FacultyRecord {
     private long id;
     private String name;
     private String color;
+    /**
+     * Optimistic lock, as in {@link StudentRecord}; left out of {@code equals}.
+     */
+    private Long version;
 
     public long getId() {
         return id;
@@ -32,6 +36,14 @@ public class FacultyRecord {
         this.color = color;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,12 @@
+package ru.skypro.school.record;
+
+public interface FacultyRow {
+
+    long getId();
+
+    String getName();
+
+    String getColor();
+
+    long getVersion();
+}
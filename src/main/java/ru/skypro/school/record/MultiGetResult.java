@@ -0,0 +1,79 @@
+package ru.skypro.school.record;
+
+import ru.skypro.school.exception.NullIdException;
+import ru.skypro.school.exception.TooManyIdsException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Answer to a lookup of several ids: the records found, in the order of the requested ids, and the ids
+ * that were not found. A repeated id is answered once.
+ */
+public class MultiGetResult<T> {
+
+    /**
+     * Largest number of ids, repeated ones included, that one lookup accepts.
+     */
+    public static final int MAX_IDS = 10_000;
+
+    private List<T> found;
+    private List<Long> missingIds;
+
+    public MultiGetResult() {
+    }
+
+    public MultiGetResult(List<T> found, List<Long> missingIds) {
+        this.found = found;
+        this.missingIds = missingIds;
+    }
+
+    /**
+     * Rejects lists of more than {@link #MAX_IDS} ids or containing {@code null}.
+     */
+    public static void checkIds(Collection<Long> ids) {
+        if (ids.size() > MAX_IDS) {
+            throw new TooManyIdsException(ids.size(), MAX_IDS);
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new NullIdException();
+        }
+    }
+
+    /**
+     * @param byId the records found, by id
+     */
+    public static <T> MultiGetResult<T> of(Collection<Long> ids, Map<Long, T> byId) {
+        List<T> found = new ArrayList<>(byId.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            T record = byId.get(id);
+            if (record == null) {
+                missingIds.add(id);
+            } else {
+                found.add(record);
+            }
+        }
+        return new MultiGetResult<>(found, missingIds);
+    }
+
+    public List<T> getFound() {
+        return found;
+    }
+
+    public void setFound(List<T> found) {
+        this.found = found;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.skypro.school.record;
+
+import java.util.Objects;
+
+public class SearchHit {
+
+    public enum Type {
+        STUDENT, FACULTY
+    }
+
+    private Type type;
+    private long id;
+    private String name;
+    /**
+     * The matched text: the name, or the color of a faculty.
+     */
+    private String match;
+
+    public SearchHit() {
+    }
+
+    public SearchHit(Type type, long id, String name, String match) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.match = match;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getMatch() {
+        return match;
+    }
+
+    public void setMatch(String match) {
+        this.match = match;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SearchHit searchHit = (SearchHit) o;
+        return id == searchHit.id && type == searchHit.type && Objects.equals(name, searchHit.name)
+                && Objects.equals(match, searchHit.match);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, id, name, match);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchHit{" +
+                "type=" + type +
+                ", id=" + id +
+                ", name='" + name + '\'' +
+                ", match='" + match + '\'' +
+                '}';
+    }
+}
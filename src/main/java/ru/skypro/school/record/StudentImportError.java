@@ -0,0 +1,31 @@
+package ru.skypro.school.record;
+
+public class StudentImportError {
+
+    private long line;
+    private String message;
+
+    public StudentImportError() {
+    }
+
+    public StudentImportError(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.skypro.school.record;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StudentImportResult {
+
+    private long imported;
+    private long failed;
+    private List<StudentImportError> errors = new ArrayList<>();
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * @return errors of the first failed rows; {@link #getFailed()} counts all of them
+     */
+    public List<StudentImportError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<StudentImportError> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,8 @@
+package ru.skypro.school.record;
+
+public interface StudentName {
+
+    long getId();
+
+    String getName();
+}
@@ -11,6 +11,12 @@ public class StudentRecord {
 
     private AvatarRecord avatarRecord;
 
+    /**
+     * Version of the row when it was read. Optional in updates: when given, the update fails
+     * if the student has been changed since.
+     */
+    private Long version;
+
     public AvatarRecord getAvatarRecord() {
         return avatarRecord;
     }
@@ -51,6 +57,14 @@ public class StudentRecord {
         this.age = age;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,30 @@
+package ru.skypro.school.record;
+
+/**
+ * A student row as returned by a single-statement update or delete, with the faculty and avatar columns
+ * needed for the response. {@code oldName} and {@code oldAge} hold the values before the statement.
+ */
+public interface StudentRow {
+
+    long getId();
+
+    String getOldName();
+
+    int getOldAge();
+
+    String getName();
+
+    int getAge();
+
+    long getVersion();
+
+    Long getFacultyId();
+
+    String getFacultyName();
+
+    String getFacultyColor();
+
+    Long getAvatarId();
+
+    String getAvatarMediaType();
+}
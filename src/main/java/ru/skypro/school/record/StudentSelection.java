@@ -0,0 +1,61 @@
+package ru.skypro.school.record;
+
+import java.util.List;
+
+/**
+ * Students picked for a bulk operation: either by {@code ids}, or by a filter on age and current faculty
+ * whose unset fields match any student. At least one of them must be given.
+ */
+public class StudentSelection {
+
+    private List<Long> ids;
+    private Integer minAge;
+    private Integer maxAge;
+    private Long facultyId;
+
+    public StudentSelection() {
+    }
+
+    public StudentSelection(List<Long> ids, Integer minAge, Integer maxAge, Long facultyId) {
+        this.ids = ids;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.facultyId = facultyId;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public Integer getMinAge() {
+        return minAge;
+    }
+
+    public void setMinAge(Integer minAge) {
+        this.minAge = minAge;
+    }
+
+    public Integer getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Integer maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public Long getFacultyId() {
+        return facultyId;
+    }
+
+    public void setFacultyId(Long facultyId) {
+        this.facultyId = facultyId;
+    }
+
+    public boolean isEmpty() {
+        return ids == null && minAge == null && maxAge == null && facultyId == null;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.skypro.school.record;
+
+import java.util.Objects;
+
+public class StudentStats {
+
+    private long count;
+    private double averageAge;
+    /**
+     * {@code null} when no student matches, as is {@code maxAge}.
+     */
+    private Integer minAge;
+    private Integer maxAge;
+
+    public StudentStats() {
+    }
+
+    public StudentStats(long count, double averageAge, Integer minAge, Integer maxAge) {
+        this.count = count;
+        this.averageAge = averageAge;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getAverageAge() {
+        return averageAge;
+    }
+
+    public void setAverageAge(double averageAge) {
+        this.averageAge = averageAge;
+    }
+
+    public Integer getMinAge() {
+        return minAge;
+    }
+
+    public void setMinAge(Integer minAge) {
+        this.minAge = minAge;
+    }
+
+    public Integer getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Integer maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StudentStats that = (StudentStats) o;
+        return count == that.count && Double.compare(that.averageAge, averageAge) == 0
+                && Objects.equals(minAge, that.minAge) && Objects.equals(maxAge, that.maxAge);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, averageAge, minAge, maxAge);
+    }
+}
@@ -0,0 +1,10 @@
+package ru.skypro.school.record;
+
+public interface StudentStatsRow {
+
+    long getId();
+
+    int getAge();
+
+    Long getFacultyId();
+}
@@ -0,0 +1,11 @@
+package ru.skypro.school.repository;
+
+import java.io.InputStream;
+
+public interface AvatarBlobDataRepository {
+
+    /**
+     * Streams the blob content into the {@code data} column without materializing it on the heap.
+     */
+    void updateData(String hash, InputStream data, long length);
+}
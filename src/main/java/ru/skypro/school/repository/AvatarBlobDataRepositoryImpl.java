@@ -0,0 +1,22 @@
+package ru.skypro.school.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.InputStream;
+
+public class AvatarBlobDataRepositoryImpl implements AvatarBlobDataRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AvatarBlobDataRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void updateData(String hash, InputStream data, long length) {
+        jdbcTemplate.update("UPDATE avatar_blobs SET data = ? WHERE hash = ?", ps -> {
+            ps.setBinaryStream(1, data, length);
+            ps.setString(2, hash);
+        });
+    }
+}
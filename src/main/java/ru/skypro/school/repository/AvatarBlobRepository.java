@@ -0,0 +1,36 @@
+package ru.skypro.school.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import ru.skypro.school.entity.AvatarBlob;
+import ru.skypro.school.entity.AvatarBlobContent;
+import ru.skypro.school.record.AvatarBlobReference;
+
+import java.util.Optional;
+
+@Repository
+public interface AvatarBlobRepository extends JpaRepository<AvatarBlob, String>, AvatarBlobDataRepository {
+
+    /**
+     * Creates the blob or takes one more reference to the existing one in a single statement,
+     * so concurrent uploads of the same content never race. {@code xmax = 0} only holds for inserted rows.
+     */
+    @Query(value = "INSERT INTO avatar_blobs (hash, file_path, file_size, reference_count) " +
+            "VALUES (:hash, :filePath, :fileSize, 1) " +
+            "ON CONFLICT (hash) DO UPDATE SET reference_count = avatar_blobs.reference_count + 1 " +
+            "RETURNING file_path as filePath, (xmax = 0) as inserted", nativeQuery = true)
+    AvatarBlobReference addReference(String hash, String filePath, long fileSize);
+
+    @Modifying
+    @Query("UPDATE AvatarBlob b SET b.referenceCount = b.referenceCount - 1 WHERE b.hash = :hash")
+    int releaseReference(String hash);
+
+    @Modifying
+    @Query("DELETE FROM AvatarBlob b WHERE b.hash = :hash AND b.referenceCount <= 0")
+    int deleteIfUnreferenced(String hash);
+
+    @Query("SELECT c FROM AvatarBlobContent c WHERE c.hash = :hash")
+    Optional<AvatarBlobContent> findContent(String hash);
+}
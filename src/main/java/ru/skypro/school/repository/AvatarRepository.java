@@ -1,9 +1,19 @@
 package ru.skypro.school.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.skypro.school.entity.Avatar;
 
 @Repository
 public interface AvatarRepository extends JpaRepository<Avatar, Long> {
+
+    @Modifying
+    @Query(value = "UPDATE students SET avatar_id = NULL WHERE avatar_id = :id", nativeQuery = true)
+    int detachFromStudents(long id);
+
+    Slice<Avatar> findByIdGreaterThanOrderById(long id, Pageable pageable);
 }
@@ -1,15 +1,43 @@
 package ru.skypro.school.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.record.FacultyRow;
 
 import java.util.Collection;
+import java.util.Optional;
 
 @Repository
 public interface FacultyRepository extends JpaRepository<Faculty, Long> {
 
+    /**
+     * Passed as {@code version} to {@link #updateReturning} and {@link #deleteReturning} to skip the version check.
+     */
+    long ANY_VERSION = -1;
+
     Collection<Faculty> findByColor(String color);
 
     Collection<Faculty> findByNameLikeIgnoreCaseOrColorLikeIgnoreCase(String name, String color);
+
+    /**
+     * @return the updated row, or empty if there is no such faculty or its version differs from {@code version}
+     */
+    @Transactional
+    @Query(value = "UPDATE faculties SET name = :name, color = :color, version = version + 1 " +
+            "WHERE id = :id AND (:version = " + ANY_VERSION + " OR version = :version) " +
+            "RETURNING id AS \"id\", name AS \"name\", color AS \"color\", version AS \"version\"",
+            nativeQuery = true)
+    Optional<FacultyRow> updateReturning(long id, String name, String color, long version);
+
+    /**
+     * @return the deleted row, or empty if there is no such faculty or its version differs from {@code version}
+     */
+    @Transactional
+    @Query(value = "DELETE FROM faculties WHERE id = :id AND (:version = " + ANY_VERSION + " OR version = :version) " +
+            "RETURNING id AS \"id\", name AS \"name\", color AS \"color\", version AS \"version\"",
+            nativeQuery = true)
+    Optional<FacultyRow> deleteReturning(long id, long version);
 }
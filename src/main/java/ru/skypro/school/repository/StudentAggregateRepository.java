@@ -0,0 +1,43 @@
+package ru.skypro.school.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import ru.skypro.school.entity.StudentAggregate;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+public interface StudentAggregateRepository extends JpaRepository<StudentAggregate, Integer> {
+
+    /**
+     * Applies a delta to one stripe in place, so that the writers of that stripe serialize on its row instead of
+     * overwriting each other.
+     */
+    @Modifying
+    @Query("UPDATE StudentAggregate a SET a.quantity = a.quantity + :quantity, a.ageSum = a.ageSum + :ageSum " +
+            "WHERE a.id = :stripe")
+    int add(int stripe, long quantity, long ageSum);
+
+    /**
+     * Locks every stripe, in id order like any other transaction locking more than one.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM StudentAggregate a ORDER BY a.id")
+    List<StudentAggregate> lockAll();
+
+    /**
+     * Recomputes the totals from the students table into the stripe {@link StudentAggregate#ID} and zeroes the
+     * others. Run it while holding {@link #lockAll()}: every writer that has already applied its delta has then
+     * committed, and every other one waits for this transaction.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE student_aggregates SET " +
+            "quantity = CASE WHEN id = " + StudentAggregate.ID + " THEN (SELECT COUNT(*) FROM students) ELSE 0 END, " +
+            "age_sum = CASE WHEN id = " + StudentAggregate.ID + " THEN (SELECT COALESCE(SUM(age), 0) FROM students) ELSE 0 END",
+            nativeQuery = true)
+    int recompute();
+}
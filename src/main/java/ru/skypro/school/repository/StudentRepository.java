@@ -1,19 +1,82 @@
 package ru.skypro.school.repository;
 
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.school.configuration.CacheConfiguration;
+import ru.skypro.school.entity.Faculty;
 import ru.skypro.school.entity.Student;
 import ru.skypro.school.record.StudentAverageAge;
+import ru.skypro.school.record.StudentName;
 import ru.skypro.school.record.StudentQuantity;
+import ru.skypro.school.record.StudentRow;
+import ru.skypro.school.record.StudentStatsRow;
 
+import javax.persistence.QueryHint;
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface StudentRepository extends JpaRepository<Student, Long> {
 
+    int EXPORT_FETCH_SIZE = 1000;
+
+    /**
+     * Passed as {@code version} to {@link #updateReturning} and {@link #deleteReturning} to skip the version check.
+     */
+    long ANY_VERSION = -1;
+
+    /**
+     * Passed as {@code fromFacultyId} to the bulk moves below to select students of any faculty.
+     */
+    long ANY_FACULTY = -1;
+
+    /**
+     * Condition of the bulk moves: the age range and current faculty match, and the student is not at the target
+     * faculty yet, so that only students actually moved are counted and get a new version.
+     */
+    String MOVE_CONDITION = "s.age BETWEEN :minAge AND :maxAge " +
+            "AND (s.faculty.id = :fromFacultyId OR :fromFacultyId = " + ANY_FACULTY + ") " +
+            "AND (s.faculty IS NULL OR s.faculty <> :faculty)";
+
+    /**
+     * Columns returned by the single-statement writes besides the previous name and age, see {@link StudentRow}.
+     */
+    String ROW_COLUMNS = "s.name AS \"name\", s.age AS \"age\", s.version AS \"version\", " +
+            "s.faculty_id AS \"facultyId\", " +
+            "(SELECT f.name FROM faculties f WHERE f.id = s.faculty_id) AS \"facultyName\", " +
+            "(SELECT f.color FROM faculties f WHERE f.id = s.faculty_id) AS \"facultyColor\", " +
+            "s.avatar_id AS \"avatarId\", " +
+            "(SELECT a.media_type FROM avatars a WHERE a.id = s.avatar_id) AS \"avatarMediaType\"";
+
+    /**
+     * Loads the student with its faculty and avatar metadata in one statement, as do the other finders below
+     * annotated with the same {@link EntityGraph}.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    Optional<Student> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    List<Student> findAll();
+
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
+    List<Student> findByIdIn(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
     Collection<Student> findByAge(Integer age);
 
+    @EntityGraph(attributePaths = {"faculty", "avatar"})
     Collection<Student> findByAgeBetween(Integer min, Integer max);
 
     @Query(value = "SELECT COUNT(*) as studentQuantity FROM students", nativeQuery = true)
@@ -22,6 +85,135 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
     @Query(value = "SELECT AVG(age) as studentAverageAge FROM students", nativeQuery = true)
     StudentAverageAge getStudentAverageAge();
 
-    @Query(value = "SELECT * FROM students ORDER BY id DESC LIMIT :size ", nativeQuery = true)
-    Collection<Student> getLastStudents(Integer size);
+    @Query("SELECT s FROM Student s LEFT JOIN FETCH s.faculty LEFT JOIN FETCH s.avatar ORDER BY s.id DESC")
+    List<Student> getLastStudents(Pageable pageable);
+
+    /**
+     * Selects names in {@code [from, to)} compared under the {@code "C"} collation, i.e. by code point, in which
+     * that range holds exactly the names starting with the prefix {@code from}; {@code students_name_c_index}
+     * is range-scanned in the same order, so only matching rows are read. Under a linguistic collation the range
+     * could be wider or narrower than the prefix: there {@code "a-z"} sorts after {@code "a."}. The {@code LIKE},
+     * whose pattern escapes wildcards with {@code \}, keeps the result exact where {@code to} is not a valid
+     * bound, e.g. around surrogates.
+     */
+    @Query(value = "SELECT name FROM students " +
+            "WHERE name COLLATE \"C\" >= :from AND name COLLATE \"C\" < :to AND name LIKE :pattern ESCAPE '\\' " +
+            "ORDER BY name COLLATE \"C\"", nativeQuery = true)
+    List<String> findNamesInRange(String from, String to, String pattern, Pageable pageable);
+
+    /**
+     * All names in the order of {@link #findNamesInRange(String, String, String, Pageable)}.
+     */
+    @Query(value = "SELECT name FROM students ORDER BY name COLLATE \"C\"", nativeQuery = true)
+    List<String> findNames(Pageable pageable);
+
+    /**
+     * Fetches one page of students together with their faculty and avatar metadata in a single query.
+     * No count query is issued, see {@link #countByFacultyId(Long)}.
+     */
+    @Query("SELECT s FROM Student s JOIN FETCH s.faculty f LEFT JOIN FETCH s.avatar WHERE f.id = :facultyId")
+    List<Student> findByFacultyId(Long facultyId, Pageable pageable);
+
+    @Cacheable(cacheNames = CacheConfiguration.FACULTY_STUDENT_COUNTS)
+    long countByFacultyId(Long facultyId);
+
+    @Query("SELECT s FROM Student s LEFT JOIN FETCH s.faculty LEFT JOIN FETCH s.avatar WHERE s.id > :id ORDER BY s.id")
+    Slice<Student> findByIdGreaterThan(long id, Pageable pageable);
+
+    /**
+     * Reads all students through a cursor, {@link #EXPORT_FETCH_SIZE} rows per round trip.
+     * Must be consumed and closed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("SELECT s FROM Student s LEFT JOIN FETCH s.faculty LEFT JOIN FETCH s.avatar ORDER BY s.id")
+    Stream<Student> streamAll();
+
+    /**
+     * Reads the id and name of every student through a cursor. Must be consumed and closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query("SELECT s.id AS id, s.name AS name FROM Student s")
+    Stream<StudentName> streamNames();
+
+    /**
+     * Reads the id, age and faculty id of every student in id order through a cursor.
+     * Must be consumed and closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query("SELECT s.id AS id, s.age AS age, f.id AS facultyId FROM Student s LEFT JOIN s.faculty f ORDER BY s.id")
+    Stream<StudentStatsRow> streamStatsRows();
+
+    /**
+     * Sets the name and age and bumps the version in one statement, returning the row with its previous name and age.
+     * The sub-select locks the row so that the previous values and the version check see the latest committed row.
+     *
+     * @return empty if there is no such student, or if its version differs from {@code version}
+     */
+    @Transactional
+    @Query(value = "UPDATE students s SET name = :name, age = :age, version = s.version + 1 " +
+            "FROM (SELECT id, name, age, version FROM students WHERE id = :id FOR UPDATE) prev " +
+            "WHERE s.id = prev.id AND (:version = " + ANY_VERSION + " OR prev.version = :version) " +
+            "RETURNING s.id AS \"id\", prev.name AS \"oldName\", prev.age AS \"oldAge\", " + ROW_COLUMNS,
+            nativeQuery = true)
+    Optional<StudentRow> updateReturning(long id, String name, int age, long version);
+
+    /**
+     * Deletes the student in one statement, returning the deleted row.
+     *
+     * @return empty if there is no such student, or if its version differs from {@code version}
+     */
+    @Transactional
+    @Query(value = "DELETE FROM students s WHERE s.id = :id AND (:version = " + ANY_VERSION + " OR s.version = :version) " +
+            "RETURNING s.id AS \"id\", s.name AS \"oldName\", s.age AS \"oldAge\", " + ROW_COLUMNS,
+            nativeQuery = true)
+    Optional<StudentRow> deleteReturning(long id, long version);
+
+    /**
+     * Points the student at the faculty in one statement. Joining {@code faculties} makes a missing faculty
+     * match no row rather than leave a dangling id.
+     *
+     * @return empty if the student or the faculty does not exist
+     */
+    @Transactional
+    @Query(value = "UPDATE students s SET faculty_id = f.id, version = s.version + 1 FROM faculties f " +
+            "WHERE s.id = :id AND f.id = :facultyId " +
+            "RETURNING s.id AS \"id\", s.name AS \"oldName\", s.age AS \"oldAge\", " + ROW_COLUMNS,
+            nativeQuery = true)
+    Optional<StudentRow> updateFacultyReturning(long id, long facultyId);
+
+    /**
+     * Points the student at the avatar in one statement, which reads only the key of the avatar row.
+     *
+     * @return empty if the student or the avatar does not exist
+     */
+    @Transactional
+    @Query(value = "UPDATE students s SET avatar_id = a.id, version = s.version + 1 FROM avatars a " +
+            "WHERE s.id = :id AND a.id = :avatarId " +
+            "RETURNING s.id AS \"id\", s.name AS \"oldName\", s.age AS \"oldAge\", " + ROW_COLUMNS,
+            nativeQuery = true)
+    Optional<StudentRow> updateAvatarReturning(long id, long avatarId);
+
+    /**
+     * Moves the listed students matching {@link #MOVE_CONDITION} to the faculty in one statement.
+     *
+     * @return the number of students moved
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Student s SET s.faculty = :faculty, s.version = s.version + 1 " +
+            "WHERE s.id IN :ids AND " + MOVE_CONDITION)
+    int moveToFaculty(Collection<Long> ids, int minAge, int maxAge, long fromFacultyId, Faculty faculty);
+
+    /**
+     * Moves all students matching {@link #MOVE_CONDITION} to the faculty in one statement.
+     *
+     * @return the number of students moved
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Student s SET s.faculty = :faculty, s.version = s.version + 1 WHERE " + MOVE_CONDITION)
+    int moveToFaculty(int minAge, int maxAge, long fromFacultyId, Faculty faculty);
 }
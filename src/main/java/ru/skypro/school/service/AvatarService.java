@@ -1,25 +1,52 @@
 package ru.skypro.school.service;
 
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.school.component.AvatarCache;
+import ru.skypro.school.component.ByteBufferPool;
+import ru.skypro.school.component.CursorCodec;
 import ru.skypro.school.component.RecordMapper;
 import ru.skypro.school.entity.Avatar;
+import ru.skypro.school.entity.AvatarBlobContent;
 import ru.skypro.school.exception.AvatarNotFoundException;
+import ru.skypro.school.exception.AvatarTooLargeException;
+import ru.skypro.school.record.AvatarBlobReference;
+import ru.skypro.school.record.AvatarCacheStats;
 import ru.skypro.school.record.AvatarRecord;
+import ru.skypro.school.record.CursorPage;
+import ru.skypro.school.repository.AvatarBlobRepository;
 import ru.skypro.school.repository.AvatarRepository;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,47 +56,253 @@ public class AvatarService {
 
     @Value("${path.to.avatars.folder}")
     private String avatarsFolder;
+    @Value("${avatar.upload.max-size}")
+    private DataSize maxUploadSize;
     private final AvatarRepository avatarRepository;
+    private final AvatarBlobRepository avatarBlobRepository;
     private final RecordMapper recordMapper;
+    private final ByteBufferPool byteBufferPool;
+    private final AvatarVariantService avatarVariantService;
+    private final AvatarCache avatarCache;
+    private final CursorCodec cursorCodec;
+    private final TransactionTemplate transactionTemplate;
 
-    public AvatarService(AvatarRepository avatarRepository, RecordMapper recordMapper) {
+    public AvatarService(AvatarRepository avatarRepository, AvatarBlobRepository avatarBlobRepository,
+                         RecordMapper recordMapper, ByteBufferPool byteBufferPool,
+                         AvatarVariantService avatarVariantService, AvatarCache avatarCache,
+                         CursorCodec cursorCodec, PlatformTransactionManager transactionManager) {
         this.avatarRepository = avatarRepository;
+        this.avatarBlobRepository = avatarBlobRepository;
         this.recordMapper = recordMapper;
+        this.byteBufferPool = byteBufferPool;
+        this.avatarVariantService = avatarVariantService;
+        this.avatarCache = avatarCache;
+        this.cursorCodec = cursorCodec;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    public void upload(MultipartFile avatarFile) throws IOException {
+    /**
+     * Stores the upload once per distinct content. A duplicate only takes one more reference
+     * to the existing blob, so neither the file nor the data column is written again.
+     * <p>
+     * The upload is copied and hashed into a temporary file before the transaction starts, so that a slow client
+     * never holds a connection; the transaction only takes the reference and writes the data and the metadata.
+     * <p>
+     * Every blob gets a file name of its own, so that deleting the files of a released blob after commit never
+     * removes those of a new blob with the same content. The file is removed again if the upload is rolled back.
+     */
+    public AvatarRecord upload(MultipartFile avatarFile) throws IOException {
         logger.info("Was invoked method to upload avatar");
-        Avatar avatar = createAvatar(avatarFile);
         String extension = Optional.ofNullable(avatarFile.getOriginalFilename())
                 .map(a -> a.substring(a.lastIndexOf(".")))
                 .orElse("");
 
-        Path path = Paths.get(avatarsFolder).resolve(avatar.getId() + extension);
-        logger.debug("File path for avatar is {}", path.toString());
-        Files.createDirectories(path.getParent());
-        Files.write(path, avatar.getData());
-        avatar.setFilePath(path.toString());
-        avatarRepository.save(avatar);
+        Path folder = Paths.get(avatarsFolder);
+        Files.createDirectories(folder);
+        Path tempFile = Files.createTempFile(folder, "upload-", extension);
+        try {
+            Avatar avatar = new Avatar();
+            avatar.setMediaType(avatarFile.getContentType());
+            avatar.setUploadedAt(Instant.now());
+            copyToFile(avatarFile.getInputStream(), tempFile, avatar);
+
+            Path path = folder.resolve(avatar.getChecksum() + "-" + UUID.randomUUID() + extension);
+            return transactionTemplate.execute(status -> {
+                try {
+                    return store(avatar, tempFile, path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Takes a reference to the blob of the copied upload, moving the file to {@code path} if the blob is new,
+     * and saves the avatar. Runs in the upload transaction.
+     */
+    private AvatarRecord store(Avatar avatar, Path tempFile, Path path) throws IOException {
+        AvatarBlobReference blob = avatarBlobRepository.addReference(avatar.getChecksum(), path.toString(),
+                avatar.getFileSize());
+        if (blob.getInserted()) {
+            logger.debug("File path for avatar is {}", path);
+            Files.move(tempFile, path);
+            afterRollback(() -> deleteFiles(path));
+            try (InputStream data = Files.newInputStream(path)) {
+                avatarBlobRepository.updateData(avatar.getChecksum(), data, avatar.getFileSize());
+            }
+            afterCommit(() -> avatarVariantService.scheduleVariants(path));
+        } else {
+            logger.debug("Avatar with checksum {} is already stored in {}", avatar.getChecksum(), blob.getFilePath());
+        }
+        avatar.setFilePath(blob.getFilePath());
+        return recordMapper.toRecord(avatarRepository.save(avatar));
+    }
+
+    /**
+     * Copies the upload through a pooled buffer, counting its size and checksum on the way,
+     * and fails as soon as the configured maximum size is exceeded.
+     */
+    private void copyToFile(InputStream in, Path target, Avatar avatar) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = byteBufferPool.acquire();
+        long size = 0;
+        try (in; FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] array = buffer.array();
+            int read;
+            while ((read = in.read(array, 0, array.length)) != -1) {
+                size += read;
+                if (size > maxUploadSize.toBytes()) {
+                    throw new AvatarTooLargeException(maxUploadSize.toBytes());
+                }
+                digest.update(array, 0, read);
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } finally {
+            byteBufferPool.release(buffer);
+        }
+        avatar.setFileSize(size);
+        avatar.setChecksum(toHex(digest.digest()));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
     }
 
-    private Avatar createAvatar(MultipartFile avatarFile) throws IOException {
-        Avatar avatar = new Avatar();
-        avatar.setMediaType(avatarFile.getContentType());
-        avatar.setFileSize(avatarFile.getSize());
-        avatar.setData(avatarFile.getBytes());
-        return avatarRepository.save(avatar);
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
     }
 
-    public Pair<String, byte[]> readAvatarFromDb(Long id) {
+    /**
+     * Returns the avatar metadata only, which is enough to answer conditional requests.
+     */
+    public Avatar readAvatar(Long id) {
+        logger.info("Was invoked method to get avatar metadata");
+        return avatarRepository.findById(id).orElseThrow(() -> new AvatarNotFoundException(id));
+    }
+
+    /**
+     * @return read-only view of the content, which is read from the database only on a cache miss
+     */
+    public Pair<String, ByteBuffer> readAvatarFromDb(Avatar avatar) {
         logger.info("Was invoked method to get avatar from DB");
-        Avatar avatar = avatarRepository.findById(id).orElseThrow(() -> new AvatarNotFoundException(id));
-        return Pair.of(avatar.getMediaType(), avatar.getData());
+        ByteBuffer data = avatarCache.get(avatar.getChecksum(), hash -> avatarBlobRepository.findContent(hash)
+                .map(AvatarBlobContent::getData)
+                .orElse(null));
+        if (data == null) {
+            throw new AvatarNotFoundException(avatar.getId());
+        }
+        return Pair.of(avatar.getMediaType(), data);
     }
 
-    public Pair<String, byte[]> readAvatarFromFs(Long id) throws IOException {
+    public AvatarCacheStats getCacheStats() {
+        logger.info("Was invoked method to get avatar cache statistics");
+        CacheStats stats = avatarCache.stats();
+        AvatarCacheStats cacheStats = new AvatarCacheStats();
+        cacheStats.setHitCount(stats.hitCount());
+        cacheStats.setMissCount(stats.missCount());
+        cacheStats.setHitRate(stats.hitRate());
+        cacheStats.setEvictionCount(stats.evictionCount());
+        cacheStats.setSize(avatarCache.estimatedSize());
+        cacheStats.setWeightedSize(avatarCache.weightedSize());
+        return cacheStats;
+    }
+
+    public Pair<String, Resource> readAvatarFromFs(Avatar avatar) {
         logger.info("Was invoked method to get avatar from filesystem");
+        return Pair.of(avatar.getMediaType(), new FileSystemResource(avatar.getFilePath()));
+    }
+
+    /**
+     * @return the variant for the requested width, or empty while it is not generated yet
+     */
+    public Optional<Pair<String, Resource>> readAvatarVariant(Avatar avatar, int width) {
+        logger.info("Was invoked method to get avatar variant from filesystem");
+        Optional<Pair<String, Resource>> variant = avatarVariantService.findVariant(Paths.get(avatar.getFilePath()), width);
+        variant.ifPresent(v -> logger.debug("Variant of avatar {} for width {} was found", avatar.getId(), width));
+        return variant;
+    }
+
+    /**
+     * @return whether variants of the avatar are still being generated, so that a missing one may appear soon
+     */
+    public boolean isGeneratingVariants(Avatar avatar) {
+        return avatarVariantService.isGenerating(Paths.get(avatar.getFilePath()));
+    }
+
+    /**
+     * Deletes the avatar and unlinks it from students. The blob and its files are removed
+     * together with the last avatar that references them.
+     */
+    @Transactional
+    public AvatarRecord delete(Long id) {
+        logger.info("Was invoked method to delete avatar");
         Avatar avatar = avatarRepository.findById(id).orElseThrow(() -> new AvatarNotFoundException(id));
-        return Pair.of(avatar.getMediaType(), Files.readAllBytes(Paths.get(avatar.getFilePath())));
+        logger.debug("Avatar was linked to {} students", avatarRepository.detachFromStudents(id));
+        avatarRepository.delete(avatar);
+        avatarBlobRepository.releaseReference(avatar.getChecksum());
+        if (avatarBlobRepository.deleteIfUnreferenced(avatar.getChecksum()) > 0) {
+            Path path = Paths.get(avatar.getFilePath());
+            logger.debug("Last reference to {} was released", path);
+            afterCommit(() -> {
+                avatarCache.invalidate(avatar.getChecksum());
+                deleteFiles(path);
+            });
+        }
+        return recordMapper.toRecord(avatar);
+    }
+
+    private void deleteFiles(Path path) {
+        try {
+            Files.deleteIfExists(path);
+            avatarVariantService.deleteVariants(path);
+        } catch (IOException e) {
+            logger.error("Files of avatar {} were not deleted", path, e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
     }
 
     public Collection<AvatarRecord> getAllAvatars(Integer page, Integer size) {
@@ -79,4 +312,14 @@ public class AvatarService {
                 .map(recordMapper::toRecord)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * @param after cursor returned with the previous page, or {@code null} for the first one
+     */
+    public CursorPage<AvatarRecord> getAvatars(String after, int size) {
+        logger.info("Was invoked method to get avatars after cursor {}", after);
+        return cursorCodec.toPage(
+                avatarRepository.findByIdGreaterThanOrderById(cursorCodec.decode(after), cursorCodec.firstRows(size)),
+                Avatar::getId, recordMapper::toRecord);
+    }
 }
@@ -0,0 +1,209 @@
+package ru.skypro.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.util.Pair;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates downscaled copies of uploaded avatars next to the original file.
+ * Generation runs on a bounded executor; when it is saturated the task is dropped and clients keep
+ * getting the original, which is always a valid answer for a variant request.
+ * <p>
+ * Uploads are untrusted, so the dimensions of an image are read from its header first, and images of more than
+ * {@code avatar.variants.max-pixels} pixels are not decoded at all: a small compressed file can claim a size whose
+ * decoded pixels would not fit in memory.
+ */
+@Service
+public class AvatarVariantService {
+
+    private final Logger logger = LoggerFactory.getLogger(AvatarVariantService.class);
+
+    private final int[] widths;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+    private final Set<Path> generating = ConcurrentHashMap.newKeySet();
+
+    public AvatarVariantService(@Value("${avatar.variants.widths}") int[] widths,
+                                @Value("${avatar.variants.threads}") int threads,
+                                @Value("${avatar.variants.queue-capacity}") int queueCapacity,
+                                @Value("${avatar.variants.max-pixels}") long maxPixels) {
+        this.widths = Arrays.stream(widths).sorted().distinct().toArray();
+        this.maxPixels = maxPixels;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "avatar-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public void scheduleVariants(Path original) {
+        logger.info("Was invoked method to schedule variants of avatar");
+        generating.add(original);
+        try {
+            executor.execute(() -> {
+                try {
+                    generateVariants(original);
+                } catch (IOException | RuntimeException | Error e) {
+                    // a decoder may throw an Error on a malformed file, which must not kill the worker silently
+                    logger.error("Variants of avatar {} were not generated", original, e);
+                } finally {
+                    generating.remove(original);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            generating.remove(original);
+            logger.warn("Variants of avatar {} were skipped, the queue is full", original);
+        }
+    }
+
+    /**
+     * Whether the variants of {@code original} are scheduled or being generated. Once this is {@code false},
+     * a variant that does not exist will not appear: the original is narrower than its width, or the generation
+     * failed or was skipped.
+     */
+    public boolean isGenerating(Path original) {
+        return generating.contains(original);
+    }
+
+    void generateVariants(Path original) throws IOException {
+        BufferedImage image = readImage(original);
+        if (image == null) {
+            return;
+        }
+        for (int width : widths) {
+            if (width >= image.getWidth()) {
+                break;
+            }
+            Path variant = variantPath(original, width);
+            Path tempFile = Files.createTempFile(variant.getParent(), "variant-", "." + variantFormat(original));
+            try {
+                ImageIO.write(scale(image, width, isJpeg(original)), variantFormat(original), tempFile.toFile());
+                Files.move(tempFile, variant, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                logger.debug("Variant {} of avatar {} is ready", width, original);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Decodes the image unless it is unreadable or larger than {@link #maxPixels}, checked before decoding.
+     */
+    private BufferedImage readImage(Path original) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                logger.debug("{} is not a readable image, variants are not generated", original);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    logger.warn("{} has {} pixels, more than {}, variants are not generated", original, pixels, maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest ready variant that is at least {@code width} pixels wide,
+     * or nothing if the original has to be served.
+     */
+    public Optional<Pair<String, Resource>> findVariant(Path original, int width) {
+        return Arrays.stream(widths)
+                .filter(w -> w >= width)
+                .findFirst()
+                .stream()
+                .mapToObj(w -> variantPath(original, w))
+                .filter(Files::exists)
+                .map(path -> Pair.of(variantMediaType(original), (Resource) new FileSystemResource(path)))
+                .findFirst();
+    }
+
+    public void deleteVariants(Path original) throws IOException {
+        for (int width : widths) {
+            Files.deleteIfExists(variantPath(original, width));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * JPEG has no alpha channel, so those variants are drawn on an opaque canvas.
+     */
+    private BufferedImage scale(BufferedImage image, int width, boolean opaque) {
+        int height = Math.max(1, Math.round((float) image.getHeight() * width / image.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height,
+                opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private Path variantPath(Path original, int width) {
+        String fileName = original.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return original.resolveSibling(baseName + "_w" + width + "." + variantFormat(original));
+    }
+
+    /**
+     * JPEG originals stay JPEG, everything else is stored as PNG, which keeps transparency.
+     */
+    private String variantFormat(Path original) {
+        return isJpeg(original) ? "jpg" : "png";
+    }
+
+    private String variantMediaType(Path original) {
+        return isJpeg(original) ? MediaType.IMAGE_JPEG_VALUE : MediaType.IMAGE_PNG_VALUE;
+    }
+
+    private boolean isJpeg(Path original) {
+        String fileName = original.getFileName().toString().toLowerCase();
+        return fileName.endsWith(".jpg") || fileName.endsWith(".jpeg");
+    }
+}
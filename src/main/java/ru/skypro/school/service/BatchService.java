@@ -0,0 +1,121 @@
+package ru.skypro.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.school.exception.InvalidBatchOperationException;
+import ru.skypro.school.record.BatchOperation;
+import ru.skypro.school.record.BatchResult;
+import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.record.StudentRecord;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a list of student and faculty writes in order and in one transaction, each through the same service
+ * method as its endpoint, so that either all of them are applied or, if one fails, none is. Consecutive student
+ * creations are sent as one JDBC batch, since their ids come from the sequence and the inserts wait for the next
+ * statement that needs them. The cache evictions of the operations are applied once the batch commits, see
+ * {@link ru.skypro.school.configuration.CacheConfiguration}.
+ */
+@Service
+public class BatchService {
+
+    static final String REFERENCE_PREFIX = "$";
+
+    private final Logger logger = LoggerFactory.getLogger(BatchService.class);
+
+    private final StudentService studentService;
+    private final FacultyService facultyService;
+
+    public BatchService(StudentService studentService, FacultyService facultyService) {
+        this.studentService = studentService;
+        this.facultyService = facultyService;
+    }
+
+    /**
+     * @return a result per operation, in the same order
+     */
+    @Transactional
+    public List<BatchResult> execute(List<BatchOperation> operations) {
+        logger.info("Was invoked method to execute batch of {} operations", operations.size());
+        Map<String, Long> references = new HashMap<>();
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        for (int index = 0; index < operations.size(); index++) {
+            BatchOperation operation = operations.get(index);
+            if (operation.getType() == null) {
+                throw new InvalidBatchOperationException(index, "не указан тип операции");
+            }
+            Object result;
+            try {
+                result = execute(index, operation, references);
+            } catch (RuntimeException e) {
+                logger.error("Batch operation {} of type {} failed, the batch is rolled back", index, operation.getType());
+                throw e;
+            }
+            Long id = result instanceof StudentRecord ? ((StudentRecord) result).getId() : ((FacultyRecord) result).getId();
+            if (operation.getRef() != null && references.putIfAbsent(operation.getRef(), id) != null) {
+                throw new InvalidBatchOperationException(index, String.format("ссылка %s уже определена", operation.getRef()));
+            }
+            results.add(new BatchResult(index, operation.getRef(), id, result));
+        }
+        return results;
+    }
+
+    private Object execute(int index, BatchOperation operation, Map<String, Long> references) {
+        switch (operation.getType()) {
+            case CREATE_FACULTY:
+                return facultyService.create(required(index, operation.getFaculty(), "faculty"));
+            case UPDATE_FACULTY:
+                return facultyService.update(id(index, operation.getId(), "id", references),
+                        required(index, operation.getFaculty(), "faculty"));
+            case DELETE_FACULTY:
+                return facultyService.delete(id(index, operation.getId(), "id", references), operation.getVersion());
+            case CREATE_STUDENT:
+                return studentService.create(required(index, operation.getStudent(), "student"));
+            case UPDATE_STUDENT:
+                return studentService.update(id(index, operation.getId(), "id", references),
+                        required(index, operation.getStudent(), "student"));
+            case DELETE_STUDENT:
+                return studentService.delete(id(index, operation.getId(), "id", references), operation.getVersion());
+            case SET_STUDENT_FACULTY:
+                return studentService.updateFaculty(id(index, operation.getId(), "id", references),
+                        id(index, operation.getFacultyId(), "facultyId", references));
+            case SET_STUDENT_AVATAR:
+                return studentService.updateAvatar(id(index, operation.getId(), "id", references),
+                        id(index, operation.getAvatarId(), "avatarId", references));
+            default:
+                throw new InvalidBatchOperationException(index, "неизвестный тип операции " + operation.getType());
+        }
+    }
+
+    private static <T> T required(int index, T value, String field) {
+        if (value == null) {
+            throw new InvalidBatchOperationException(index, "не указано поле " + field);
+        }
+        return value;
+    }
+
+    /**
+     * Parses {@code value} as a number, or as {@code $ref} naming the id written by an earlier operation.
+     */
+    private static Long id(int index, String value, String field, Map<String, Long> references) {
+        required(index, value, field);
+        if (value.startsWith(REFERENCE_PREFIX)) {
+            Long id = references.get(value.substring(REFERENCE_PREFIX.length()));
+            if (id == null) {
+                throw new InvalidBatchOperationException(index, String.format("ссылка %s не определена ранее", value));
+            }
+            return id;
+        }
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidBatchOperationException(index, String.format("некорректное значение поля %s: %s", field, value));
+        }
+    }
+}
@@ -2,87 +2,252 @@ package ru.skypro.school.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.school.component.FacultyCatalog;
 import ru.skypro.school.component.RecordMapper;
+import ru.skypro.school.configuration.CacheConfiguration;
 import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.event.FacultyChangedEvent;
+import ru.skypro.school.event.StudentsMovedEvent;
+import ru.skypro.school.exception.EmptyStudentSelectionException;
 import ru.skypro.school.exception.FacultyNotFoundException;
+import ru.skypro.school.exception.FacultySelfMergeException;
+import ru.skypro.school.exception.FacultyVersionConflictException;
+import ru.skypro.school.exception.UnsupportedSortException;
+import ru.skypro.school.record.BulkUpdateResult;
+import ru.skypro.school.record.FacultyMergeResult;
 import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.record.FacultyRow;
+import ru.skypro.school.record.MultiGetResult;
 import ru.skypro.school.record.StudentRecord;
+import ru.skypro.school.record.StudentSelection;
 import ru.skypro.school.repository.FacultyRepository;
+import ru.skypro.school.repository.StudentRepository;
 
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class FacultyService {
 
+    static final int MOVE_CHUNK_SIZE = 1000;
+
+    private static final Set<String> STUDENT_SORT_PROPERTIES = Set.of("id", "name", "age");
+
     private final FacultyRepository facultyRepository;
+    private final StudentRepository studentRepository;
     private final RecordMapper recordMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FacultyCatalog facultyCatalog;
 
     private final Logger logger = LoggerFactory.getLogger(FacultyService.class);
 
 
-    public FacultyService(FacultyRepository facultyRepository, RecordMapper recordMapper) {
+    public FacultyService(FacultyRepository facultyRepository, StudentRepository studentRepository,
+                          RecordMapper recordMapper, ApplicationEventPublisher eventPublisher,
+                          FacultyCatalog facultyCatalog) {
         this.facultyRepository = facultyRepository;
+        this.studentRepository = studentRepository;
         this.recordMapper = recordMapper;
+        this.eventPublisher = eventPublisher;
+        this.facultyCatalog = facultyCatalog;
     }
 
     public FacultyRecord create(FacultyRecord facultyRecord) {
         logger.info("Was invoked method to create faculty");
-        return recordMapper.toRecord(facultyRepository.save(recordMapper.toEntity(facultyRecord)));
+        Faculty faculty = facultyRepository.save(recordMapper.toEntity(facultyRecord));
+        eventPublisher.publishEvent(new FacultyChangedEvent(faculty.getId(), faculty.getName(), faculty.getColor(),
+                faculty.getVersion()));
+        return recordMapper.toRecord(faculty);
     }
 
+    /**
+     * Served from the {@link FacultyCatalog}; a faculty missing there may have been created around the application
+     * since the last refresh, so the database is asked before giving up.
+     */
     public FacultyRecord read(Long id) {
         logger.info("Was invoked method to find faculty");
-        return recordMapper.toRecord(facultyRepository.findById(id).orElseThrow(() -> new FacultyNotFoundException(id)));
+        return facultyCatalog.snapshot().get(id)
+                .orElseGet(() -> recordMapper.toRecord(facultyRepository.findById(id).orElseThrow(() -> new FacultyNotFoundException(id))));
     }
 
+    /**
+     * Served from the {@link FacultyCatalog} like {@link #read(Long)}; the ids missing there are looked up
+     * in the database with one query.
+     *
+     * @param ids at most {@value MultiGetResult#MAX_IDS}, none of them {@code null}
+     */
+    public MultiGetResult<FacultyRecord> read(Collection<Long> ids) {
+        logger.info("Was invoked method to find {} faculties by id", ids.size());
+        MultiGetResult.checkIds(ids);
+        FacultyCatalog.Snapshot snapshot = facultyCatalog.snapshot();
+        Map<Long, FacultyRecord> found = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (Long id : ids) {
+            snapshot.get(id).ifPresentOrElse(faculty -> found.put(id, faculty), () -> missing.add(id));
+        }
+        if (!missing.isEmpty()) {
+            facultyRepository.findAllById(missing).forEach(faculty -> found.put(faculty.getId(), recordMapper.toRecord(faculty)));
+        }
+        return MultiGetResult.of(ids, found);
+    }
+
+    /**
+     * Updates the faculty with a single statement. If {@code facultyRecord} has a version, the update only
+     * applies while the faculty is still at that version.
+     */
     public FacultyRecord update(Long id, FacultyRecord facultyRecord) {
         logger.info("Was invoked method to update faculty");
-        Faculty faculty = facultyRepository.findById(id).orElseThrow(() -> new FacultyNotFoundException(id));
-        logger.debug("Was found {}", faculty);
-        faculty.setName(facultyRecord.getName());
-        faculty.setColor(facultyRecord.getColor());
-        return recordMapper.toRecord(facultyRepository.save(faculty));
+        Long version = facultyRecord.getVersion();
+        FacultyRow row = facultyRepository.updateReturning(id, facultyRecord.getName(), facultyRecord.getColor(),
+                        version == null ? FacultyRepository.ANY_VERSION : version)
+                .orElseThrow(() -> notFoundOrConflict(id, version));
+        logger.debug("Faculty was updated to version {}", row.getVersion());
+        eventPublisher.publishEvent(new FacultyChangedEvent(row.getId(), row.getName(), row.getColor(), row.getVersion()));
+        return recordMapper.toRecord(row);
     }
 
-    public FacultyRecord delete(Long id) {
+    /**
+     * Deletes the faculty with a single statement, only while it is at {@code version} if one is given.
+     */
+    public FacultyRecord delete(Long id, Long version) {
         logger.info("Was invoked method to delete faculty");
-        Faculty faculty = facultyRepository.findById(id).orElseThrow(() -> new FacultyNotFoundException(id));
-        facultyRepository.delete(faculty);
-        return recordMapper.toRecord(faculty);
+        FacultyRow row = facultyRepository.deleteReturning(id, version == null ? FacultyRepository.ANY_VERSION : version)
+                .orElseThrow(() -> notFoundOrConflict(id, version));
+        eventPublisher.publishEvent(FacultyChangedEvent.deleted(id));
+        return recordMapper.toRecord(row);
+    }
+
+    /**
+     * A write that matched no row is a conflict when a version was given and the faculty still exists.
+     */
+    private RuntimeException notFoundOrConflict(long id, Long version) {
+        return version != null && facultyRepository.existsById(id)
+                ? new FacultyVersionConflictException(id, version)
+                : new FacultyNotFoundException(id);
+    }
+
+    /**
+     * Moves the selected students to the faculty with one set-based update, or one per {@value #MOVE_CHUNK_SIZE}
+     * listed ids to stay within the bind parameter limit of a statement. Students listed by id are also
+     * checked against the filter, if one is given.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfiguration.FACULTY_STUDENT_COUNTS, allEntries = true)
+    public BulkUpdateResult moveStudents(Long id, StudentSelection selection) {
+        logger.info("Was invoked method to move students to faculty with id = {}", id);
+        if (selection == null || selection.isEmpty()) {
+            throw new EmptyStudentSelectionException();
+        }
+        if (!facultyRepository.existsById(id)) {
+            throw new FacultyNotFoundException(id);
+        }
+        Faculty faculty = facultyRepository.getReferenceById(id);
+        int minAge = selection.getMinAge() == null ? Integer.MIN_VALUE : selection.getMinAge();
+        int maxAge = selection.getMaxAge() == null ? Integer.MAX_VALUE : selection.getMaxAge();
+        long fromFacultyId = selection.getFacultyId() == null ? StudentRepository.ANY_FACULTY : selection.getFacultyId();
+        int updated;
+        if (selection.getIds() == null) {
+            updated = studentRepository.moveToFaculty(minAge, maxAge, fromFacultyId, faculty);
+        } else {
+            List<Long> ids = selection.getIds();
+            updated = 0;
+            for (int from = 0; from < ids.size(); from += MOVE_CHUNK_SIZE) {
+                updated += studentRepository.moveToFaculty(ids.subList(from, Math.min(from + MOVE_CHUNK_SIZE, ids.size())),
+                        minAge, maxAge, fromFacultyId, faculty);
+            }
+        }
+        logger.debug("{} students were moved to faculty with id = {}", updated, id);
+        if (updated > 0) {
+            eventPublisher.publishEvent(new StudentsMovedEvent(selection, id));
+        }
+        return new BulkUpdateResult(updated);
+    }
+
+    /**
+     * Moves all students of the faculty to {@code targetId} and deletes it, in one transaction of two statements.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfiguration.FACULTY_STUDENT_COUNTS, allEntries = true)
+    public FacultyMergeResult merge(Long id, Long targetId) {
+        logger.info("Was invoked method to merge faculty with id = {} into faculty with id = {}", id, targetId);
+        if (id.equals(targetId)) {
+            throw new FacultySelfMergeException(id);
+        }
+        if (!facultyRepository.existsById(targetId)) {
+            throw new FacultyNotFoundException(targetId);
+        }
+        int moved = studentRepository.moveToFaculty(Integer.MIN_VALUE, Integer.MAX_VALUE, id,
+                facultyRepository.getReferenceById(targetId));
+        FacultyRow row = facultyRepository.deleteReturning(id, FacultyRepository.ANY_VERSION)
+                .orElseThrow(() -> new FacultyNotFoundException(id));
+        logger.debug("{} students were moved to faculty with id = {}", moved, targetId);
+        if (moved > 0) {
+            eventPublisher.publishEvent(new StudentsMovedEvent(new StudentSelection(null, null, null, id), targetId));
+        }
+        eventPublisher.publishEvent(FacultyChangedEvent.deleted(id));
+        return new FacultyMergeResult(moved, recordMapper.toRecord(row));
     }
 
     public Collection<FacultyRecord> findByColor(String color) {
         logger.info("Was invoked method to find faculty by color = {}", color);
-        return facultyRepository.findByColor(color).stream()
-                .map(recordMapper::toRecord)
-                .collect(Collectors.toList());
+        return facultyCatalog.snapshot().findByColor(color);
     }
 
     public Collection<FacultyRecord> findByFilterString(String filterString) {
         logger.info("Was invoked method to find faculty by filter = {}", filterString);
-        return facultyRepository.findByNameLikeIgnoreCaseOrColorLikeIgnoreCase(filterString, filterString).stream()
-                .map(recordMapper::toRecord)
-                .collect(Collectors.toList());
+        return facultyCatalog.snapshot().findByNameOrColorLike(filterString);
     }
 
     public Collection<StudentRecord> getStudentsByFaculty(Long id) {
         logger.info("Was invoked method to find students in faculty with id = {}", id);
-        return facultyRepository.findById(id)
-                .map(Faculty::getStudents)
-                .map(s -> s.stream()
-                        .map(recordMapper::toRecord)
-                        .collect(Collectors.toList()))
-                .orElseThrow(() -> new FacultyNotFoundException(id));
+        List<Student> students = studentRepository.findByFacultyId(id, Pageable.unpaged());
+        if (students.isEmpty() && !facultyRepository.existsById(id)) {
+            throw new FacultyNotFoundException(id);
+        }
+        return students.stream()
+                .map(recordMapper::toRecord)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns one page of the faculty's students. The total comes from a cached count,
+     * so moving between pages only runs the page query.
+     */
+    public Page<StudentRecord> getStudentsByFaculty(Long id, Pageable pageable) {
+        logger.info("Was invoked method to find page {} of students in faculty with id = {}", pageable.getPageNumber(), id);
+        pageable.getSort().forEach(order -> {
+            if (!STUDENT_SORT_PROPERTIES.contains(order.getProperty())) {
+                throw new UnsupportedSortException(order.getProperty());
+            }
+        });
+        long total = studentRepository.countByFacultyId(id);
+        if (total == 0 && !facultyRepository.existsById(id)) {
+            throw new FacultyNotFoundException(id);
+        }
+        List<StudentRecord> students = total <= pageable.getOffset() ? List.of()
+                : studentRepository.findByFacultyId(id, pageable).stream()
+                .map(recordMapper::toRecord)
+                .collect(Collectors.toList());
+        return new PageImpl<>(students, pageable, total);
     }
 
     public String getFacultyLongestName() {
         logger.info("Was invoked method to find faculty with the longest name");
-        return facultyRepository.findAll().stream()
-                .map(Faculty::getName)
-                .max(Comparator.comparing(String::length))
+        return facultyCatalog.snapshot().withLongestName()
+                .map(FacultyRecord::getName)
                 .orElse("");
     }
 }
@@ -0,0 +1,149 @@
+package ru.skypro.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.school.component.SnapshotLoader;
+import ru.skypro.school.component.TrigramIndex;
+import ru.skypro.school.event.FacultyChangedEvent;
+import ru.skypro.school.event.StudentChangedEvent;
+import ru.skypro.school.record.SearchHit;
+import ru.skypro.school.record.StudentName;
+import ru.skypro.school.repository.FacultyRepository;
+import ru.skypro.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Substring search over student names and faculty names and colors, answered from in-memory
+ * {@link TrigramIndex}es instead of {@code LIKE '%...%'} scans. The indexes are loaded once the application
+ * is ready and then follow {@link StudentChangedEvent}s and {@link FacultyChangedEvent}s after commit.
+ */
+@Service
+public class SearchService {
+
+    static final int MAX_LIMIT = 100;
+
+    private final Logger logger = LoggerFactory.getLogger(SearchService.class);
+
+    private final SnapshotLoader studentLoader = new SnapshotLoader();
+    private final SnapshotLoader facultyLoader = new SnapshotLoader();
+    private volatile TrigramIndex studentNames = new TrigramIndex();
+    private volatile TrigramIndex facultyNames = new TrigramIndex();
+    private volatile TrigramIndex facultyColors = new TrigramIndex();
+
+    private final StudentRepository studentRepository;
+    private final FacultyRepository facultyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public SearchService(StudentRepository studentRepository, FacultyRepository facultyRepository,
+                         PlatformTransactionManager transactionManager) {
+        this.studentRepository = studentRepository;
+        this.facultyRepository = facultyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Builds fresh indexes in bulk and swaps them in, replaying the changes committed meanwhile.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        logger.info("Was invoked method to load search indexes");
+        studentLoader.load(() -> transactionTemplate.execute(status -> {
+            TrigramIndex.Builder names = TrigramIndex.builder();
+            try (Stream<StudentName> rows = studentRepository.streamNames()) {
+                rows.forEach(row -> names.put(row.getId(), row.getName()));
+            }
+            return names.build();
+        }), loaded -> studentNames = loaded);
+        facultyLoader.load(() -> transactionTemplate.execute(status -> {
+            TrigramIndex.Builder names = TrigramIndex.builder();
+            TrigramIndex.Builder colors = TrigramIndex.builder();
+            facultyRepository.findAll().forEach(faculty -> {
+                names.put(faculty.getId(), faculty.getName());
+                colors.put(faculty.getId(), faculty.getColor());
+            });
+            return new TrigramIndex[]{names.build(), colors.build()};
+        }), loaded -> {
+            facultyNames = loaded[0];
+            facultyColors = loaded[1];
+        });
+        logger.debug("{} students and {} faculties were indexed", studentNames.size(), facultyNames.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChanged(StudentChangedEvent event) {
+        if (event.isDeleted()) {
+            studentLoader.apply(() -> studentNames.remove(event.getId()));
+        } else {
+            studentLoader.apply(() -> studentNames.put(event.getId(), event.getNewName()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFacultyChanged(FacultyChangedEvent event) {
+        if (event.isDeleted()) {
+            facultyLoader.apply(() -> {
+                facultyNames.remove(event.getId());
+                facultyColors.remove(event.getId());
+            });
+        } else {
+            facultyLoader.apply(() -> {
+                facultyNames.put(event.getId(), event.getName());
+                facultyColors.put(event.getId(), event.getColor());
+            });
+        }
+    }
+
+    /**
+     * @return students and faculties whose name, or color for a faculty, contains {@code query} ignoring case,
+     * ranked by {@link TrigramIndex#search(String, int)}; a faculty is returned once, for its best match
+     */
+    public List<SearchHit> search(String query, int limit) {
+        logger.info("Was invoked method to search for {}", query);
+        if (query.isBlank()) {
+            return List.of();
+        }
+        int max = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<Ranked> hits = new ArrayList<>();
+        TrigramIndex facultyNames = this.facultyNames;
+        studentNames.search(query, max).forEach(match ->
+                hits.add(new Ranked(match, new SearchHit(SearchHit.Type.STUDENT, match.getId(), match.getText(), match.getText()))));
+        facultyNames.search(query, max).forEach(match ->
+                hits.add(new Ranked(match, new SearchHit(SearchHit.Type.FACULTY, match.getId(), match.getText(), match.getText()))));
+        facultyColors.search(query, max).forEach(match ->
+                hits.add(new Ranked(match, new SearchHit(SearchHit.Type.FACULTY, match.getId(), facultyNames.get(match.getId()), match.getText()))));
+
+        Set<Long> faculties = new HashSet<>();
+        return hits.stream()
+                .sorted(Comparator.comparingInt((Ranked ranked) -> ranked.match.getRank())
+                        .thenComparingInt(ranked -> ranked.match.getText().length())
+                        .thenComparing(ranked -> ranked.match.getText()))
+                .map(ranked -> ranked.hit)
+                .filter(hit -> hit.getType() != SearchHit.Type.FACULTY || faculties.add(hit.getId()))
+                .limit(max)
+                .collect(Collectors.toList());
+    }
+
+    private static class Ranked {
+        final TrigramIndex.Match match;
+        final SearchHit hit;
+
+        Ranked(TrigramIndex.Match match, SearchHit hit) {
+            this.match = match;
+            this.hit = hit;
+        }
+    }
+}
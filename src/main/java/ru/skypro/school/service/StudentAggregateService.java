@@ -0,0 +1,96 @@
+package ru.skypro.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.school.entity.StudentAggregate;
+import ru.skypro.school.repository.StudentAggregateRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the number of students and the sum of their ages in {@link StudentAggregate}s. Writers apply their delta
+ * in the same transaction as the change itself, and {@link #reconcile()} periodically recomputes the totals from
+ * the table to repair anything written around the service.
+ * <p>
+ * A delta locks its row until the writer commits, so the totals are striped over {@link StudentAggregate#STRIPES}
+ * rows: a writer always adds to the stripe of its thread, which spreads concurrent writers over the rows while
+ * a transaction never locks more than one of them. The price is paid by {@link #get()}, which sums all the stripes
+ * with one small query on every call instead of reading a single row; the totals stay exact and transactional,
+ * which applying the deltas asynchronously would give up.
+ */
+@Service
+public class StudentAggregateService {
+
+    private final Logger logger = LoggerFactory.getLogger(StudentAggregateService.class);
+
+    private final StudentAggregateRepository studentAggregateRepository;
+
+    public StudentAggregateService(StudentAggregateRepository studentAggregateRepository) {
+        this.studentAggregateRepository = studentAggregateRepository;
+    }
+
+    /**
+     * @return the totals summed over the stripes, zero if there are none yet
+     */
+    public StudentAggregate get() {
+        return sum(studentAggregateRepository.findAll());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(long quantity, long ageSum) {
+        if (quantity == 0 && ageSum == 0) {
+            return;
+        }
+        if (studentAggregateRepository.add(stripe(), quantity, ageSum) == 0) {
+            // no row yet: computing it from the table also takes this transaction's own changes into account
+            reconcile();
+        }
+    }
+
+    /**
+     * A transaction runs on one thread, so all its deltas go to the same stripe.
+     */
+    static int stripe() {
+        return StudentAggregate.ID + (int) (Thread.currentThread().getId() % StudentAggregate.STRIPES);
+    }
+
+    @Transactional
+    @Scheduled(initialDelayString = "${student.aggregates.reconcile-delay}",
+            fixedDelayString = "${student.aggregates.reconcile-delay}")
+    public StudentAggregate reconcile() {
+        logger.info("Was invoked method to reconcile student aggregates");
+        List<StudentAggregate> stripes = studentAggregateRepository.lockAll();
+        StudentAggregate before = sum(stripes);
+        Set<Integer> existing = stripes.stream().map(StudentAggregate::getId).collect(Collectors.toSet());
+        for (int id = StudentAggregate.ID; id < StudentAggregate.ID + StudentAggregate.STRIPES; id++) {
+            if (!existing.contains(id)) {
+                StudentAggregate stripe = new StudentAggregate();
+                stripe.setId(id);
+                studentAggregateRepository.save(stripe);
+            }
+        }
+        studentAggregateRepository.flush();
+        studentAggregateRepository.recompute();
+        StudentAggregate after = get();
+        if (after.getQuantity() != before.getQuantity() || after.getAgeSum() != before.getAgeSum()) {
+            logger.warn("Student aggregates drifted: quantity {} -> {}, age sum {} -> {}",
+                    before.getQuantity(), after.getQuantity(), before.getAgeSum(), after.getAgeSum());
+        }
+        return after;
+    }
+
+    private static StudentAggregate sum(List<StudentAggregate> stripes) {
+        StudentAggregate total = new StudentAggregate();
+        for (StudentAggregate stripe : stripes) {
+            total.setQuantity(total.getQuantity() + stripe.getQuantity());
+            total.setAgeSum(total.getAgeSum() + stripe.getAgeSum());
+        }
+        return total;
+    }
+}
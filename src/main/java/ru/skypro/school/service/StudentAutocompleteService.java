@@ -0,0 +1,130 @@
+package ru.skypro.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.school.component.SnapshotLoader;
+import ru.skypro.school.event.StudentChangedEvent;
+import ru.skypro.school.record.StudentName;
+import ru.skypro.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Completes student names from a sorted in-memory index, so that type-ahead requests never reach the database.
+ * The index is loaded once the application is ready and then follows {@link StudentChangedEvent}s, which are
+ * applied after the change is committed. Matching ignores case.
+ */
+@Service
+public class StudentAutocompleteService {
+
+    static final int MAX_LIMIT = 100;
+
+    private static final Comparator<Entry> ORDER = Comparator.comparing((Entry e) -> e.key)
+            .thenComparing(e -> e.name)
+            .thenComparingLong(e -> e.id);
+
+    private final Logger logger = LoggerFactory.getLogger(StudentAutocompleteService.class);
+
+    private final SnapshotLoader loader = new SnapshotLoader();
+    private volatile NavigableSet<Entry> index = new ConcurrentSkipListSet<>(ORDER);
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public StudentAutocompleteService(StudentRepository studentRepository, PlatformTransactionManager transactionManager) {
+        this.studentRepository = studentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Loads the names into a fresh index and swaps it in, replaying the changes committed meanwhile.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        logger.info("Was invoked method to load student names for autocomplete");
+        loader.load(() -> transactionTemplate.execute(status -> {
+            NavigableSet<Entry> loaded = new ConcurrentSkipListSet<>(ORDER);
+            try (Stream<StudentName> names = studentRepository.streamNames()) {
+                // a student may have no name, there is nothing to complete then
+                names.filter(name -> name.getName() != null)
+                        .forEach(name -> loaded.add(new Entry(name.getId(), name.getName())));
+            }
+            return loaded;
+        }), loaded -> index = loaded);
+        logger.debug("{} student names were loaded", index.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChanged(StudentChangedEvent event) {
+        logger.debug("Was received {}", event);
+        if (Objects.equals(event.getOldName(), event.getNewName())) {
+            return;
+        }
+        loader.apply(() -> {
+            if (event.getOldName() != null) {
+                index.remove(new Entry(event.getId(), event.getOldName()));
+            }
+            if (event.getNewName() != null) {
+                index.add(new Entry(event.getId(), event.getNewName()));
+            }
+        });
+    }
+
+    /**
+     * @return up to {@code limit} distinct names starting with {@code prefix}, in alphabetical order
+     */
+    public List<String> complete(String prefix, int limit) {
+        logger.info("Was invoked method to complete student name {}", prefix);
+        String from = normalize(prefix);
+        String to = StudentService.nextPrefix(from);
+        NavigableSet<Entry> index = this.index;
+        NavigableSet<Entry> matches = to == null
+                ? index.tailSet(new Entry(Long.MIN_VALUE, from, ""), true)
+                : index.subSet(new Entry(Long.MIN_VALUE, from, ""), true, new Entry(Long.MIN_VALUE, to, ""), false);
+
+        int max = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<String> names = new ArrayList<>(max);
+        for (Entry entry : matches) {
+            if (names.isEmpty() || !names.get(names.size() - 1).equals(entry.name)) {
+                names.add(entry.name);
+                if (names.size() == max) {
+                    break;
+                }
+            }
+        }
+        return names;
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Entry {
+        final long id;
+        final String key;
+        final String name;
+
+        Entry(long id, String name) {
+            this(id, normalize(name), name);
+        }
+
+        Entry(long id, String key, String name) {
+            this.id = id;
+            this.key = key;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.skypro.school.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.school.component.RecordMapper;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.record.StudentRecord;
+import ru.skypro.school.repository.StudentRepository;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole roster row by row while it is read from a database cursor. Rows are fetched in
+ * batches of {@link StudentRepository#EXPORT_FETCH_SIZE} and the persistence context is cleared after
+ * every batch, so memory use does not depend on the number of students.
+ */
+@Service
+public class StudentExportService {
+
+    private static final String CSV_HEADER = "id,name,age,faculty_id,faculty_name,avatar_id";
+
+    private final Logger logger = LoggerFactory.getLogger(StudentExportService.class);
+
+    private final StudentRepository studentRepository;
+    private final RecordMapper recordMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter ndjsonWriter;
+
+    public StudentExportService(StudentRepository studentRepository, RecordMapper recordMapper,
+                                EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper) {
+        this.studentRepository = studentRepository;
+        this.recordMapper = recordMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.ndjsonWriter = objectMapper.writerFor(StudentRecord.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void export(StudentFormat format, OutputStream out) {
+        logger.info("Was invoked method to export students as {}", format);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Student> students = studentRepository.streamAll()) {
+                if (format == StudentFormat.NDJSON) {
+                    writeNdjson(students.iterator(), out);
+                } else {
+                    writeCsv(students.iterator(), out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeNdjson(Iterator<Student> students, OutputStream out) throws IOException {
+        try (JsonGenerator generator = ndjsonWriter.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            long count = 0;
+            while (students.hasNext()) {
+                ndjsonWriter.writeValue(generator, recordMapper.toRecord(students.next()));
+                generator.writeRaw('\n');
+                clearEveryBatch(++count);
+            }
+            logger.debug("{} students were exported", count);
+        }
+    }
+
+    private void writeCsv(Iterator<Student> students, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        long count = 0;
+        while (students.hasNext()) {
+            Student student = students.next();
+            writer.write(String.valueOf(student.getId()));
+            writer.write(',');
+            writer.write(csv(student.getName()));
+            writer.write(',');
+            writer.write(String.valueOf(student.getAge()));
+            writer.write(',');
+            if (student.getFaculty() != null) {
+                writer.write(String.valueOf(student.getFaculty().getId()));
+                writer.write(',');
+                writer.write(csv(student.getFaculty().getName()));
+            } else {
+                writer.write(',');
+            }
+            writer.write(',');
+            if (student.getAvatar() != null) {
+                writer.write(String.valueOf(student.getAvatar().getId()));
+            }
+            writer.write('\n');
+            clearEveryBatch(++count);
+        }
+        writer.flush();
+        logger.debug("{} students were exported", count);
+    }
+
+    /**
+     * Rows already written are detached, otherwise every streamed entity would stay referenced by the session.
+     */
+    private void clearEveryBatch(long count) {
+        if (count % StudentRepository.EXPORT_FETCH_SIZE == 0) {
+            entityManager.clear();
+        }
+    }
+
+    /**
+     * Quotes a value as in RFC 4180 when it contains a separator, a quote or a line break.
+     */
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,44 @@
+package ru.skypro.school.service;
+
+import org.springframework.http.MediaType;
+import ru.skypro.school.exception.UnsupportedFormatException;
+
+import java.util.Locale;
+
+/**
+ * File formats of the student roster export and import.
+ */
+public enum StudentFormat {
+    NDJSON(MediaType.parseMediaType("application/x-ndjson")),
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"));
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String CSV_VALUE = "text/csv";
+
+    private final MediaType mediaType;
+
+    StudentFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public static StudentFormat of(String format) {
+        try {
+            return valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedFormatException(format);
+        }
+    }
+
+    public static StudentFormat of(MediaType mediaType) {
+        for (StudentFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(mediaType)) {
+                return format;
+            }
+        }
+        throw new UnsupportedFormatException(mediaType.toString());
+    }
+}
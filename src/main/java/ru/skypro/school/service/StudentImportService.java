@@ -0,0 +1,274 @@
+package ru.skypro.school.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.school.configuration.CacheConfiguration;
+import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.event.StudentChangedEvent;
+import ru.skypro.school.record.StudentImportError;
+import ru.skypro.school.record.StudentImportResult;
+import ru.skypro.school.record.StudentRecord;
+import ru.skypro.school.repository.FacultyRepository;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Imports students line by line from NDJSON or CSV. Valid rows are inserted in batches of
+ * {@code student.import.batch-size}, one transaction per batch, and invalid rows are reported with their line number.
+ * <p>
+ * NDJSON lines have the shape of {@link StudentRecord}, as written by the export. CSV needs a header with
+ * {@code name} and {@code age} columns and an optional {@code faculty_id}; other columns are ignored.
+ */
+@Service
+public class StudentImportService {
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(StudentImportService.class);
+
+    private final FacultyRepository facultyRepository;
+    private final StudentAggregateService studentAggregateService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader ndjsonReader;
+    private final int batchSize;
+
+    public StudentImportService(FacultyRepository facultyRepository, StudentAggregateService studentAggregateService,
+                                ApplicationEventPublisher eventPublisher, EntityManager entityManager,
+                                PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                @Value("${student.import.batch-size}") int batchSize) {
+        this.facultyRepository = facultyRepository;
+        this.studentAggregateService = studentAggregateService;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ndjsonReader = objectMapper.readerFor(StudentRecord.class);
+        this.batchSize = batchSize;
+    }
+
+    @CacheEvict(cacheNames = CacheConfiguration.FACULTY_STUDENT_COUNTS, allEntries = true)
+    public StudentImportResult importStudents(StudentFormat format, InputStream in) throws IOException {
+        logger.info("Was invoked method to import students from {}", format);
+        StudentImportResult result = new StudentImportResult();
+        Map<Long, Boolean> faculties = new HashMap<>();
+        List<Row> batch = new ArrayList<>(batchSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        CsvHeader csvHeader = null;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == StudentFormat.CSV && csvHeader == null) {
+                csvHeader = CsvHeader.parse(line);
+                if (csvHeader == null) {
+                    addError(result, lineNumber, "В заголовке нет колонок name и age");
+                    return result;
+                }
+                continue;
+            }
+            try {
+                Row row = format == StudentFormat.CSV ? parseCsv(csvHeader, line) : parseNdjson(line);
+                row.line = lineNumber;
+                validate(row, faculties);
+                batch.add(row);
+            } catch (IllegalArgumentException e) {
+                addError(result, lineNumber, e.getMessage());
+            }
+            if (batch.size() == batchSize) {
+                save(batch, result);
+            }
+        }
+        save(batch, result);
+        logger.debug("{} students were imported, {} rows failed", result.getImported(), result.getFailed());
+        return result;
+    }
+
+    private Row parseNdjson(String line) {
+        StudentRecord record;
+        try {
+            record = ndjsonReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Некорректный JSON: " + e.getOriginalMessage());
+        }
+        Row row = new Row();
+        row.name = record.getName();
+        row.age = record.getAge();
+        if (record.getFacultyRecord() != null) {
+            row.facultyId = record.getFacultyRecord().getId();
+        }
+        return row;
+    }
+
+    private Row parseCsv(CsvHeader header, String line) {
+        List<String> values = splitCsv(line);
+        Row row = new Row();
+        row.name = header.value(values, header.name);
+        row.age = parseNumber(header.value(values, header.age), "возраст", Integer::valueOf);
+        String facultyId = header.value(values, header.facultyId);
+        if (facultyId != null && !facultyId.isEmpty()) {
+            row.facultyId = parseNumber(facultyId, "id факультета", Long::valueOf);
+        }
+        return row;
+    }
+
+    private void validate(Row row, Map<Long, Boolean> faculties) {
+        if (row.name == null || row.name.isBlank()) {
+            throw new IllegalArgumentException("Не указано имя");
+        }
+        if (row.age <= 0) {
+            throw new IllegalArgumentException(String.format("Некорректный возраст %d", row.age));
+        }
+        if (row.facultyId != null && !faculties.computeIfAbsent(row.facultyId, facultyRepository::existsById)) {
+            throw new IllegalArgumentException(String.format("Факультет с id = %d не найден", row.facultyId));
+        }
+    }
+
+    /**
+     * Inserts the batch in its own transaction. If the batch fails, its rows are retried one per transaction,
+     * so that only the rows the database rejects are reported, each with its own cause.
+     */
+    private void save(List<Row> batch, StudentImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            insert(batch);
+            result.setImported(result.getImported() + batch.size());
+        } catch (RuntimeException e) {
+            logger.warn("Batch of {} students starting at line {} was not saved, retrying row by row",
+                    batch.size(), batch.get(0).line, e);
+            for (Row row : batch) {
+                try {
+                    insert(List.of(row));
+                    result.setImported(result.getImported() + 1);
+                } catch (RuntimeException rowException) {
+                    logger.error("Student at line {} was not saved", row.line, rowException);
+                    addError(result, row.line, "Строка не сохранена: "
+                            + NestedExceptionUtils.getMostSpecificCause(rowException).getMessage());
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * Flushing sends the inserts as one JDBC batch, and clearing keeps the persistence context from growing when
+     * it spans the whole request.
+     */
+    private void insert(List<Row> rows) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Row row : rows) {
+                Student student = new Student();
+                student.setName(row.name);
+                student.setAge(row.age);
+                if (row.facultyId != null) {
+                    student.setFaculty(entityManager.getReference(Faculty.class, row.facultyId));
+                }
+                entityManager.persist(student);
+                eventPublisher.publishEvent(StudentChangedEvent.of(null, student));
+            }
+            entityManager.flush();
+            entityManager.clear();
+            studentAggregateService.add(rows.size(), rows.stream().mapToLong(row -> row.age).sum());
+        });
+    }
+
+    private void addError(StudentImportResult result, long line, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new StudentImportError(line, message));
+        }
+    }
+
+    private static <T extends Number> T parseNumber(String value, String field, Function<String, T> parser) {
+        try {
+            return parser.apply(value == null ? "" : value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Некорректное значение поля %s: %s", field, value));
+        }
+    }
+
+    /**
+     * Splits a line into RFC 4180 fields. Quoted fields may contain separators and doubled quotes,
+     * but not line breaks, since the input is read line by line.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static class Row {
+        long line;
+        String name;
+        int age;
+        Long facultyId;
+    }
+
+    private static class CsvHeader {
+        int name;
+        int age;
+        int facultyId;
+
+        static CsvHeader parse(String line) {
+            List<String> columns = splitCsv(line);
+            CsvHeader header = new CsvHeader();
+            header.name = columns.indexOf("name");
+            header.age = columns.indexOf("age");
+            header.facultyId = columns.indexOf("faculty_id");
+            return header.name < 0 || header.age < 0 ? null : header;
+        }
+
+        String value(List<String> values, int index) {
+            return index >= 0 && index < values.size() ? values.get(index) : null;
+        }
+    }
+}
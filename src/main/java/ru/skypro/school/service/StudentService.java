@@ -2,50 +2,73 @@ package ru.skypro.school.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.school.component.CursorCodec;
+import ru.skypro.school.component.GroupCommitter;
 import ru.skypro.school.component.RecordMapper;
-import ru.skypro.school.entity.Avatar;
-import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.configuration.CacheConfiguration;
 import ru.skypro.school.entity.Student;
+import ru.skypro.school.event.StudentChangedEvent;
 import ru.skypro.school.exception.AvatarNotFoundException;
 import ru.skypro.school.exception.FacultyNotFoundException;
 import ru.skypro.school.exception.StudentFacultyNotFoundException;
 import ru.skypro.school.exception.StudentNotFoundException;
+import ru.skypro.school.exception.StudentVersionConflictException;
+import ru.skypro.school.record.CursorPage;
 import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.record.MultiGetResult;
 import ru.skypro.school.record.StudentAverageAge;
 import ru.skypro.school.record.StudentQuantity;
 import ru.skypro.school.record.StudentRecord;
-import ru.skypro.school.repository.AvatarRepository;
-import ru.skypro.school.repository.FacultyRepository;
+import ru.skypro.school.record.StudentRow;
 import ru.skypro.school.repository.StudentRepository;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class StudentService {
 
+    static final int READ_CHUNK_SIZE = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(StudentService.class);
 
     private final StudentRepository studentRepository;
 
-    private final FacultyRepository facultyRepository;
-    private final AvatarRepository avatarRepository;
     private final RecordMapper recordMapper;
+    private final CursorCodec cursorCodec;
+    private final StudentAggregateService studentAggregateService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final GroupCommitter groupCommitter;
 
-    public StudentService(StudentRepository studentRepository, FacultyRepository facultyRepository, AvatarRepository avatarRepository, RecordMapper recordMapper) {
+    public StudentService(StudentRepository studentRepository, RecordMapper recordMapper, CursorCodec cursorCodec, StudentAggregateService studentAggregateService, ApplicationEventPublisher eventPublisher, GroupCommitter groupCommitter) {
         this.studentRepository = studentRepository;
-        this.facultyRepository = facultyRepository;
-        this.avatarRepository = avatarRepository;
         this.recordMapper = recordMapper;
+        this.cursorCodec = cursorCodec;
+        this.studentAggregateService = studentAggregateService;
+        this.eventPublisher = eventPublisher;
+        this.groupCommitter = groupCommitter;
     }
 
+    @Transactional
     public StudentRecord create(StudentRecord studentRecord) {
         logger.info("Was invoked method to create student");
-        return recordMapper.toRecord(studentRepository.save(recordMapper.toEntity(studentRecord)));
+        Student student = studentRepository.save(recordMapper.toEntity(studentRecord));
+        studentAggregateService.add(1, student.getAge());
+        eventPublisher.publishEvent(StudentChangedEvent.of(null, student));
+        return recordMapper.toRecord(student);
     }
 
     public StudentRecord read(Long id) {
@@ -53,21 +76,76 @@ public class StudentService {
         return recordMapper.toRecord(studentRepository.findById(id).orElseThrow(() -> new StudentNotFoundException(id)));
     }
 
+    /**
+     * Looks the students up with one {@code IN} query per {@value #READ_CHUNK_SIZE} distinct ids,
+     * fetching their faculties and avatars with them.
+     *
+     * @param ids at most {@value MultiGetResult#MAX_IDS}, none of them {@code null}
+     */
+    public MultiGetResult<StudentRecord> read(Collection<Long> ids) {
+        logger.info("Was invoked method to find {} students by id", ids.size());
+        MultiGetResult.checkIds(ids);
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, StudentRecord> found = new HashMap<>();
+        for (int from = 0; from < distinct.size(); from += READ_CHUNK_SIZE) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + READ_CHUNK_SIZE, distinct.size()));
+            studentRepository.findByIdIn(chunk).forEach(student -> found.put(student.getId(), recordMapper.toRecord(student)));
+        }
+        return MultiGetResult.of(distinct, found);
+    }
+
+    /**
+     * @param after cursor returned with the previous page, or {@code null} for the first one
+     */
+    public CursorPage<StudentRecord> getStudents(String after, int size) {
+        logger.info("Was invoked method to get students after cursor {}", after);
+        return cursorCodec.toPage(
+                studentRepository.findByIdGreaterThan(cursorCodec.decode(after), cursorCodec.firstRows(size)),
+                Student::getId, recordMapper::toRecord);
+    }
+
+    /**
+     * Updates the student with a single statement. If {@code studentRecord} has a version, the update only
+     * applies while the student is still at that version. The transaction is the {@link GroupCommitter}'s,
+     * possibly shared with concurrent updates.
+     */
     public StudentRecord update(Long id, StudentRecord studentRecord) {
         logger.info("Was invoked method to update student");
-        Student student = studentRepository.findById(id).orElseThrow(() -> new StudentNotFoundException(id));
-        logger.debug("Was found {}", student);
-        student.setName(studentRecord.getName());
-        student.setAge(studentRecord.getAge());
-        logger.debug("New values for student: age = {}, name = {}", student.getAge(), student.getName());
-        return recordMapper.toRecord(studentRepository.save(student));
+        return groupCommitter.execute(() -> {
+            Long version = studentRecord.getVersion();
+            StudentRow row = studentRepository.updateReturning(id, studentRecord.getName(), studentRecord.getAge(),
+                            version == null ? StudentRepository.ANY_VERSION : version)
+                    .orElseThrow(() -> notFoundOrConflict(id, version));
+            logger.debug("Student was changed from age = {}, name = {} to age = {}, name = {}",
+                    row.getOldAge(), row.getOldName(), row.getAge(), row.getName());
+            studentAggregateService.add(0, row.getAge() - row.getOldAge());
+            eventPublisher.publishEvent(new StudentChangedEvent(row.getId(), row.getOldName(), row.getName(),
+                    row.getAge(), row.getFacultyId()));
+            return recordMapper.toRecord(row);
+        });
     }
 
-    public StudentRecord delete(Long id) {
+    /**
+     * Deletes the student with a single statement, only while it is at {@code version} if one is given.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfiguration.FACULTY_STUDENT_COUNTS, allEntries = true)
+    public StudentRecord delete(Long id, Long version) {
         logger.info("Was invoked method to delete student");
-        Student student = studentRepository.findById(id).orElseThrow(() -> new StudentNotFoundException(id));
-        studentRepository.delete(student);
-        return recordMapper.toRecord(student);
+        StudentRow row = studentRepository.deleteReturning(id, version == null ? StudentRepository.ANY_VERSION : version)
+                .orElseThrow(() -> notFoundOrConflict(id, version));
+        studentAggregateService.add(-1, -row.getAge());
+        eventPublisher.publishEvent(StudentChangedEvent.deleted(id, row.getName()));
+        return recordMapper.toRecord(row);
+    }
+
+    /**
+     * Tells apart the two reasons a versioned write can match no row; only then is the table read.
+     */
+    private RuntimeException notFoundOrConflict(long id, Long version) {
+        return version != null && studentRepository.existsById(id)
+                ? new StudentVersionConflictException(id, version)
+                : new StudentNotFoundException(id);
     }
 
     public Collection<StudentRecord> findByAge(Integer age) {
@@ -92,59 +170,96 @@ public class StudentService {
 
     }
 
+    /**
+     * Sets the avatar id with a single statement; neither the student nor the avatar is loaded.
+     */
     public StudentRecord updateAvatar(Long id, Long avatarId) {
         logger.info("Was invoked method to set avatar for student");
-        Student student = studentRepository.findById(id).orElseThrow(() -> new StudentNotFoundException(id));
-        Avatar avatar = avatarRepository.findById(avatarId).orElseThrow(() -> new AvatarNotFoundException(avatarId));
-
-        student.setAvatar(avatar);
-
-        return recordMapper.toRecord(studentRepository.save(student));
+        StudentRow row = studentRepository.updateAvatarReturning(id, avatarId)
+                .orElseThrow(() -> studentRepository.existsById(id)
+                        ? new AvatarNotFoundException(avatarId)
+                        : new StudentNotFoundException(id));
+        return recordMapper.toRecord(row);
     }
 
+    /**
+     * Sets the faculty id with a single statement; neither the student nor the faculty is loaded.
+     * Like {@link #update(Long, StudentRecord)}, runs in the {@link GroupCommitter}'s transaction.
+     */
+    @CacheEvict(cacheNames = CacheConfiguration.FACULTY_STUDENT_COUNTS, allEntries = true)
     public StudentRecord updateFaculty(Long id, Long facultyId) {
         logger.info("Was invoked method to set faculty for student");
-        Student student = studentRepository.findById(id).orElseThrow(() -> new StudentNotFoundException(id));
-        Faculty faculty = facultyRepository.findById(facultyId).orElseThrow(() -> new FacultyNotFoundException(facultyId));
-
-        student.setFaculty(faculty);
-        return recordMapper.toRecord(studentRepository.save(student));
+        return groupCommitter.execute(() -> {
+            StudentRow row = studentRepository.updateFacultyReturning(id, facultyId)
+                    .orElseThrow(() -> studentRepository.existsById(id)
+                            ? new FacultyNotFoundException(facultyId)
+                            : new StudentNotFoundException(id));
+            eventPublisher.publishEvent(new StudentChangedEvent(row.getId(), row.getOldName(), row.getName(),
+                    row.getAge(), row.getFacultyId()));
+            return recordMapper.toRecord(row);
+        });
     }
 
     public StudentQuantity getStudentQuantity() {
         logger.info("Was invoked method to get quantity students");
-        return studentRepository.getStudentQuantity();
+        int quantity = (int) studentAggregateService.get().getQuantity();
+        return () -> quantity;
     }
 
     public StudentAverageAge getStudentAverageAge() {
         logger.info("Was invoked method to get average age of students");
-        return studentRepository.getStudentAverageAge();
+        double averageAge = studentAggregateService.get().getAverageAge();
+        return () -> averageAge;
     }
 
+    /**
+     * @param size number of students, none if not positive; unlike pages, it is not capped
+     */
     public Collection<StudentRecord> getLastAddedStudents(Integer size) {
         logger.info("Was invoked method to get {} last added students", size);
-        return studentRepository.getLastStudents(size).stream()
+        if (size <= 0) {
+            return List.of();
+        }
+        return studentRepository.getLastStudents(PageRequest.of(0, size)).stream()
                 .map(recordMapper::toRecord)
                 .collect(Collectors.toList());
     }
 
-    public Collection<String> getNamesStudentsStartWith(String firstChar) {
+    /**
+     * @param limit maximum number of names, clamped to {@code 1..}{@value CursorCodec#MAX_PAGE_SIZE}; all names
+     *              if {@code null}
+     */
+    public Collection<String> getNamesStudentsStartWith(String firstChar, Integer limit) {
         logger.info("Was invoked method to get names of all students start with {}", firstChar);
-        List<Student> studentList = studentRepository.findAll();
-        return studentList.stream()
-                .filter(s -> s.getName().startsWith(firstChar))
-                .map(s -> s.getName().toUpperCase())
-                .sorted()
+        Pageable pageable = limit == null ? Pageable.unpaged() : cursorCodec.firstRows(limit);
+        String to = nextPrefix(firstChar);
+        String pattern = firstChar.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        List<String> names = to == null
+                ? studentRepository.findNames(pageable)
+                : studentRepository.findNamesInRange(firstChar, to, pattern, pageable);
+        return names.stream()
+                .map(String::toUpperCase)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * The smallest string greater than every string starting with {@code prefix}, or {@code null} when there is none,
+     * i.e. for an empty prefix.
+     */
+    static String nextPrefix(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        if (end == 0) {
+            return null;
+        }
+        return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+    }
+
     public Double getStudentAverageAgeFromStream() {
         logger.info("Was invoked method to get average age of students with streams");
-        return studentRepository.findAll().stream()
-                .mapToDouble(Student::getAge)
-                .average()
-                .orElse(0);
-
+        return studentAggregateService.get().getAverageAge();
     }
 
     public void printStudentsInConsole() {
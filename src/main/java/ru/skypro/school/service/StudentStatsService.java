@@ -0,0 +1,105 @@
+package ru.skypro.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.school.component.SnapshotLoader;
+import ru.skypro.school.component.StudentColumns;
+import ru.skypro.school.event.FacultyChangedEvent;
+import ru.skypro.school.event.StudentChangedEvent;
+import ru.skypro.school.event.StudentsMovedEvent;
+import ru.skypro.school.record.StudentSelection;
+import ru.skypro.school.record.StudentStats;
+import ru.skypro.school.record.StudentStatsRow;
+import ru.skypro.school.repository.StudentRepository;
+
+import java.util.SortedMap;
+import java.util.stream.Stream;
+
+/**
+ * Reporting statistics over the ages of students, computed from an in-memory {@link StudentColumns} snapshot
+ * instead of a query per request. The snapshot is loaded once the application is ready and then follows
+ * {@link StudentChangedEvent}s, {@link StudentsMovedEvent}s and {@link FacultyChangedEvent}s after commit.
+ */
+@Service
+public class StudentStatsService {
+
+    private final Logger logger = LoggerFactory.getLogger(StudentStatsService.class);
+
+    private final SnapshotLoader loader = new SnapshotLoader();
+    private volatile StudentColumns columns = new StudentColumns();
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public StudentStatsService(StudentRepository studentRepository, PlatformTransactionManager transactionManager) {
+        this.studentRepository = studentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Streams the table into fresh columns without holding their lock, then swaps them in; changes committed
+     * meanwhile are replayed on them by the {@link SnapshotLoader}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        logger.info("Was invoked method to load student stats snapshot");
+        loader.load(() -> transactionTemplate.execute(status -> {
+            StudentColumns loaded = new StudentColumns();
+            try (Stream<StudentStatsRow> rows = studentRepository.streamStatsRows()) {
+                rows.forEach(row -> loaded.put(row.getId(), row.getAge(), row.getFacultyId()));
+            }
+            return loaded;
+        }), loaded -> columns = loaded);
+        logger.debug("{} students were loaded into the stats snapshot", columns.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChanged(StudentChangedEvent event) {
+        if (event.isDeleted()) {
+            loader.apply(() -> columns.remove(event.getId()));
+        } else {
+            loader.apply(() -> columns.put(event.getId(), event.getAge(), event.getFacultyId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFacultyChanged(FacultyChangedEvent event) {
+        if (event.isDeleted()) {
+            loader.apply(() -> columns.removeFaculty(event.getId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsMoved(StudentsMovedEvent event) {
+        StudentSelection selection = event.getSelection();
+        long[] ids = selection.getIds() == null ? null
+                : selection.getIds().stream().mapToLong(Long::longValue).toArray();
+        StudentColumns.Filter filter = StudentColumns.Filter.of(selection.getMinAge(), selection.getMaxAge(),
+                selection.getFacultyId());
+        loader.apply(() -> columns.moveToFaculty(ids, filter, event.getFacultyId()));
+    }
+
+    public StudentStats getStats(Integer minAge, Integer maxAge, Long facultyId) {
+        logger.info("Was invoked method to get stats of students aged {} to {} in faculty {}", minAge, maxAge, facultyId);
+        StudentColumns.Summary summary = columns.summarize(StudentColumns.Filter.of(minAge, maxAge, facultyId));
+        if (summary.getCount() == 0) {
+            return new StudentStats(0, 0, null, null);
+        }
+        return new StudentStats(summary.getCount(), (double) summary.getAgeSum() / summary.getCount(),
+                summary.getMinAge(), summary.getMaxAge());
+    }
+
+    /**
+     * @return the number of students of each age, ages without students omitted
+     */
+    public SortedMap<Integer, Long> getAgeHistogram(Integer minAge, Integer maxAge, Long facultyId) {
+        logger.info("Was invoked method to get age histogram of students");
+        return columns.histogram(StudentColumns.Filter.of(minAge, maxAge, facultyId));
+    }
+}
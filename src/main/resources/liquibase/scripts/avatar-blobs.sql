@@ -0,0 +1,21 @@
+-- liquibase formatted sql
+
+--changeset bulyashev:3
+CREATE TABLE avatar_blobs (
+    hash VARCHAR(64) PRIMARY KEY,
+    file_path VARCHAR(255),
+    file_size BIGINT NOT NULL,
+    reference_count INTEGER NOT NULL,
+    data BYTEA
+);
+
+--changeset bulyashev:4
+ALTER TABLE avatars ADD COLUMN IF NOT EXISTS checksum VARCHAR(64);
+UPDATE avatars SET checksum = encode(sha256(data), 'hex') WHERE checksum IS NULL AND data IS NOT NULL;
+INSERT INTO avatar_blobs (hash, file_path, file_size, reference_count, data)
+SELECT DISTINCT ON (checksum) checksum, file_path, file_size, COUNT(*) OVER (PARTITION BY checksum), data
+FROM avatars
+WHERE checksum IS NOT NULL
+ORDER BY checksum, id;
+UPDATE avatars SET file_path = avatar_blobs.file_path FROM avatar_blobs WHERE avatars.checksum = avatar_blobs.hash;
+ALTER TABLE avatars DROP COLUMN data;
@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+
+--changeset bulyashev:5
+ALTER TABLE avatars ADD COLUMN IF NOT EXISTS uploaded_at TIMESTAMP;
+UPDATE avatars SET uploaded_at = now() WHERE uploaded_at IS NULL;
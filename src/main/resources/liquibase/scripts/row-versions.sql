@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+
+--changeset bulyashev:8
+ALTER TABLE students ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE faculties ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+
+--changeset bulyashev:9
+INSERT INTO student_aggregates (id, quantity, age_sum)
+SELECT id, 0, 0 FROM generate_series(2, 16) AS id;
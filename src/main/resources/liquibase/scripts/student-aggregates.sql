@@ -0,0 +1,10 @@
+-- liquibase formatted sql
+
+--changeset bulyashev:7
+CREATE TABLE student_aggregates (
+    id INTEGER PRIMARY KEY,
+    quantity BIGINT NOT NULL,
+    age_sum BIGINT NOT NULL
+);
+INSERT INTO student_aggregates (id, quantity, age_sum)
+SELECT 1, COUNT(*), COALESCE(SUM(age), 0) FROM students;
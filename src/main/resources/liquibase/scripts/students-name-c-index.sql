@@ -0,0 +1,4 @@
+-- liquibase formatted sql
+
+--changeset bulyashev:10
+CREATE INDEX students_name_c_index ON students (name COLLATE "C");
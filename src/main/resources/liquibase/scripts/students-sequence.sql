@@ -0,0 +1,15 @@
+-- liquibase formatted sql
+
+--changeset bulyashev:6 splitStatements:false
+-- ids are allocated by Hibernate's pooled optimizer in blocks of 50, the sequence value being the top of a block
+DO $$
+DECLARE
+    seq TEXT := pg_get_serial_sequence('students', 'id');
+BEGIN
+    IF seq IS NULL THEN
+        CREATE SEQUENCE students_id_seq;
+        seq := 'students_id_seq';
+    END IF;
+    EXECUTE format('ALTER SEQUENCE %s INCREMENT BY 50', seq);
+    PERFORM setval(seq, (SELECT COALESCE(MAX(id), 0) + 50 FROM students), false);
+END $$;
@@ -7,29 +7,50 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.multipart.MultipartFile;
+import ru.skypro.school.component.AvatarCache;
+import ru.skypro.school.component.ByteBufferPool;
+import ru.skypro.school.component.CursorCodec;
+import ru.skypro.school.component.FileDownloadSupport;
 import ru.skypro.school.component.RecordMapper;
 import ru.skypro.school.controller.AvatarController;
 import ru.skypro.school.entity.Avatar;
+import ru.skypro.school.entity.AvatarBlobContent;
+import ru.skypro.school.record.AvatarBlobReference;
+import ru.skypro.school.repository.AvatarBlobRepository;
 import ru.skypro.school.repository.AvatarRepository;
 import ru.skypro.school.service.AvatarService;
+import ru.skypro.school.service.AvatarVariantService;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = AvatarController.class)
 @ExtendWith(MockitoExtension.class)
@@ -41,12 +62,33 @@ public class AvatarControllerTest {
     @MockBean
     AvatarRepository avatarRepository;
 
+    @MockBean
+    AvatarBlobRepository avatarBlobRepository;
+
     @SpyBean
     AvatarService avatarService;
 
     @SpyBean
     private RecordMapper recordMapper;
 
+    @SpyBean
+    private ByteBufferPool byteBufferPool;
+
+    @SpyBean
+    private FileDownloadSupport fileDownloadSupport;
+
+    @MockBean
+    private AvatarVariantService avatarVariantService;
+
+    @SpyBean
+    private AvatarCache avatarCache;
+
+    @SpyBean
+    private CursorCodec cursorCodec;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
     @Test
     public void create() throws Exception {
         final String imageFile = "src/test/java/ru/skypro/school/testresource/test.gif";
@@ -60,18 +102,26 @@ public class AvatarControllerTest {
         ReflectionTestUtils.setField(avatarService, "avatarsFolder", imagePathNew);
         Avatar avatar = createAvatar(multipartFile);
         avatar.setId(1L);
-        avatar.setFilePath("src/test/java/ru/skypro/school/testresource/test.gif");
+
+        AvatarBlobContent content = new AvatarBlobContent();
+        content.setHash(avatar.getChecksum());
+        content.setData(multipartFile.getBytes());
 
         when(avatarRepository.save(any())).thenReturn(avatar);
         when(avatarRepository.findById(any())).thenReturn(Optional.of(avatar));
+        when(avatarBlobRepository.addReference(any(), any(), anyLong())).thenAnswer(invocation -> {
+            avatar.setFilePath(invocation.getArgument(1));
+            return createBlobReference(avatar.getFilePath());
+        });
+        when(avatarBlobRepository.findContent(avatar.getChecksum())).thenReturn(Optional.of(content));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .multipart("/avatars")
                         .file(multipartFile))
-                .andExpect(status().isOk());
-
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1L));
 
-        File actualFile = new File("src/test/java/ru/skypro/school/testresource/1.gif");
+        File actualFile = new File(avatar.getFilePath());
         File expectedFile = new File("src/test/java/ru/skypro/school/testresource/test.gif");
         assertThat(actualFile).exists();
         assertThat(actualFile).hasSameBinaryContentAs(expectedFile);
@@ -97,11 +147,173 @@ public class AvatarControllerTest {
         actualFile.delete();
     }
 
+    @Test
+    public void readFromFsWithRange() throws Exception {
+        File file = new File("src/test/java/ru/skypro/school/testresource/test.gif");
+        Avatar avatar = new Avatar();
+        avatar.setId(1L);
+        avatar.setMediaType("image/gif");
+        avatar.setFilePath(file.getPath());
+
+        when(avatarRepository.findById(any())).thenReturn(Optional.of(avatar));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars/1/from-fs")
+                        .header(HttpHeaders.RANGE, "bytes=0-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/" + file.length()))
+                .andExpect(result -> assertThat(result.getResponse().getContentAsByteArray())
+                        .isEqualTo(Arrays.copyOf(Files.readAllBytes(file.toPath()), 10)));
+
+        String lastModified = httpDate(file.lastModified());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars/1/from-fs")
+                        .header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, lastModified))
+                .andExpect(status().isPartialContent());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars/1/from-fs")
+                        .header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, httpDate(file.lastModified() - 60_000)))
+                .andExpect(status().isOk())
+                .andExpect(result -> assertThat(result.getResponse().getContentLength()).isEqualTo(file.length()));
+    }
+
+    @Test
+    public void readFromFsWithSendfile() throws Exception {
+        File file = new File("src/test/java/ru/skypro/school/testresource/test.gif");
+        Avatar avatar = new Avatar();
+        avatar.setId(1L);
+        avatar.setMediaType("image/gif");
+        avatar.setFilePath(file.getPath());
+
+        when(avatarRepository.findById(any())).thenReturn(Optional.of(avatar));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars/1/from-fs")
+                        .requestAttr("org.apache.tomcat.sendfile.support", Boolean.TRUE)
+                        .header(HttpHeaders.RANGE, "bytes=10-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.filename", file.getCanonicalPath()))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.start", 10L))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.end", file.length()))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, file.length() - 10))
+                .andExpect(result -> assertThat(result.getResponse().getContentAsByteArray()).isEmpty());
+    }
+
+    @Test
+    public void readWithConditionalRequest() throws Exception {
+        File file = new File("src/test/java/ru/skypro/school/testresource/test.gif");
+        Avatar avatar = new Avatar();
+        avatar.setId(1L);
+        avatar.setMediaType("image/gif");
+        avatar.setFilePath(file.getPath());
+        avatar.setChecksum("abc");
+        avatar.setUploadedAt(Instant.parse("2022-10-01T10:00:00Z"));
+
+        when(avatarRepository.findById(any())).thenReturn(Optional.of(avatar));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars/1/from-fs"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, avatar.getUploadedAt().toEpochMilli()))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars/1/from-db")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(result -> assertThat(result.getResponse().getContentAsByteArray()).isEmpty());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars/1/from-fs")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, httpDate(avatar.getUploadedAt().toEpochMilli())))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars/1/from-fs?w=64")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc-w64\""))
+                .andExpect(status().isNotModified());
+
+        verify(avatarBlobRepository, never()).findContent(any());
+        verify(avatarService, times(1)).readAvatarFromFs(any(Avatar.class));
+        verifyNoInteractions(avatarVariantService);
+
+        when(avatarVariantService.isGenerating(file.toPath())).thenReturn(true);
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars/1/from-fs?w=64")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"));
+
+        // generation is over without a variant for this width, the original is served for good
+        when(avatarVariantService.isGenerating(file.toPath())).thenReturn(false);
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars/1/from-fs?w=512")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars/1/from-fs?w=512"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"));
+    }
+
+    @Test
+    public void readAfterCursor() throws Exception {
+        Avatar avatar = new Avatar();
+        avatar.setId(7L);
+        avatar.setMediaType("image/gif");
+
+        when(avatarRepository.findByIdGreaterThanOrderById(0, PageRequest.of(0, 1)))
+                .thenReturn(new SliceImpl<>(List.of(avatar), PageRequest.of(0, 1), true));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars?size=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(7))
+                .andExpect(jsonPath("$.nextCursor").value(cursorCodec.encode(7)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatars?after=!&size=1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+    }
+
     private Avatar createAvatar(MultipartFile avatarFile) throws IOException {
         Avatar avatar = new Avatar();
         avatar.setMediaType(avatarFile.getContentType());
         avatar.setFileSize(avatarFile.getSize());
-        avatar.setData(avatarFile.getBytes());
+        avatar.setChecksum(sha256Hex(avatarFile.getBytes()));
         return avatar;
     }
+
+    private String sha256Hex(byte[] bytes) {
+        try {
+            return String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(bytes)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private AvatarBlobReference createBlobReference(String filePath) {
+        return new AvatarBlobReference() {
+            @Override
+            public String getFilePath() {
+                return filePath;
+            }
+
+            @Override
+            public boolean getInserted() {
+                return true;
+            }
+        };
+    }
 }
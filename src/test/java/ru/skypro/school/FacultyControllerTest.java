@@ -1,6 +1,7 @@
 package ru.skypro.school;
 
 import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -8,24 +9,34 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.skypro.school.component.FacultyCatalog;
 import ru.skypro.school.component.RecordMapper;
 import ru.skypro.school.controller.FacultyController;
 import ru.skypro.school.entity.Faculty;
 import ru.skypro.school.entity.Student;
 import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.record.FacultyRow;
+import ru.skypro.school.record.MultiGetResult;
 import ru.skypro.school.record.StudentRecord;
 import ru.skypro.school.repository.FacultyRepository;
+import ru.skypro.school.repository.StudentRepository;
 import ru.skypro.school.service.FacultyService;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
@@ -42,12 +53,24 @@ public class FacultyControllerTest {
     @MockBean
     private FacultyRepository facultyRepository;
 
+    @MockBean
+    private StudentRepository studentRepository;
+
     @SpyBean
     private FacultyService facultyService;
 
     @SpyBean
     private RecordMapper recordMapper;
 
+    @SpyBean
+    private FacultyCatalog facultyCatalog;
+
+    @BeforeEach
+    public void setUp() {
+        // the catalog outlives the test that filled it, start every test from the (empty) repository
+        facultyCatalog.refresh();
+    }
+
     @Test
     public void create() throws Exception {
         Faculty faculty = createFaculty(1, "test", "red");
@@ -90,21 +113,55 @@ public class FacultyControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void readByIds() throws Exception {
+        when(facultyRepository.findAllById(any())).thenReturn(List.of(
+                createFaculty(3, "third", "red"), createFaculty(1, "first", "blue")));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculties?ids=3,2,1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found[*].id").value(contains(3, 1)))
+                .andExpect(jsonPath("$.missingIds").value(contains(2)));
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/faculties/by-ids")
+                        .content("[1, 3]")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found[*].name").value(contains("first", "third")))
+                .andExpect(jsonPath("$.missingIds").isEmpty());
+    }
+
+    @Test
+    public void findFacultiesByInvalidIds() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/faculties/by-ids")
+                        .content("[1, null]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculties?ids=1,,2"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/faculties/by-ids")
+                        .content(Collections.nCopies(MultiGetResult.MAX_IDS + 1, "1").toString())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void editFaculty() throws Exception {
-        Faculty faculty = createFaculty(1, "test", "black");
-        Faculty facultyNew = createFaculty(1, "test2", "red");
         FacultyRecord facultyRecord = createFacultyRecord(1, "test2", "red");
 
         JSONObject json = new JSONObject();
-        json.put("name", facultyNew.getName());
-        json.put("color", facultyNew.getColor());
+        json.put("name", facultyRecord.getName());
+        json.put("color", facultyRecord.getColor());
 
-        when(facultyRepository.findById(any()))
-                .thenReturn(Optional.of(faculty))
+        when(facultyRepository.updateReturning(1L, "test2", "red", FacultyRepository.ANY_VERSION))
+                .thenReturn(Optional.of(createFacultyRow(1, "test2", "red", 1)))
                 .thenReturn(Optional.empty());
-        when(facultyRepository.save(any(Faculty.class)))
-                .thenReturn(facultyNew);
 
         mockMvc.perform(MockMvcRequestBuilders
                         .put("/faculties/1")
@@ -114,7 +171,8 @@ public class FacultyControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(facultyRecord.getId()))
                 .andExpect(jsonPath("$.name").value(facultyRecord.getName()))
-                .andExpect(jsonPath("$.color").value(facultyRecord.getColor()));
+                .andExpect(jsonPath("$.color").value(facultyRecord.getColor()))
+                .andExpect(jsonPath("$.version").value(1));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .put("/faculties/1")
@@ -128,15 +186,35 @@ public class FacultyControllerTest {
                 });
     }
 
+    @Test
+    public void editFacultyVersionConflict() throws Exception {
+        JSONObject json = new JSONObject();
+        json.put("name", "test2");
+        json.put("color", "red");
+        json.put("version", 3);
+
+        when(facultyRepository.updateReturning(1L, "test2", "red", 3L)).thenReturn(Optional.empty());
+        when(facultyRepository.existsById(1L)).thenReturn(true);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .put("/faculties/1")
+                        .content(json.toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict())
+                .andExpect(result -> {
+                    assertThat(result.getResponse().getContentAsString(StandardCharsets.UTF_8))
+                            .isEqualTo("Факультет с id = 1 был изменён после версии 3!");
+                });
+    }
+
     @Test
     public void delete() throws Exception {
-        Faculty faculty = createFaculty(1, "test", "black");
         FacultyRecord facultyRecord = createFacultyRecord(1, "test", "black");
 
-        when(facultyRepository.findById(any()))
-                .thenReturn(Optional.of(faculty))
+        when(facultyRepository.deleteReturning(1L, FacultyRepository.ANY_VERSION))
+                .thenReturn(Optional.of(createFacultyRow(1, "test", "black", 0)))
                 .thenReturn(Optional.empty());
-        doNothing().when(facultyRepository).deleteById(any());
 
         mockMvc.perform(MockMvcRequestBuilders
                         .delete("/faculties/1")
@@ -162,13 +240,12 @@ public class FacultyControllerTest {
     public void findByFilterString() throws Exception {
         List<Faculty> faculties = List.of(
                 createFaculty(1, "1", "red"),
-                createFaculty(3, "3", "red")
+                createFaculty(3, "3", "red"),
+                createFaculty(5, "5", "blue")
         );
 
-        when(facultyRepository.findByNameLikeIgnoreCaseOrColorLikeIgnoreCase(any(), any()))
-                .thenReturn(faculties)
-                .thenReturn(Collections.emptyList());
-
+        when(facultyRepository.findAll()).thenReturn(faculties);
+        facultyCatalog.refresh();
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/faculties?filterString=red")
@@ -192,10 +269,7 @@ public class FacultyControllerTest {
                 createStudent(3, "3", 18)
         );
 
-        Faculty faculty = createFaculty(1, "test", "red");
-        faculty.setStudents(students);
-
-        when(facultyRepository.findById(any())).thenReturn(Optional.of(faculty));
+        when(studentRepository.findByFacultyId(1L, Pageable.unpaged())).thenReturn(students);
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/faculties/{id}/students", 1)
@@ -205,6 +279,31 @@ public class FacultyControllerTest {
                 .andExpect(jsonPath("$[*].name").value(containsInAnyOrder("1", "3")));
     }
 
+    @Test
+    public void findStudentsPage() throws Exception {
+        Faculty faculty = createFaculty(1, "test", "red");
+        Student student = createStudent(3, "3", 18);
+        student.setFaculty(faculty);
+        PageRequest pageRequest = PageRequest.of(1, 1, Sort.by(Sort.Direction.DESC, "name"));
+
+        when(studentRepository.countByFacultyId(1L)).thenReturn(2L);
+        when(studentRepository.findByFacultyId(1L, pageRequest)).thenReturn(List.of(student));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculties/{id}/students?page=2&size=1&sort=name,desc", 1)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].name").value(containsInAnyOrder("3")))
+                .andExpect(jsonPath("$.content[0].facultyRecord.name").value("test"))
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.totalPages").value(2));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculties/{id}/students?page=1&sort=avatar", 1)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     private Faculty createFaculty(long id, String name, String color) {
         Faculty faculty = new Faculty();
         faculty.setId(id);
@@ -213,6 +312,11 @@ public class FacultyControllerTest {
         return faculty;
     }
 
+    private FacultyRow createFacultyRow(long id, String name, String color, long version) {
+        return new SpelAwareProxyProjectionFactory().createProjection(FacultyRow.class,
+                Map.of("id", id, "name", name, "color", color, "version", version));
+    }
+
     private FacultyRecord createFacultyRecord(long id, String name, String color) {
         FacultyRecord facultyRecord = new FacultyRecord();
         facultyRecord.setId(id);
@@ -9,6 +9,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
@@ -18,14 +19,18 @@ import ru.skypro.school.entity.Faculty;
 import ru.skypro.school.entity.Student;
 import ru.skypro.school.record.FacultyRecord;
 import ru.skypro.school.record.StudentRecord;
+import ru.skypro.school.record.StudentRow;
 import ru.skypro.school.repository.StudentRepository;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
 
@@ -87,15 +92,11 @@ public class StudentControllerTest {
 
     @Test
     public void update() {
-        StudentRecord studentRecord = createStudentRecord(1, "test", 18);
-        Student student = createStudent(1, "test", 18);
-        Student studentNew = createStudent(1, "testNew", 20);
         StudentRecord studentRecordNew = createStudentRecord(1, "testNew", 20);
 
-        when(studentRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(student))
+        when(studentRepository.updateReturning(anyLong(), any(), anyInt(), anyLong()))
+                .thenReturn(Optional.of(createStudentRow(1, "test", 18, "testNew", 20)))
                 .thenReturn(Optional.empty());
-        when(studentRepository.save(any(Student.class))).thenReturn(studentNew);
 
 
         ResponseEntity<StudentRecord> recordResponseEntity = testRestTemplate.exchange(
@@ -121,14 +122,11 @@ public class StudentControllerTest {
     @Test
     public void delete() {
         StudentRecord studentRecord = createStudentRecord(1, "test", 18);
-        Student student = createStudent(1, "test", 18);
 
-        when(studentRepository.findById(any(Long.class)))
-                .thenReturn(Optional.of(student))
+        when(studentRepository.deleteReturning(anyLong(), anyLong()))
+                .thenReturn(Optional.of(createStudentRow(1, "test", 18, "test", 18)))
                 .thenReturn(Optional.empty());
 
-        doNothing().when(studentRepository).delete(any(Student.class));
-
 //        HttpEntity<StudentRecord> entity = new HttpEntity<>(studentRecord);
 
         ResponseEntity<StudentRecord> responseEntity = testRestTemplate.exchange(
@@ -266,4 +264,9 @@ public class StudentControllerTest {
         facultyRecord.setColor(color);
         return facultyRecord;
     }
+
+    private StudentRow createStudentRow(long id, String oldName, int oldAge, String name, int age) {
+        return new SpelAwareProxyProjectionFactory().createProjection(StudentRow.class, Map.of(
+                "id", id, "oldName", oldName, "oldAge", oldAge, "name", name, "age", age, "version", 1L));
+    }
 }
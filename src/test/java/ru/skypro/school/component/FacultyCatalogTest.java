@@ -0,0 +1,126 @@
+package ru.skypro.school.component;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.event.FacultyChangedEvent;
+import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.repository.FacultyRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FacultyCatalogTest {
+
+    @Mock
+    FacultyRepository facultyRepository;
+
+    @Test
+    public void loadsOnceOnFirstUse() {
+        FacultyCatalog facultyCatalog = new FacultyCatalog(facultyRepository, new RecordMapper());
+        when(facultyRepository.findAll()).thenReturn(List.of(createFaculty(1, "Гриффиндор", "красный")));
+
+        assertThat(facultyCatalog.snapshot().get(1)).map(FacultyRecord::getName).contains("Гриффиндор");
+        assertThat(facultyCatalog.snapshot().size()).isEqualTo(1);
+        verify(facultyRepository, times(1)).findAll();
+    }
+
+    @Test
+    public void changesSwapSnapshot() {
+        FacultyCatalog facultyCatalog = new FacultyCatalog(facultyRepository, new RecordMapper());
+        when(facultyRepository.findAll()).thenReturn(List.of(
+                createFaculty(1, "Гриффиндор", "красный"),
+                createFaculty(2, "Когтевран", "синий")
+        ));
+        FacultyCatalog.Snapshot before = facultyCatalog.snapshot();
+
+        facultyCatalog.onFacultyChanged(new FacultyChangedEvent(3, "Пуффендуй", "жёлтый", 1));
+        facultyCatalog.onFacultyChanged(new FacultyChangedEvent(1, "Гриффиндор", "алый", 1));
+        facultyCatalog.onFacultyChanged(FacultyChangedEvent.deleted(2));
+
+        FacultyCatalog.Snapshot after = facultyCatalog.snapshot();
+        assertThat(after.getAll()).extracting(FacultyRecord::getId).containsExactly(1L, 3L);
+        assertThat(after.findByColor("алый")).extracting(FacultyRecord::getId).containsExactly(1L);
+        assertThat(after.findByColor("красный")).isEmpty();
+        assertThat(after.byNameLength()).extracting(FacultyRecord::getName).containsExactly("Гриффиндор", "Пуффендуй");
+        assertThat(before.getAll()).extracting(FacultyRecord::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    public void facultyWithoutNameAndColorIsNotDeleted() {
+        FacultyCatalog facultyCatalog = new FacultyCatalog(facultyRepository, new RecordMapper());
+        when(facultyRepository.findAll()).thenReturn(List.of(createFaculty(1, "Гриффиндор", "красный")));
+        facultyCatalog.snapshot();
+
+        facultyCatalog.onFacultyChanged(new FacultyChangedEvent(1, null, null, 2));
+        facultyCatalog.onFacultyChanged(new FacultyChangedEvent(2, null, null, 0));
+
+        assertThat(facultyCatalog.snapshot().getAll()).extracting(FacultyRecord::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    public void olderVersionDoesNotReplaceNewer() {
+        FacultyCatalog facultyCatalog = new FacultyCatalog(facultyRepository, new RecordMapper());
+        when(facultyRepository.findAll()).thenReturn(List.of());
+        facultyCatalog.snapshot();
+
+        facultyCatalog.onFacultyChanged(new FacultyChangedEvent(1, "Гриффиндор", "алый", 3));
+        facultyCatalog.onFacultyChanged(new FacultyChangedEvent(1, "Гриффиндор", "красный", 2));
+
+        assertThat(facultyCatalog.snapshot().get(1)).map(FacultyRecord::getColor).contains("алый");
+        facultyCatalog.onFacultyChanged(new FacultyChangedEvent(1, "Гриффиндор", "бордовый", 4));
+        assertThat(facultyCatalog.snapshot().get(1)).map(FacultyRecord::getColor).contains("бордовый");
+    }
+
+    @Test
+    public void snapshotReturnsCopies() {
+        FacultyCatalog facultyCatalog = new FacultyCatalog(facultyRepository, new RecordMapper());
+        when(facultyRepository.findAll()).thenReturn(List.of(createFaculty(1, "Гриффиндор", "красный")));
+        FacultyCatalog.Snapshot snapshot = facultyCatalog.snapshot();
+
+        snapshot.get(1).orElseThrow().setName("Слизерин");
+        snapshot.findByColor("красный").get(0).setColor("зелёный");
+        snapshot.withLongestName().orElseThrow().setName("");
+
+        assertThat(snapshot.getAll()).extracting(FacultyRecord::getName, FacultyRecord::getColor)
+                .containsExactly(tuple("Гриффиндор", "красный"));
+    }
+
+    @Test
+    public void refreshPicksUpOutOfBandChanges() {
+        FacultyCatalog facultyCatalog = new FacultyCatalog(facultyRepository, new RecordMapper());
+        when(facultyRepository.findAll())
+                .thenReturn(List.of(createFaculty(1, "Гриффиндор", "красный")))
+                .thenReturn(List.of(createFaculty(4, "Слизерин", "зелёный")));
+        facultyCatalog.snapshot();
+
+        facultyCatalog.refresh();
+
+        assertThat(facultyCatalog.snapshot().getAll()).extracting(FacultyRecord::getId).containsExactly(4L);
+    }
+
+    @Test
+    public void likeToRegex() {
+        assertThat(FacultyCatalog.Snapshot.likeToRegex("%ФФ_н%").matcher("Гриффиндор").matches()).isTrue();
+        assertThat(FacultyCatalog.Snapshot.likeToRegex("гриф").matcher("Гриффиндор").matches()).isFalse();
+        assertThat(FacultyCatalog.Snapshot.likeToRegex("a.c").matcher("abc").matches()).isFalse();
+        assertThat(FacultyCatalog.Snapshot.likeToRegex("100\\%").matcher("100%").matches()).isTrue();
+        assertThat(FacultyCatalog.Snapshot.likeToRegex("100\\%").matcher("1000").matches()).isFalse();
+    }
+
+    private Faculty createFaculty(long id, String name, String color) {
+        Faculty faculty = new Faculty();
+        faculty.setId(id);
+        faculty.setName(name);
+        faculty.setColor(color);
+        return faculty;
+    }
+}
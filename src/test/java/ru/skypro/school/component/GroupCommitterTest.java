@@ -0,0 +1,174 @@
+package ru.skypro.school.component;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class GroupCommitterTest {
+
+    static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    PlatformTransactionManager transactionManager;
+    ExecutorService callers;
+    GroupCommitter groupCommitter;
+
+    @BeforeEach
+    public void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        callers = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        callers.shutdownNow();
+        if (groupCommitter != null) {
+            groupCommitter.stop();
+        }
+    }
+
+    @Test
+    public void disabledRunsEachWriteInItsOwnTransaction() {
+        groupCommitter = new GroupCommitter(transactionManager, false, Duration.ofSeconds(1), 10, TIMEOUT);
+
+        assertThat(groupCommitter.execute(() -> Thread.currentThread().getName()))
+                .isEqualTo(Thread.currentThread().getName());
+        assertThat(groupCommitter.execute(() -> 2)).isEqualTo(2);
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    public void concurrentWritesShareOneTransaction() {
+        groupCommitter = new GroupCommitter(transactionManager, true, Duration.ofSeconds(5), 4, TIMEOUT);
+
+        List<CompletableFuture<Integer>> results = submit(4, i -> () -> i);
+
+        assertThat(results.stream().map(CompletableFuture::join)).containsExactlyInAnyOrder(0, 1, 2, 3);
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    public void writeInsideTransactionJoinsIt() {
+        groupCommitter = new GroupCommitter(transactionManager, true, Duration.ofSeconds(5), 4, TIMEOUT);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThat(groupCommitter.execute(() -> Thread.currentThread().getName()))
+                    .isEqualTo(Thread.currentThread().getName());
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    @Test
+    public void failedWriteDoesNotAffectOthers() {
+        groupCommitter = new GroupCommitter(transactionManager, true, Duration.ofSeconds(5), 3, TIMEOUT);
+
+        List<CompletableFuture<Integer>> results = submit(3, i -> () -> {
+            if (i == 1) {
+                throw new IllegalStateException("write " + i);
+            }
+            return i;
+        });
+
+        assertThat(results.get(0).join()).isZero();
+        assertThatThrownBy(results.get(1)::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(results.get(2).join()).isEqualTo(2);
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    public void databaseFailureRetriesEachWrite() {
+        groupCommitter = new GroupCommitter(transactionManager, true, Duration.ofSeconds(5), 3, TIMEOUT);
+        AtomicInteger attempts = new AtomicInteger();
+
+        List<CompletableFuture<Integer>> results = submit(3, i -> () -> {
+            if (i == 1 && attempts.getAndIncrement() == 0) {
+                throw new DataIntegrityViolationException("write " + i);
+            }
+            return i;
+        });
+
+        assertThat(results.stream().map(CompletableFuture::join)).containsExactlyInAnyOrder(0, 1, 2);
+        // the group that was rolled back, then one transaction per write
+        verify(transactionManager, times(4)).getTransaction(any());
+    }
+
+    @Test
+    public void errorInWriteDoesNotStopLaterGroups() {
+        groupCommitter = new GroupCommitter(transactionManager, true, Duration.ZERO, 1, TIMEOUT);
+
+        assertThatThrownBy(() -> groupCommitter.execute(() -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+        assertThat(groupCommitter.execute(() -> 2)).isEqualTo(2);
+    }
+
+    @Test
+    public void errorInCommitFailsTheWrites() {
+        doThrow(new OutOfMemoryError()).doNothing().when(transactionManager).commit(any());
+        groupCommitter = new GroupCommitter(transactionManager, true, Duration.ZERO, 1, TIMEOUT);
+
+        // the group commit fails, the retry of the write commits
+        assertThat(groupCommitter.execute(() -> 1)).isEqualTo(1);
+        doThrow(new OutOfMemoryError()).when(transactionManager).commit(any());
+        assertThatThrownBy(() -> groupCommitter.execute(() -> 2)).isInstanceOf(OutOfMemoryError.class);
+        doNothing().when(transactionManager).commit(any());
+        assertThat(groupCommitter.execute(() -> 3)).isEqualTo(3);
+    }
+
+    @Test
+    public void queuedWriteTimesOut() throws InterruptedException {
+        groupCommitter = new GroupCommitter(transactionManager, true, Duration.ZERO, 1, Duration.ofMillis(100));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger written = new AtomicInteger();
+        CompletableFuture<Integer> blocking = submit(1, i -> () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return written.incrementAndGet();
+        }).get(0);
+        started.await();
+
+        try {
+            assertThatThrownBy(() -> groupCommitter.execute(written::incrementAndGet))
+                    .isInstanceOf(TransactionTimedOutException.class);
+        } finally {
+            release.countDown();
+        }
+        assertThat(blocking.join()).isEqualTo(1);
+        assertThat(groupCommitter.execute(written::incrementAndGet)).isEqualTo(2);
+    }
+
+    private List<CompletableFuture<Integer>> submit(int count, IntFunction<Supplier<Integer>> writes) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> groupCommitter.execute(writes.apply(i)), callers))
+                .collect(Collectors.toList());
+    }
+}
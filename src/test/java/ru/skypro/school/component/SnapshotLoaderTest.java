@@ -0,0 +1,64 @@
+package ru.skypro.school.component;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SnapshotLoaderTest {
+
+    SnapshotLoader loader = new SnapshotLoader(3, Duration.ZERO);
+
+    List<String> snapshot = new ArrayList<>(List.of("old"));
+
+    @Test
+    public void changesDuringLoadAreReplayedOnNewSnapshot() {
+        loader.apply(() -> snapshot.add("before"));
+
+        loader.load(() -> {
+            loader.apply(() -> snapshot.add("during"));
+            assertThat(snapshot).containsExactly("old", "before");
+            return new ArrayList<>(List.of("loaded"));
+        }, loaded -> snapshot = loaded);
+        loader.apply(() -> snapshot.add("after"));
+
+        assertThat(snapshot).containsExactly("loaded", "during", "after");
+    }
+
+    @Test
+    public void failedLoadIsRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        loader.load(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new DataAccessResourceFailureException("connection lost");
+            }
+            return List.of("loaded");
+        }, loaded -> snapshot = new ArrayList<>(loaded));
+
+        assertThat(calls).hasValue(3);
+        assertThat(snapshot).containsExactly("loaded");
+    }
+
+    @Test
+    public void lastFailureIsThrownAndChangesApplyToOldSnapshot() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> loader.load(() -> {
+            calls.incrementAndGet();
+            loader.apply(() -> snapshot.add("during"));
+            throw new DataAccessResourceFailureException("connection lost");
+        }, loaded -> snapshot = new ArrayList<>()))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        loader.apply(() -> snapshot.add("after"));
+
+        assertThat(calls).hasValue(3);
+        assertThat(snapshot).containsExactly("old", "during", "during", "during", "after");
+    }
+}
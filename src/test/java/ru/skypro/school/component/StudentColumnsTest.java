@@ -0,0 +1,103 @@
+package ru.skypro.school.component;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StudentColumnsTest {
+
+    StudentColumns columns;
+
+    @BeforeEach
+    public void setUp() {
+        columns = new StudentColumns();
+        columns.put(1, 17, 1L);
+        columns.put(2, 18, 1L);
+        columns.put(4, 18, 2L);
+        columns.put(5, 20, null);
+    }
+
+    @Test
+    public void summarize() {
+        StudentColumns.Summary summary = columns.summarize(StudentColumns.Filter.all());
+        assertThat(summary.getCount()).isEqualTo(4);
+        assertThat(summary.getAgeSum()).isEqualTo(73);
+        assertThat(summary.getMinAge()).isEqualTo(17);
+        assertThat(summary.getMaxAge()).isEqualTo(20);
+
+        summary = columns.summarize(StudentColumns.Filter.of(18, null, 1L));
+        assertThat(summary.getCount()).isEqualTo(1);
+        assertThat(summary.getAgeSum()).isEqualTo(18);
+
+        assertThat(columns.summarize(StudentColumns.Filter.of(21, null, null)).getCount()).isZero();
+    }
+
+    @Test
+    public void histogram() {
+        assertThat(columns.histogram(StudentColumns.Filter.all())).containsExactly(
+                Map.entry(17, 1L), Map.entry(18, 2L), Map.entry(20, 1L));
+        assertThat(columns.histogram(StudentColumns.Filter.of(null, 19, 2L))).containsExactly(Map.entry(18, 1L));
+        assertThat(columns.histogram(StudentColumns.Filter.of(null, null, 3L))).isEmpty();
+    }
+
+    @Test
+    public void putAndRemove() {
+        columns.put(3, 30, 2L);
+        columns.put(4, 19, 2L);
+        columns.remove(1);
+        columns.remove(6);
+        columns.removeFaculty(1);
+
+        assertThat(columns.size()).isEqualTo(4);
+        assertThat(columns.histogram(StudentColumns.Filter.of(null, null, 2L))).containsExactly(
+                Map.entry(19, 1L), Map.entry(30, 1L));
+        assertThat(columns.summarize(StudentColumns.Filter.of(null, null, 1L)).getCount()).isZero();
+    }
+
+    @Test
+    public void moveToFaculty() {
+        columns.moveToFaculty(null, StudentColumns.Filter.of(18, null, null), 3);
+        assertThat(columns.histogram(StudentColumns.Filter.of(null, null, 3L))).containsExactly(
+                Map.entry(18, 2L), Map.entry(20, 1L));
+
+        columns.moveToFaculty(new long[]{1, 4, 7}, StudentColumns.Filter.of(null, null, 3L), 2);
+        assertThat(columns.summarize(StudentColumns.Filter.of(null, null, 2L)).getCount()).isEqualTo(1);
+        assertThat(columns.summarize(StudentColumns.Filter.of(null, null, 1L)).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void histogramOfExtremeAges() {
+        columns.put(6, -1, null);
+        columns.put(7, Integer.MAX_VALUE, null);
+        columns.put(8, Integer.MAX_VALUE, 1L);
+        columns.put(9, 2_000_000_000, 2L);
+
+        assertThat(columns.histogram(StudentColumns.Filter.all())).containsExactly(
+                Map.entry(-1, 1L), Map.entry(17, 1L), Map.entry(18, 2L), Map.entry(20, 1L),
+                Map.entry(2_000_000_000, 1L), Map.entry(Integer.MAX_VALUE, 2L));
+        assertThat(columns.histogram(StudentColumns.Filter.of(0, null, 1L))).containsExactly(
+                Map.entry(17, 1L), Map.entry(18, 1L), Map.entry(Integer.MAX_VALUE, 1L));
+        assertThat(columns.summarize(StudentColumns.Filter.all()).getMaxAge()).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void splitsLargeScans() {
+        columns.clear();
+        int size = StudentColumns.SPLIT_THRESHOLD * 5 + 3;
+        for (int i = 0; i < size; i++) {
+            columns.put(i + 1, 16 + i % 10, i % 3 + 1L);
+        }
+
+        StudentColumns.Summary summary = columns.summarize(StudentColumns.Filter.all());
+        assertThat(summary.getCount()).isEqualTo(size);
+        assertThat(summary.getMinAge()).isEqualTo(16);
+        assertThat(summary.getMaxAge()).isEqualTo(25);
+        assertThat(columns.histogram(StudentColumns.Filter.all()).values().stream().mapToLong(Long::longValue).sum())
+                .isEqualTo(size);
+        assertThat(columns.summarize(StudentColumns.Filter.of(null, null, 1L)).getCount())
+                .isEqualTo((size + 2) / 3);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.skypro.school.component;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class TrigramIndexTest {
+
+    TrigramIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new TrigramIndex();
+        index.put(1, "Гарри Поттер");
+        index.put(2, "Гермиона Грейнджер");
+        index.put(3, "Рон Уизли");
+        index.put(4, "Джинни Уизли");
+        index.put(5, "Уизли");
+    }
+
+    @Test
+    public void search() {
+        assertThat(index.search("уизли", 10))
+                .extracting(TrigramIndex.Match::getId, TrigramIndex.Match::getRank)
+                .containsExactly(
+                        tuple(5L, 0),
+                        tuple(3L, 2),
+                        tuple(4L, 2));
+        assertThat(index.search("ЕРМИ", 10)).extracting(TrigramIndex.Match::getId).containsExactly(2L);
+        assertThat(index.search("уизли", 1)).extracting(TrigramIndex.Match::getId).containsExactly(5L);
+        assertThat(index.search("Гарри Уизли", 10)).isEmpty();
+    }
+
+    @Test
+    public void searchShorterThanTrigram() {
+        assertThat(index.search("о", 10)).extracting(TrigramIndex.Match::getId).containsExactly(3L, 1L, 2L);
+    }
+
+    @Test
+    public void putReplacesAndRemoveDeletes() {
+        index.put(2, "Гермиона Уизли");
+        index.remove(5);
+
+        assertThat(index.search("уизли", 10)).extracting(TrigramIndex.Match::getId).containsExactly(3L, 4L, 2L);
+        assertThat(index.search("грейн", 10)).isEmpty();
+        assertThat(index.get(2)).isEqualTo("Гермиона Уизли");
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void builderIndexesLikePut() {
+        TrigramIndex built = TrigramIndex.builder()
+                .put(5, "Уизли")
+                .put(4, "Джинни Уизли")
+                .put(2, "Гермиона Грейнджер")
+                .put(3, "Рон")
+                .put(3, "Рон Уизли")
+                .put(6, null)
+                .put(1, "Гарри Поттер")
+                .build();
+
+        for (String query : new String[]{"уизли", "ЕРМИ", "о", "рон", "Гарри Уизли"}) {
+            assertThat(built.search(query, 10)).isEqualTo(index.search(query, 10));
+        }
+        assertThat(built.size()).isEqualTo(index.size());
+
+        built.put(2, "Гермиона Уизли");
+        assertThat(built.search("уизли", 10)).extracting(TrigramIndex.Match::getId).containsExactly(5L, 3L, 4L, 2L);
+    }
+
+    @Test
+    public void encodeDecode() {
+        long[] ids = {1, 2, 127, 128, 300, 16_384, 1L << 40};
+
+        byte[] encoded = TrigramIndex.encode(ids);
+
+        assertThat(encoded).hasSize(1 + 1 + 1 + 1 + 2 + 2 + 6);
+        assertThat(TrigramIndex.decode(encoded)).containsExactly(ids);
+        assertThat(TrigramIndex.decode(TrigramIndex.encode(new long[0]))).isEmpty();
+    }
+}
@@ -0,0 +1,161 @@
+package ru.skypro.school.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.util.ClassUtils;
+import ru.skypro.school.component.AvatarCache;
+import ru.skypro.school.component.ByteBufferPool;
+import ru.skypro.school.component.CursorCodec;
+import ru.skypro.school.component.GroupCommitter;
+import ru.skypro.school.component.RecordMapper;
+import ru.skypro.school.entity.Avatar;
+import ru.skypro.school.entity.AvatarBlob;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.service.AvatarService;
+import ru.skypro.school.service.AvatarVariantService;
+import ru.skypro.school.service.StudentAggregateService;
+import ru.skypro.school.service.StudentService;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the binary bytes read through JDBC to make sure only serving an image from the database reads its content.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import({AvatarService.class, StudentService.class, StudentAggregateService.class, RecordMapper.class, AvatarCache.class,
+        CursorCodec.class, GroupCommitter.class, AvatarBlobLoadingTest.ByteCountingConfiguration.class})
+public class AvatarBlobLoadingTest {
+
+    private static final AtomicLong bytesRead = new AtomicLong();
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    AvatarBlobRepository avatarBlobRepository;
+
+    @Autowired
+    AvatarService avatarService;
+
+    @Autowired
+    StudentService studentService;
+
+    @MockBean
+    ByteBufferPool byteBufferPool;
+
+    @MockBean
+    AvatarVariantService avatarVariantService;
+
+    private final byte[] data = new byte[200];
+    private long avatarId;
+    private long studentId;
+
+    @BeforeEach
+    public void setUp() {
+        AvatarBlob blob = new AvatarBlob();
+        blob.setHash("hash");
+        blob.setFilePath("avatars/hash.gif");
+        blob.setFileSize(data.length);
+        blob.setReferenceCount(1);
+        entityManager.persistAndFlush(blob);
+        avatarBlobRepository.updateData(blob.getHash(), new ByteArrayInputStream(data), data.length);
+
+        Avatar avatar = new Avatar();
+        avatar.setChecksum(blob.getHash());
+        avatar.setFilePath(blob.getFilePath());
+        avatar.setFileSize(data.length);
+        avatar.setMediaType("image/gif");
+        avatarId = entityManager.persistAndGetId(avatar, Long.class);
+
+        Student student = new Student();
+        student.setName("test");
+        student.setAge(18);
+        studentId = entityManager.persistAndGetId(student, Long.class);
+
+        entityManager.flush();
+        entityManager.clear();
+        bytesRead.set(0);
+    }
+
+    @Test
+    public void getAllAvatarsDoesNotReadData() {
+        assertThat(avatarService.getAllAvatars(1, 10)).hasSize(1);
+        assertThat(bytesRead).hasValue(0);
+    }
+
+    @Test
+    public void studentWithAvatarDoesNotReadData() {
+        // updateAvatar is a Postgres UPDATE ... RETURNING, so the link is made through the entity here
+        entityManager.find(Student.class, studentId).setAvatar(entityManager.getEntityManager().getReference(Avatar.class, avatarId));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(studentService.read(studentId).getAvatarRecord().getId()).isEqualTo(avatarId);
+        assertThat(bytesRead).hasValue(0);
+    }
+
+    @Test
+    public void readAvatarFromDbReadsDataOnce() {
+        assertThat(avatarService.readAvatarFromDb(avatarService.readAvatar(avatarId)).getSecond())
+                .isEqualTo(ByteBuffer.wrap(data));
+        assertThat(avatarService.readAvatarFromDb(avatarService.readAvatar(avatarId)).getSecond())
+                .isEqualTo(ByteBuffer.wrap(data));
+        assertThat(bytesRead).hasValue(data.length);
+    }
+
+    @TestConfiguration
+    static class ByteCountingConfiguration {
+
+        @Bean
+        static BeanPostProcessor byteCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? countBytes(bean) : bean;
+                }
+            };
+        }
+
+        /**
+         * Wraps every JDBC object down to result sets, counting the length of arrays returned by {@code getBytes}.
+         */
+        private static Object countBytes(Object target) {
+            return Proxy.newProxyInstance(ByteCountingConfiguration.class.getClassLoader(),
+                    ClassUtils.getAllInterfaces(target), (proxy, method, args) -> {
+                        Object result;
+                        try {
+                            result = method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if (result instanceof byte[] && target instanceof ResultSet) {
+                            bytesRead.addAndGet(((byte[]) result).length);
+                        }
+                        boolean wrapped = result instanceof Connection || result instanceof Statement
+                                || result instanceof ResultSet;
+                        return wrapped ? countBytes(result) : result;
+                    });
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ru.skypro.school.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.entity.StudentAggregate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks what the Liquibase changesets made of the rows of {@code db/baseline.sql}; the schema itself is checked
+ * against the entities by {@code spring.jpa.hibernate.ddl-auto=validate} on startup.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class LiquibaseMigrationTest {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    StudentAggregateRepository studentAggregateRepository;
+
+    @Test
+    public void avatarContentMovedToBlobs() {
+        List<Map<String, Object>> blobs = jdbcTemplate.queryForList(
+                "SELECT hash, file_path, file_size, reference_count FROM avatar_blobs ORDER BY reference_count DESC");
+
+        assertThat(blobs).hasSize(2);
+        assertThat(blobs.get(0)).containsEntry("file_path", "avatars/1.gif").containsEntry("reference_count", 2);
+        assertThat(blobs.get(1)).containsEntry("file_path", "avatars/3.gif").containsEntry("reference_count", 1);
+        assertThat(jdbcTemplate.queryForList("SELECT file_path FROM avatars ORDER BY id", String.class))
+                .containsExactly("avatars/1.gif", "avatars/1.gif", "avatars/3.gif");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM avatars WHERE checksum IS NULL OR uploaded_at IS NULL", Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE table_name = 'avatars' AND column_name = 'data'", Integer.class)).isZero();
+    }
+
+    @Test
+    public void studentIdsContinueAfterExistingOnes() {
+        Student student = new Student();
+        student.setName("Neville Longbottom");
+        student.setAge(17);
+
+        assertThat(entityManager.persistAndGetId(student, Long.class)).isGreaterThan(3);
+    }
+
+    @Test
+    public void aggregatesStripedFromExistingStudents() {
+        List<StudentAggregate> stripes = studentAggregateRepository.findAll();
+
+        assertThat(stripes).hasSize(StudentAggregate.STRIPES);
+        assertThat(stripes.stream().mapToLong(StudentAggregate::getQuantity).sum()).isEqualTo(3);
+        assertThat(stripes.stream().mapToLong(StudentAggregate::getAgeSum).sum()).isEqualTo(52);
+
+        studentAggregateRepository.add(StudentAggregate.ID + 4, 1, 20);
+        studentAggregateRepository.recompute();
+        assertThat(studentAggregateRepository.findById(StudentAggregate.ID))
+                .hasValueSatisfying(stripe -> assertThat(stripe.getAgeSum()).isEqualTo(52));
+        assertThat(studentAggregateRepository.findById(StudentAggregate.ID + 4))
+                .hasValueSatisfying(stripe -> assertThat(stripe.getQuantity()).isZero());
+    }
+
+    @Test
+    public void rowsStartAtVersionZero() {
+        assertThat(jdbcTemplate.queryForList("SELECT DISTINCT version FROM students", Long.class)).containsExactly(0L);
+        assertThat(jdbcTemplate.queryForList("SELECT DISTINCT version FROM faculties", Long.class)).containsExactly(0L);
+    }
+}
@@ -0,0 +1,210 @@
+package ru.skypro.school.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.skypro.school.entity.Avatar;
+import ru.skypro.school.entity.AvatarBlob;
+import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.record.AvatarBlobReference;
+import ru.skypro.school.record.FacultyRow;
+import ru.skypro.school.record.StudentRow;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the native statements using what H2 does not support, {@code RETURNING} and {@code COLLATE}, against the
+ * {@link PostgresTestDatabase} migrated by Liquibase.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class PostgresNativeQueriesTest {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    FacultyRepository facultyRepository;
+
+    @Autowired
+    AvatarBlobRepository avatarBlobRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private Faculty gryffindor;
+    private Faculty slytherin;
+    private Student harry;
+    private Avatar avatar;
+
+    @BeforeEach
+    public void setUp() {
+        gryffindor = createFaculty("Gryffindor", "red");
+        slytherin = createFaculty("Slytherin", "green");
+        harry = new Student();
+        harry.setName("Harry");
+        harry.setAge(17);
+        harry.setFaculty(gryffindor);
+        entityManager.persist(harry);
+        avatar = new Avatar();
+        avatar.setFilePath("avatars/hash.gif");
+        avatar.setFileSize(10);
+        avatar.setMediaType("image/gif");
+        avatar.setChecksum("hash");
+        avatar.setUploadedAt(Instant.now());
+        entityManager.persist(avatar);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void studentUpdateReturning() {
+        StudentRow row = studentRepository.updateReturning(harry.getId(), "Harry Potter", 18, harry.getVersion())
+                .orElseThrow();
+
+        assertThat(row.getId()).isEqualTo(harry.getId());
+        assertThat(row.getOldName()).isEqualTo("Harry");
+        assertThat(row.getOldAge()).isEqualTo(17);
+        assertThat(row.getName()).isEqualTo("Harry Potter");
+        assertThat(row.getAge()).isEqualTo(18);
+        assertThat(row.getVersion()).isEqualTo(harry.getVersion() + 1);
+        assertThat(row.getFacultyId()).isEqualTo(gryffindor.getId());
+        assertThat(row.getFacultyName()).isEqualTo("Gryffindor");
+        assertThat(row.getAvatarId()).isNull();
+
+        assertThat(studentRepository.updateReturning(harry.getId(), "Harry", 17, harry.getVersion())).isEmpty();
+        assertThat(studentRepository.updateReturning(harry.getId(), "Harry", 17, StudentRepository.ANY_VERSION))
+                .hasValueSatisfying(updated -> assertThat(updated.getOldName()).isEqualTo("Harry Potter"));
+        assertThat(studentRepository.updateReturning(-5, "Nobody", 1, StudentRepository.ANY_VERSION)).isEmpty();
+    }
+
+    @Test
+    public void studentDeleteReturning() {
+        assertThat(studentRepository.deleteReturning(harry.getId(), harry.getVersion() + 1)).isEmpty();
+
+        StudentRow row = studentRepository.deleteReturning(harry.getId(), harry.getVersion()).orElseThrow();
+        assertThat(row.getName()).isEqualTo("Harry");
+        assertThat(row.getFacultyId()).isEqualTo(gryffindor.getId());
+        assertThat(studentRepository.findById(harry.getId())).isEmpty();
+        assertThat(studentRepository.deleteReturning(harry.getId(), StudentRepository.ANY_VERSION)).isEmpty();
+    }
+
+    @Test
+    public void studentUpdateFacultyReturning() {
+        StudentRow row = studentRepository.updateFacultyReturning(harry.getId(), slytherin.getId()).orElseThrow();
+
+        assertThat(row.getFacultyId()).isEqualTo(slytherin.getId());
+        assertThat(row.getFacultyColor()).isEqualTo("green");
+        assertThat(row.getVersion()).isEqualTo(harry.getVersion() + 1);
+        assertThat(studentRepository.updateFacultyReturning(harry.getId(), -5)).isEmpty();
+        assertThat(studentRepository.updateFacultyReturning(-5, slytherin.getId())).isEmpty();
+    }
+
+    @Test
+    public void studentUpdateAvatarReturning() {
+        StudentRow row = studentRepository.updateAvatarReturning(harry.getId(), avatar.getId()).orElseThrow();
+
+        assertThat(row.getAvatarId()).isEqualTo(avatar.getId());
+        assertThat(row.getAvatarMediaType()).isEqualTo("image/gif");
+        assertThat(studentRepository.updateAvatarReturning(harry.getId(), -5)).isEmpty();
+    }
+
+    @Test
+    public void facultyUpdateReturning() {
+        FacultyRow row = facultyRepository.updateReturning(gryffindor.getId(), "Griffindor", "scarlet",
+                gryffindor.getVersion()).orElseThrow();
+
+        assertThat(row.getId()).isEqualTo(gryffindor.getId());
+        assertThat(row.getName()).isEqualTo("Griffindor");
+        assertThat(row.getColor()).isEqualTo("scarlet");
+        assertThat(row.getVersion()).isEqualTo(gryffindor.getVersion() + 1);
+        assertThat(facultyRepository.updateReturning(gryffindor.getId(), "Gryffindor", "red",
+                gryffindor.getVersion())).isEmpty();
+        assertThat(facultyRepository.updateReturning(gryffindor.getId(), "Gryffindor", "red",
+                FacultyRepository.ANY_VERSION)).isPresent();
+    }
+
+    @Test
+    public void facultyDeleteReturning() {
+        assertThat(facultyRepository.deleteReturning(slytherin.getId(), slytherin.getVersion() + 1)).isEmpty();
+
+        FacultyRow row = facultyRepository.deleteReturning(slytherin.getId(), slytherin.getVersion()).orElseThrow();
+        assertThat(row.getName()).isEqualTo("Slytherin");
+        assertThat(facultyRepository.findById(slytherin.getId())).isEmpty();
+    }
+
+    @Test
+    public void avatarBlobAddReference() {
+        AvatarBlobReference inserted = avatarBlobRepository.addReference("other", "avatars/other-1.gif", 10);
+        assertThat(inserted.getInserted()).isTrue();
+        assertThat(inserted.getFilePath()).isEqualTo("avatars/other-1.gif");
+
+        AvatarBlobReference existing = avatarBlobRepository.addReference("other", "avatars/other-2.gif", 10);
+        assertThat(existing.getInserted()).isFalse();
+        assertThat(existing.getFilePath()).isEqualTo("avatars/other-1.gif");
+
+        entityManager.clear();
+        assertThat(avatarBlobRepository.findById("other")).map(AvatarBlob::getReferenceCount).hasValue(2);
+    }
+
+    @Test
+    public void findNamesInRange() {
+        for (String name : new String[]{"a-z", "a.", "a-b", "A-c", "a_x", "b"}) {
+            createStudent(name);
+        }
+        entityManager.flush();
+
+        assertThat(studentRepository.findNamesInRange("a-", "a.", "a-%", PageRequest.of(0, 10)))
+                .containsExactly("a-b", "a-z");
+        assertThat(studentRepository.findNamesInRange("a-", "a.", "a-%", PageRequest.of(0, 1)))
+                .containsExactly("a-b");
+        assertThat(studentRepository.findNamesInRange("a_", "a`", "a\\_%", Pageable.unpaged()))
+                .containsExactly("a_x");
+        assertThat(studentRepository.findNames(PageRequest.of(0, 3)))
+                .containsExactly("A-c", "Draco Malfoy", "Harry");
+    }
+
+    @Test
+    public void findNamesInRangeScansIndex() {
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN SELECT name FROM students " +
+                "WHERE name COLLATE \"C\" >= 'a-' AND name COLLATE \"C\" < 'a.' ORDER BY name COLLATE \"C\"",
+                String.class));
+
+        assertThat(plan).contains("students_name_c_index").doesNotContain("Sort");
+    }
+
+    private void createStudent(String name) {
+        Student student = new Student();
+        student.setName(name);
+        student.setAge(11);
+        entityManager.persist(student);
+    }
+
+    private Faculty createFaculty(String name, String color) {
+        Faculty faculty = new Faculty();
+        faculty.setName(name);
+        faculty.setColor(color);
+        return entityManager.persist(faculty);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.skypro.school.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A PostgreSQL server run from the embedded binaries, so that the tests needing PostgreSQL run everywhere
+ * without Docker. It is started once per JVM with the schema of {@code db/baseline.sql}, on which Liquibase then
+ * applies the changesets like on a production database.
+ */
+final class PostgresTestDatabase {
+
+    private static EmbeddedPostgres postgres;
+
+    private PostgresTestDatabase() {
+    }
+
+    static void register(DynamicPropertyRegistry registry) {
+        String url = start().getJdbcUrl("postgres", "postgres");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.liquibase.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+    }
+
+    private static synchronized EmbeddedPostgres start() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.start();
+                try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+                    ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/baseline.sql"));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Baseline schema was not created", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(PostgresTestDatabase::stop));
+        }
+        return postgres;
+    }
+
+    private static void stop() {
+        try {
+            postgres.close();
+        } catch (IOException e) {
+            // the server goes away with the JVM anyway
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package ru.skypro.school.repository;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.record.StudentName;
+import ru.skypro.school.record.StudentStatsRow;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+public class StudentRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    private long facultyId;
+
+    @BeforeEach
+    public void setUp() {
+        Faculty faculty = createFaculty("Gryffindor");
+        Faculty other = createFaculty("Slytherin");
+        facultyId = faculty.getId();
+        createStudent("Harry", 17, faculty);
+        createStudent("Ron", 17, faculty);
+        createStudent("Hermione", 18, faculty);
+        createStudent("Draco", 17, other);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void findByFacultyId() {
+        List<Student> page = studentRepository.findByFacultyId(facultyId, PageRequest.of(0, 2, Sort.by("name")));
+
+        assertThat(page).extracting(Student::getName).containsExactly("Harry", "Hermione");
+        assertThat(page).allMatch(student -> Hibernate.isInitialized(student.getFaculty()));
+        assertThat(studentRepository.findByFacultyId(facultyId, PageRequest.of(1, 2, Sort.by("name"))))
+                .extracting(Student::getName).containsExactly("Ron");
+    }
+
+    @Test
+    public void findByIdGreaterThan() {
+        Slice<Student> first = studentRepository.findByIdGreaterThan(0, PageRequest.of(0, 3));
+        assertThat(first.getContent()).extracting(Student::getName).containsExactly("Harry", "Ron", "Hermione");
+        assertThat(first.hasNext()).isTrue();
+
+        long last = first.getContent().get(2).getId();
+        Slice<Student> second = studentRepository.findByIdGreaterThan(last, PageRequest.of(0, 3));
+        assertThat(second.getContent()).extracting(Student::getName).containsExactly("Draco");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    public void countByFacultyId() {
+        assertThat(studentRepository.countByFacultyId(facultyId)).isEqualTo(3);
+    }
+
+    @Test
+    public void findersFetchFaculty() {
+        assertThat(studentRepository.findByAge(17)).hasSize(3)
+                .allMatch(student -> Hibernate.isInitialized(student.getFaculty()));
+        assertThat(studentRepository.findByAgeBetween(18, 20)).hasSize(1)
+                .allMatch(student -> Hibernate.isInitialized(student.getFaculty()));
+        assertThat(studentRepository.findAll()).hasSize(4)
+                .allMatch(student -> Hibernate.isInitialized(student.getFaculty()));
+        assertThat(studentRepository.getLastStudents(PageRequest.of(0, 2)))
+                .extracting(Student::getName)
+                .containsExactly("Draco", "Hermione");
+        entityManager.clear();
+        assertThat(studentRepository.findById(studentRepository.findAll().get(0).getId()))
+                .hasValueSatisfying(student -> assertThat(Hibernate.isInitialized(student.getFaculty())).isTrue());
+    }
+
+    @Test
+    public void findByIdIn() {
+        List<Long> ids = studentRepository.findAll().stream().map(Student::getId).collect(Collectors.toList());
+        entityManager.clear();
+
+        assertThat(studentRepository.findByIdIn(List.of(ids.get(3), ids.get(0), -1L)))
+                .extracting(Student::getName).containsExactlyInAnyOrder("Draco", "Harry");
+        assertThat(studentRepository.findByIdIn(ids))
+                .allMatch(student -> Hibernate.isInitialized(student.getFaculty()));
+    }
+
+    @Test
+    public void streamNames() {
+        try (Stream<StudentName> names = studentRepository.streamNames()) {
+            assertThat(names.map(StudentName::getName))
+                    .containsExactlyInAnyOrder("Harry", "Ron", "Hermione", "Draco");
+        }
+    }
+
+    @Test
+    public void streamStatsRows() {
+        createStudent("Luna", 16, null);
+        entityManager.flush();
+        try (Stream<StudentStatsRow> rows = studentRepository.streamStatsRows()) {
+            assertThat(rows).extracting(StudentStatsRow::getAge, row -> row.getFacultyId() == null)
+                    .containsExactly(tuple(17, false), tuple(17, false), tuple(18, false), tuple(17, false),
+                            tuple(16, true));
+        }
+    }
+
+    @Test
+    public void moveToFacultyByFilter() {
+        Faculty target = createFaculty("Ravenclaw");
+        Student luna = createStudent("Luna", 16, null);
+        entityManager.flush();
+
+        assertThat(studentRepository.moveToFaculty(17, 17, facultyId, target)).isEqualTo(2);
+        assertThat(studentRepository.moveToFaculty(Integer.MIN_VALUE, 16, StudentRepository.ANY_FACULTY, target))
+                .isEqualTo(1);
+        assertThat(studentRepository.moveToFaculty(Integer.MIN_VALUE, 16, StudentRepository.ANY_FACULTY, target))
+                .isZero();
+
+        assertThat(studentRepository.findByFacultyId(target.getId(), PageRequest.of(0, 10, Sort.by("name"))))
+                .extracting(Student::getName, Student::getVersion)
+                .containsExactly(tuple("Harry", 1L), tuple("Luna", 1L), tuple("Ron", 1L));
+        assertThat(studentRepository.findById(luna.getId())).hasValueSatisfying(student ->
+                assertThat(student.getFaculty().getName()).isEqualTo("Ravenclaw"));
+    }
+
+    @Test
+    public void moveToFacultyByIds() {
+        Faculty target = createFaculty("Ravenclaw");
+        Student luna = createStudent("Luna", 16, null);
+        Student neville = createStudent("Neville", 17, null);
+        entityManager.flush();
+
+        assertThat(studentRepository.moveToFaculty(List.of(luna.getId(), neville.getId()), 17, Integer.MAX_VALUE,
+                StudentRepository.ANY_FACULTY, target)).isEqualTo(1);
+
+        assertThat(studentRepository.findByFacultyId(target.getId(), PageRequest.of(0, 10)))
+                .extracting(Student::getName).containsExactly("Neville");
+    }
+
+    private Faculty createFaculty(String name) {
+        Faculty faculty = new Faculty();
+        faculty.setName(name);
+        faculty.setColor("red");
+        return entityManager.persist(faculty);
+    }
+
+    private Student createStudent(String name, int age, Faculty faculty) {
+        Student student = new Student();
+        student.setName(name);
+        student.setAge(age);
+        student.setFaculty(faculty);
+        return entityManager.persist(student);
+    }
+}
@@ -2,36 +2,61 @@ package ru.skypro.school.service;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.util.Pair;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.util.unit.DataSize;
+import ru.skypro.school.component.AvatarCache;
+import ru.skypro.school.component.ByteBufferPool;
+import ru.skypro.school.component.CursorCodec;
 import ru.skypro.school.component.RecordMapper;
 import ru.skypro.school.entity.Avatar;
+import ru.skypro.school.entity.AvatarBlobContent;
 import ru.skypro.school.exception.AvatarNotFoundException;
+import ru.skypro.school.exception.InvalidCursorException;
+import ru.skypro.school.exception.AvatarTooLargeException;
+import ru.skypro.school.record.AvatarBlobReference;
+import ru.skypro.school.record.AvatarCacheStats;
 import ru.skypro.school.record.AvatarRecord;
+import ru.skypro.school.record.CursorPage;
+import ru.skypro.school.repository.AvatarBlobRepository;
 import ru.skypro.school.repository.AvatarRepository;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class AvatarServiceTest {
@@ -39,12 +64,30 @@ public class AvatarServiceTest {
     @Mock
     AvatarRepository avatarRepository;
 
+    @Mock
+    AvatarBlobRepository avatarBlobRepository;
+
     @InjectMocks
     AvatarService avatarService;
 
     @Spy
     RecordMapper recordMapper;
 
+    @Spy
+    ByteBufferPool byteBufferPool = new ByteBufferPool(DataSize.ofKilobytes(4), 2);
+
+    @Mock
+    AvatarVariantService avatarVariantService;
+
+    @Spy
+    AvatarCache avatarCache = new AvatarCache(DataSize.ofMegabytes(1));
+
+    @Spy
+    CursorCodec cursorCodec = new CursorCodec();
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
     @Test
     public void upload() throws IOException {
         final String imageFile = "src/test/java/ru/skypro/school/testresource/test.gif";
@@ -58,19 +101,111 @@ public class AvatarServiceTest {
         Avatar avatar = createAvatar(multipartFile);
         avatar.setId(1);
         ReflectionTestUtils.setField(avatarService, "avatarsFolder", imagePathNew);
+        ReflectionTestUtils.setField(avatarService, "maxUploadSize", DataSize.ofMegabytes(1));
 
+        when(avatarBlobRepository.addReference(eq(avatar.getChecksum()), any(), eq(multipartFile.getSize())))
+                .thenAnswer(invocation -> createBlobReference(invocation.getArgument(1), true));
         when(avatarRepository.save(any(Avatar.class))).thenReturn(avatar);
 
-        avatarService.upload(multipartFile);
+        assertThat(avatarService.upload(multipartFile).getId()).isEqualTo(1L);
 
-        File actualFile = new File("src/test/java/ru/skypro/school/testresource/1.gif");
+        ArgumentCaptor<String> filePath = ArgumentCaptor.forClass(String.class);
+        verify(avatarBlobRepository).addReference(any(), filePath.capture(), anyLong());
+        File actualFile = new File(filePath.getValue());
         File expectedFile = new File("src/test/java/ru/skypro/school/testresource/test.gif");
 
+        assertThat(actualFile.getParent()).isEqualTo(Paths.get(imagePathNew).toString());
+        assertThat(actualFile.getName()).startsWith(avatar.getChecksum() + "-").endsWith(".gif");
         assertThat(actualFile).hasSameBinaryContentAs(expectedFile);
+        verify(avatarBlobRepository).updateData(eq(avatar.getChecksum()), any(), eq(actualFile.length()));
+        verify(avatarVariantService).scheduleVariants(actualFile.toPath());
 
         actualFile.delete();
     }
 
+    @Test
+    public void uploadRolledBack() throws IOException {
+        Path folder = Files.createTempDirectory("avatars");
+        MultipartFile multipartFile = new MockMultipartFile("file", "test.gif", "image/gif",
+                Files.readAllBytes(Paths.get("src/test/java/ru/skypro/school/testresource/test.gif")));
+        ReflectionTestUtils.setField(avatarService, "avatarsFolder", folder.toString());
+        ReflectionTestUtils.setField(avatarService, "maxUploadSize", DataSize.ofMegabytes(1));
+        when(avatarBlobRepository.addReference(any(), any(), anyLong()))
+                .thenAnswer(invocation -> createBlobReference(invocation.getArgument(1), true));
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            avatarService.upload(multipartFile);
+            try (Stream<Path> files = Files.list(folder)) {
+                assertThat(files).hasSize(1);
+            }
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        try (Stream<Path> files = Files.list(folder)) {
+            assertThat(files).isEmpty();
+        }
+        verify(avatarVariantService, never()).scheduleVariants(any());
+        Files.delete(folder);
+    }
+
+    @Test
+    public void uploadDuplicate() throws IOException {
+        final String imageFile = "src/test/java/ru/skypro/school/testresource/test.gif";
+        final String imagePathNew = "src/test/java/ru/skypro/school/testresource";
+
+        Path path = Paths.get(imageFile);
+
+        MultipartFile multipartFile = new MockMultipartFile("file",
+                "copy.gif", "image/gif", Files.readAllBytes(path));
+
+        Avatar avatar = createAvatar(multipartFile);
+        avatar.setId(2);
+        ReflectionTestUtils.setField(avatarService, "avatarsFolder", imagePathNew);
+        ReflectionTestUtils.setField(avatarService, "maxUploadSize", DataSize.ofMegabytes(1));
+
+        when(avatarBlobRepository.addReference(any(), any(), anyLong()))
+                .thenReturn(createBlobReference(imageFile, false));
+        when(avatarRepository.save(any(Avatar.class))).thenReturn(avatar);
+
+        assertThat(avatarService.upload(multipartFile).getId()).isEqualTo(2L);
+
+        ArgumentCaptor<Avatar> saved = ArgumentCaptor.forClass(Avatar.class);
+        verify(avatarRepository).save(saved.capture());
+        assertThat(saved.getValue().getFilePath()).isEqualTo(imageFile);
+        assertThat(saved.getValue().getChecksum()).isEqualTo(avatar.getChecksum());
+        verify(avatarBlobRepository, never()).updateData(any(), any(), anyLong());
+        verifyNoInteractions(avatarVariantService);
+        try (Stream<Path> files = Files.list(Paths.get(imagePathNew))) {
+            assertThat(files).extracting(Path::getFileName).extracting(Path::toString).containsExactly("test.gif");
+        }
+    }
+
+    @Test
+    public void uploadTooLarge() throws IOException {
+        final String imageFile = "src/test/java/ru/skypro/school/testresource/test.gif";
+        final String imagePathNew = "src/test/java/ru/skypro/school/testresource";
+
+        Path path = Paths.get(imageFile);
+
+        MultipartFile multipartFile = new MockMultipartFile("file",
+                "test.gif", "image/gif", Files.readAllBytes(path));
+
+        ReflectionTestUtils.setField(avatarService, "avatarsFolder", imagePathNew);
+        ReflectionTestUtils.setField(avatarService, "maxUploadSize", DataSize.ofBytes(multipartFile.getSize() - 1));
+
+        assertThatThrownBy(() -> avatarService.upload(multipartFile)).isInstanceOf(AvatarTooLargeException.class);
+        verify(avatarRepository, never()).save(any(Avatar.class));
+        verifyNoInteractions(transactionManager);
+        try (Stream<Path> files = Files.list(Paths.get(imagePathNew))) {
+            assertThat(files).extracting(Path::getFileName).extracting(Path::toString).containsExactly("test.gif");
+        }
+    }
+
     @Test
     public void testReadFromDb() throws IOException {
         final String imageFile = "src/test/java/ru/skypro/school/testresource/test.gif";
@@ -78,13 +213,24 @@ public class AvatarServiceTest {
         MultipartFile multipartFile = new MockMultipartFile("file",
                 "test.gif", "image/gif", Files.readAllBytes(path));
         Avatar avatar = createAvatar(multipartFile);
-        Pair<String, byte[]> expected = Pair.of(avatar.getMediaType(), avatar.getData());
-        when(avatarRepository.findById(any()))
-                .thenReturn(Optional.of(avatar))
-                .thenReturn(Optional.empty());
+        AvatarBlobContent content = new AvatarBlobContent();
+        content.setHash(avatar.getChecksum());
+        content.setData(multipartFile.getBytes());
+        Pair<String, ByteBuffer> expected = Pair.of(avatar.getMediaType(), ByteBuffer.wrap(content.getData()));
+        Avatar withoutContent = createAvatar(2);
+        withoutContent.setChecksum("missing");
+        when(avatarBlobRepository.findContent(avatar.getChecksum())).thenReturn(Optional.of(content));
+        when(avatarBlobRepository.findContent("missing")).thenReturn(Optional.empty());
+
+        assertThat(avatarService.readAvatarFromDb(avatar)).isEqualTo(expected);
+        assertThat(avatarService.readAvatarFromDb(avatar)).isEqualTo(expected);
+        assertThatThrownBy(() -> avatarService.readAvatarFromDb(withoutContent)).isInstanceOf(AvatarNotFoundException.class);
 
-        assertThat(avatarService.readAvatarFromDb(1L)).isEqualTo(expected);
-        assertThatThrownBy(() -> avatarService.readAvatarFromDb(1L)).isInstanceOf(AvatarNotFoundException.class);
+        verify(avatarBlobRepository, times(1)).findContent(avatar.getChecksum());
+        AvatarCacheStats stats = avatarService.getCacheStats();
+        assertThat(stats.getHitCount()).isEqualTo(1);
+        assertThat(stats.getMissCount()).isEqualTo(2);
+        assertThat(stats.getWeightedSize()).isEqualTo(content.getData().length);
     }
 
     @Test
@@ -95,13 +241,62 @@ public class AvatarServiceTest {
                 "test.gif", "image/gif", Files.readAllBytes(path));
         Avatar avatar = createAvatar(multipartFile);
         avatar.setFilePath(path.toString());
-        Pair<String, byte[]> expected = Pair.of(avatar.getMediaType(), avatar.getData());
         when(avatarRepository.findById(any()))
                 .thenReturn(Optional.of(avatar))
                 .thenReturn(Optional.empty());
 
-        assertThat(avatarService.readAvatarFromFs(1L)).isEqualTo(expected);
-        assertThatThrownBy(() -> avatarService.readAvatarFromFs(1L)).isInstanceOf(AvatarNotFoundException.class);
+        Pair<String, Resource> actual = avatarService.readAvatarFromFs(avatarService.readAvatar(1L));
+        assertThat(actual.getFirst()).isEqualTo(avatar.getMediaType());
+        assertThat(actual.getSecond().getFile()).hasSameBinaryContentAs(path.toFile());
+        assertThatThrownBy(() -> avatarService.readAvatar(1L)).isInstanceOf(AvatarNotFoundException.class);
+    }
+
+    @Test
+    public void testReadVariantFromFs() {
+        Path path = Paths.get("src/test/java/ru/skypro/school/testresource/test.gif");
+        Path variantPath = Paths.get("src/test/java/ru/skypro/school/testresource/test_w64.png");
+        Avatar avatar = createAvatar(1);
+        avatar.setFilePath(path.toString());
+        Pair<String, Resource> variant = Pair.of(MediaType.IMAGE_PNG_VALUE, new FileSystemResource(variantPath));
+        when(avatarVariantService.findVariant(path, 64))
+                .thenReturn(Optional.of(variant))
+                .thenReturn(Optional.empty());
+
+        assertThat(avatarService.readAvatarVariant(avatar, 64)).contains(variant);
+        assertThat(avatarService.readAvatarVariant(avatar, 64)).isEmpty();
+    }
+
+    @Test
+    public void delete() throws IOException {
+        Path folder = Files.createTempDirectory("avatars");
+        Path file = Files.copy(Paths.get("src/test/java/ru/skypro/school/testresource/test.gif"),
+                folder.resolve("test.gif"));
+        Avatar avatar = createAvatar(1);
+        avatar.setChecksum("hash");
+        avatar.setFilePath(file.toString());
+
+        when(avatarRepository.findById(1L)).thenReturn(Optional.of(avatar));
+        when(avatarBlobRepository.deleteIfUnreferenced("hash"))
+                .thenReturn(0)
+                .thenReturn(1);
+
+        assertThat(avatarService.delete(1L).getId()).isEqualTo(1L);
+        verify(avatarRepository).detachFromStudents(1L);
+        verify(avatarRepository).delete(avatar);
+        verify(avatarBlobRepository).releaseReference("hash");
+        assertThat(file).exists();
+
+        avatarService.delete(1L);
+        assertThat(file).doesNotExist();
+        verify(avatarVariantService).deleteVariants(file);
+        Files.delete(folder);
+    }
+
+    @Test
+    public void deleteNotFound() {
+        when(avatarRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> avatarService.delete(1L)).isInstanceOf(AvatarNotFoundException.class);
     }
 
     @Test
@@ -123,14 +318,58 @@ public class AvatarServiceTest {
                 .extracting(AvatarRecord::getId).contains(1L, 2L);
     }
 
+    @Test
+    public void findAllAfterCursor() {
+        List<Avatar> avatars = List.of(
+                createAvatar(3),
+                createAvatar(4)
+        );
+        when(avatarRepository.findByIdGreaterThanOrderById(0, PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(avatars, PageRequest.of(0, 2), true));
+        when(avatarRepository.findByIdGreaterThanOrderById(4, PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(List.of(createAvatar(5)), PageRequest.of(0, 2), false));
+
+        CursorPage<AvatarRecord> first = avatarService.getAvatars(null, 2);
+        assertThat(first.getContent()).extracting(AvatarRecord::getId).containsExactly(3L, 4L);
+        assertThat(first.getNextCursor()).isNotNull();
+
+        CursorPage<AvatarRecord> last = avatarService.getAvatars(first.getNextCursor(), 2);
+        assertThat(last.getContent()).extracting(AvatarRecord::getId).containsExactly(5L);
+        assertThat(last.getNextCursor()).isNull();
+
+        assertThatThrownBy(() -> avatarService.getAvatars("not a cursor", 2)).isInstanceOf(InvalidCursorException.class);
+    }
+
     private Avatar createAvatar(MultipartFile avatarFile) throws IOException {
         Avatar avatar = new Avatar();
         avatar.setMediaType(avatarFile.getContentType());
         avatar.setFileSize(avatarFile.getSize());
-        avatar.setData(avatarFile.getBytes());
+        avatar.setChecksum(sha256Hex(avatarFile.getBytes()));
         return avatar;
     }
 
+    private String sha256Hex(byte[] bytes) {
+        try {
+            return String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(bytes)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private AvatarBlobReference createBlobReference(String filePath, boolean inserted) {
+        return new AvatarBlobReference() {
+            @Override
+            public String getFilePath() {
+                return filePath;
+            }
+
+            @Override
+            public boolean getInserted() {
+                return inserted;
+            }
+        };
+    }
+
     private Avatar createAvatar(long id) {
         Avatar avatar = new Avatar();
         avatar.setId(id);
@@ -0,0 +1,106 @@
+package ru.skypro.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.data.util.Pair;
+import org.springframework.http.MediaType;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AvatarVariantServiceTest {
+
+    @TempDir
+    Path avatarsFolder;
+
+    AvatarVariantService avatarVariantService;
+
+    Path original;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        avatarVariantService = new AvatarVariantService(new int[]{128, 64}, 1, 1, 100 * 100);
+        original = avatarsFolder.resolve("1.gif");
+        Files.copy(Paths.get("src/test/java/ru/skypro/school/testresource/test.gif"), original);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        avatarVariantService.shutdown();
+    }
+
+    @Test
+    public void generateVariants() throws IOException {
+        avatarVariantService.generateVariants(original);
+
+        Path variant = avatarsFolder.resolve("1_w64.png");
+        assertThat(variant).exists();
+        BufferedImage image = ImageIO.read(variant.toFile());
+        assertThat(image.getWidth()).isEqualTo(64);
+        assertThat(image.getHeight()).isEqualTo(64);
+        // the original is only 100 pixels wide, so there is nothing to scale down to 128
+        assertThat(avatarsFolder.resolve("1_w128.png")).doesNotExist();
+    }
+
+    @Test
+    public void generateVariantsOfNotAnImage() throws IOException {
+        Path text = Files.writeString(avatarsFolder.resolve("2.gif"), "not an image");
+
+        avatarVariantService.generateVariants(text);
+
+        try (var files = Files.list(avatarsFolder)) {
+            assertThat(files).hasSize(2);
+        }
+    }
+
+    @Test
+    public void generateVariantsOfTooLargeImage() throws IOException {
+        AvatarVariantService limited = new AvatarVariantService(new int[]{64}, 1, 1, 100 * 100 - 1);
+        try {
+            limited.generateVariants(original);
+        } finally {
+            limited.shutdown();
+        }
+
+        assertThat(avatarsFolder.resolve("1_w64.png")).doesNotExist();
+    }
+
+    @Test
+    public void isGeneratingUntilVariantsAreDone() throws Exception {
+        assertThat(avatarVariantService.isGenerating(original)).isFalse();
+
+        avatarVariantService.scheduleVariants(original);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (avatarVariantService.isGenerating(original) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(avatarVariantService.isGenerating(original)).isFalse();
+        assertThat(avatarsFolder.resolve("1_w64.png")).exists();
+    }
+
+    @Test
+    public void findVariant() throws IOException {
+        assertThat(avatarVariantService.findVariant(original, 32)).isEmpty();
+
+        avatarVariantService.generateVariants(original);
+
+        Optional<Pair<String, Resource>> variant = avatarVariantService.findVariant(original, 32);
+        assertThat(variant).isPresent();
+        assertThat(variant.get().getFirst()).isEqualTo(MediaType.IMAGE_PNG_VALUE);
+        assertThat(variant.get().getSecond().getFile().toPath()).isEqualTo(avatarsFolder.resolve("1_w64.png"));
+        assertThat(avatarVariantService.findVariant(original, 100)).isEmpty();
+        assertThat(avatarVariantService.findVariant(original, 512)).isEmpty();
+    }
+}
@@ -0,0 +1,135 @@
+package ru.skypro.school.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.skypro.school.exception.InvalidBatchOperationException;
+import ru.skypro.school.exception.StudentNotFoundException;
+import ru.skypro.school.record.BatchOperation;
+import ru.skypro.school.record.BatchResult;
+import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.record.StudentRecord;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchServiceTest {
+
+    @Mock
+    StudentService studentService;
+
+    @Mock
+    FacultyService facultyService;
+
+    @InjectMocks
+    BatchService batchService;
+
+    @Test
+    public void execute() {
+        FacultyRecord faculty = createFacultyRecord(7, "Gryffindor");
+        StudentRecord harry = createStudentRecord(11, "Harry");
+        StudentRecord ron = createStudentRecord(12, "Ron");
+        when(facultyService.create(faculty)).thenReturn(faculty);
+        when(studentService.create(harry)).thenReturn(harry);
+        when(studentService.create(ron)).thenReturn(ron);
+        when(studentService.updateFaculty(11L, 7L)).thenReturn(harry);
+        when(studentService.updateAvatar(12L, 3L)).thenReturn(ron);
+
+        List<BatchResult> results = batchService.execute(List.of(
+                createOperation(BatchOperation.Type.CREATE_FACULTY, "f", null, faculty, null),
+                createOperation(BatchOperation.Type.CREATE_STUDENT, "harry", null, null, harry),
+                createOperation(BatchOperation.Type.CREATE_STUDENT, "ron", null, null, ron),
+                setFaculty("$harry", "$f"),
+                setAvatar("$ron", " 3")));
+
+        assertThat(results).extracting(BatchResult::getIndex, BatchResult::getRef, BatchResult::getId)
+                .containsExactly(tuple(0, "f", 7L), tuple(1, "harry", 11L), tuple(2, "ron", 12L),
+                        tuple(3, null, 11L), tuple(4, null, 12L));
+        assertThat(results.get(3).getResult()).isSameAs(harry);
+    }
+
+    @Test
+    public void executeUnknownReference() {
+        assertThatThrownBy(() -> batchService.execute(List.of(setFaculty("1", "$f"))))
+                .isInstanceOfSatisfying(InvalidBatchOperationException.class,
+                        e -> assertThat(e.getIndex()).isZero());
+        verifyNoInteractions(studentService);
+    }
+
+    @Test
+    public void executeDuplicateReference() {
+        StudentRecord harry = createStudentRecord(11, "Harry");
+        when(studentService.create(harry)).thenReturn(harry);
+
+        assertThatThrownBy(() -> batchService.execute(List.of(
+                createOperation(BatchOperation.Type.CREATE_STUDENT, "s", null, null, harry),
+                createOperation(BatchOperation.Type.CREATE_STUDENT, "s", null, null, harry))))
+                .isInstanceOfSatisfying(InvalidBatchOperationException.class,
+                        e -> assertThat(e.getIndex()).isEqualTo(1));
+    }
+
+    @Test
+    public void executeMissingField() {
+        assertThatThrownBy(() -> batchService.execute(List.of(
+                createOperation(BatchOperation.Type.UPDATE_STUDENT, null, "1", null, null))))
+                .isInstanceOf(InvalidBatchOperationException.class);
+        assertThatThrownBy(() -> batchService.execute(List.of(setFaculty("one", "2"))))
+                .isInstanceOf(InvalidBatchOperationException.class);
+        verifyNoInteractions(studentService);
+    }
+
+    @Test
+    public void executeStopsAtFailedOperation() {
+        when(studentService.updateFaculty(1L, 2L)).thenThrow(new StudentNotFoundException(1L));
+
+        assertThatThrownBy(() -> batchService.execute(List.of(setFaculty("1", "2"), setFaculty("3", "2"))))
+                .isInstanceOf(StudentNotFoundException.class);
+        verify(studentService, never()).updateFaculty(3L, 2L);
+    }
+
+    private BatchOperation setFaculty(String id, String facultyId) {
+        BatchOperation operation = createOperation(BatchOperation.Type.SET_STUDENT_FACULTY, null, id, null, null);
+        operation.setFacultyId(facultyId);
+        return operation;
+    }
+
+    private BatchOperation setAvatar(String id, String avatarId) {
+        BatchOperation operation = createOperation(BatchOperation.Type.SET_STUDENT_AVATAR, null, id, null, null);
+        operation.setAvatarId(avatarId);
+        return operation;
+    }
+
+    private BatchOperation createOperation(BatchOperation.Type type, String ref, String id,
+                                           FacultyRecord faculty, StudentRecord student) {
+        BatchOperation operation = new BatchOperation();
+        operation.setType(type);
+        operation.setRef(ref);
+        operation.setId(id);
+        operation.setFaculty(faculty);
+        operation.setStudent(student);
+        return operation;
+    }
+
+    private FacultyRecord createFacultyRecord(long id, String name) {
+        FacultyRecord facultyRecord = new FacultyRecord();
+        facultyRecord.setId(id);
+        facultyRecord.setName(name);
+        facultyRecord.setColor("red");
+        return facultyRecord;
+    }
+
+    private StudentRecord createStudentRecord(long id, String name) {
+        StudentRecord studentRecord = new StudentRecord();
+        studentRecord.setId(id);
+        studentRecord.setName(name);
+        studentRecord.setAge(17);
+        return studentRecord;
+    }
+}
@@ -0,0 +1,157 @@
+package ru.skypro.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.skypro.school.component.CursorCodec;
+import ru.skypro.school.component.FacultyCatalog;
+import ru.skypro.school.component.GroupCommitter;
+import ru.skypro.school.component.RecordMapper;
+import ru.skypro.school.configuration.CacheConfiguration;
+import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.exception.InvalidBatchOperationException;
+import ru.skypro.school.record.BatchOperation;
+import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.record.StudentRecord;
+import ru.skypro.school.record.StudentSelection;
+import ru.skypro.school.repository.FacultyRepository;
+import ru.skypro.school.repository.StudentAggregateRepository;
+import ru.skypro.school.repository.StudentRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs batches against the database without the usual test transaction, so that the batch's own transaction
+ * is the one committed or rolled back.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureCache(cacheProvider = CacheType.CAFFEINE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({BatchService.class, StudentService.class, FacultyService.class, StudentAggregateService.class,
+        RecordMapper.class, CursorCodec.class, GroupCommitter.class, FacultyCatalog.class, CacheConfiguration.class})
+public class BatchServiceTransactionTest {
+
+    @Autowired
+    BatchService batchService;
+
+    @Autowired
+    FacultyService facultyService;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    FacultyRepository facultyRepository;
+
+    @Autowired
+    StudentAggregateRepository studentAggregateRepository;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void tearDown() {
+        studentRepository.deleteAll();
+        facultyRepository.deleteAll();
+        studentAggregateRepository.deleteAll();
+        cacheManager.getCache(CacheConfiguration.FACULTY_STUDENT_COUNTS).clear();
+    }
+
+    @Test
+    public void failedOperationRollsBackEarlierOnes() {
+        assertThatThrownBy(() -> batchService.execute(List.of(
+                createOperation(BatchOperation.Type.CREATE_FACULTY, createFacultyRecord("Gryffindor"), null),
+                createOperation(BatchOperation.Type.CREATE_STUDENT, null, createStudentRecord("Harry")),
+                createOperation(BatchOperation.Type.CREATE_STUDENT, null, null))))
+                .isInstanceOfSatisfying(InvalidBatchOperationException.class,
+                        e -> assertThat(e.getIndex()).isEqualTo(2));
+
+        assertThat(facultyRepository.count()).isZero();
+        assertThat(studentRepository.count()).isZero();
+        assertThat(studentAggregateRepository.count()).isZero();
+    }
+
+    @Test
+    public void executeCommitsAllOperations() {
+        batchService.execute(List.of(
+                createOperation(BatchOperation.Type.CREATE_FACULTY, createFacultyRecord("Gryffindor"), null),
+                createOperation(BatchOperation.Type.CREATE_STUDENT, null, createStudentRecord("Harry"))));
+
+        assertThat(facultyRepository.count()).isEqualTo(1);
+        assertThat(studentRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    public void evictionWaitsForCommit() {
+        Faculty faculty = new Faculty();
+        faculty.setName("Gryffindor");
+        faculty.setColor("red");
+        long facultyId = facultyRepository.save(faculty).getId();
+        Student student = new Student();
+        student.setName("Harry");
+        student.setAge(17);
+        long studentId = studentRepository.save(student).getId();
+        Cache counts = cacheManager.getCache(CacheConfiguration.FACULTY_STUDENT_COUNTS);
+        assertThat(studentRepository.countByFacultyId(facultyId)).isZero();
+        assertThat(counts.get(facultyId)).isNotNull();
+        StudentSelection selection = new StudentSelection(List.of(studentId), null, null, null);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            facultyService.moveStudents(facultyId, selection);
+            assertThat(counts.get(facultyId)).isNotNull();
+            status.setRollbackOnly();
+        });
+        assertThat(counts.get(facultyId)).isNotNull();
+        assertThat(studentRepository.countByFacultyId(facultyId)).isZero();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            facultyService.moveStudents(facultyId, selection);
+            assertThat(counts.get(facultyId)).isNotNull();
+        });
+        assertThat(counts.get(facultyId)).isNull();
+        assertThat(studentRepository.countByFacultyId(facultyId)).isEqualTo(1);
+    }
+
+    private BatchOperation createOperation(BatchOperation.Type type, FacultyRecord faculty, StudentRecord student) {
+        BatchOperation operation = new BatchOperation();
+        operation.setType(type);
+        operation.setFaculty(faculty);
+        operation.setStudent(student);
+        return operation;
+    }
+
+    private FacultyRecord createFacultyRecord(String name) {
+        FacultyRecord facultyRecord = new FacultyRecord();
+        facultyRecord.setName(name);
+        facultyRecord.setColor("red");
+        return facultyRecord;
+    }
+
+    private StudentRecord createStudentRecord(String name) {
+        StudentRecord studentRecord = new StudentRecord();
+        studentRecord.setName(name);
+        studentRecord.setAge(17);
+        return studentRecord;
+    }
+}
@@ -6,17 +6,38 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import ru.skypro.school.component.FacultyCatalog;
 import ru.skypro.school.component.RecordMapper;
 import ru.skypro.school.entity.Faculty;
 import ru.skypro.school.entity.Student;
+import ru.skypro.school.event.FacultyChangedEvent;
+import ru.skypro.school.event.StudentsMovedEvent;
+import ru.skypro.school.exception.EmptyStudentSelectionException;
 import ru.skypro.school.exception.FacultyNotFoundException;
+import ru.skypro.school.exception.FacultySelfMergeException;
+import ru.skypro.school.exception.FacultyVersionConflictException;
+import ru.skypro.school.exception.UnsupportedSortException;
+import ru.skypro.school.record.FacultyMergeResult;
 import ru.skypro.school.record.FacultyRecord;
+import ru.skypro.school.record.FacultyRow;
+import ru.skypro.school.record.MultiGetResult;
 import ru.skypro.school.record.StudentRecord;
+import ru.skypro.school.record.StudentSelection;
 import ru.skypro.school.repository.FacultyRepository;
+import ru.skypro.school.repository.StudentRepository;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -30,9 +51,18 @@ public class FacultyServiceTest {
     @Mock
     FacultyRepository facultyRepository;
 
+    @Mock
+    StudentRepository studentRepository;
+
     @Spy
     RecordMapper recordMapper = new RecordMapper();
 
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    FacultyCatalog facultyCatalog;
+
     @InjectMocks
     FacultyService facultyService;
 
@@ -43,123 +73,237 @@ public class FacultyServiceTest {
         when(facultyRepository.save(any(Faculty.class))).thenReturn(faculty);
 
         assertThat(facultyService.create(facultyRecord)).isEqualTo(facultyRecord);
+        verify(eventPublisher).publishEvent(refEq(new FacultyChangedEvent(1, "test", "color", 0)));
     }
 
     @Test
     public void read() {
-        Faculty faculty = createFaculty(1, "test", "color");
         FacultyRecord facultyRecord = createFacultyRecord(1, "test", "color");
-
-        when(facultyRepository.findById(any())).thenReturn(Optional.of(faculty));
+        when(facultyCatalog.snapshot()).thenReturn(new FacultyCatalog.Snapshot(List.of(facultyRecord)));
 
         assertThat(facultyService.read(1L)).isEqualTo(facultyRecord);
+        verifyNoInteractions(facultyRepository);
     }
 
     @Test
-    public void readNotFound() {
-        Faculty faculty = createFaculty(1, "test", "color");
-        FacultyRecord facultyRecord = createFacultyRecord(1, "test", "color");
+    public void readMissingFromCatalog() {
+        Faculty faculty = createFaculty(2, "test", "color");
+        FacultyRecord facultyRecord = createFacultyRecord(2, "test", "color");
+        when(facultyCatalog.snapshot()).thenReturn(new FacultyCatalog.Snapshot(List.of()));
+        when(facultyRepository.findById(2L)).thenReturn(Optional.of(faculty));
 
+        assertThat(facultyService.read(2L)).isEqualTo(facultyRecord);
+    }
+
+    @Test
+    public void readByIds() {
+        when(facultyCatalog.snapshot()).thenReturn(new FacultyCatalog.Snapshot(List.of(
+                createFacultyRecord(1, "first", "red"), createFacultyRecord(2, "second", "red"))));
+        when(facultyRepository.findAllById(Set.of(4L, 5L))).thenReturn(List.of(createFaculty(5, "fifth", "blue")));
+
+        MultiGetResult<FacultyRecord> result = facultyService.read(List.of(5L, 2L, 4L, 1L, 2L));
+
+        assertThat(result.getFound()).extracting(FacultyRecord::getName).containsExactly("fifth", "second", "first");
+        assertThat(result.getMissingIds()).containsExactly(4L);
+    }
+
+    @Test
+    public void readNotFound() {
+        when(facultyCatalog.snapshot()).thenReturn(new FacultyCatalog.Snapshot(List.of()));
         when(facultyRepository.findById(2L)).thenReturn(Optional.empty());
         assertThatThrownBy(() -> facultyService.read(2L)).isInstanceOf(FacultyNotFoundException.class);
     }
 
     @Test
     public void update() {
-        Faculty faculty = createFaculty(1, "test", "color");
         FacultyRecord facultyRecord = createFacultyRecord(1, "test", "color");
+        facultyRecord.setVersion(4L);
 
-        when(facultyRepository.findById(any(Long.class))).thenReturn(Optional.of(faculty));
-        when(facultyRepository.save(any(Faculty.class))).thenReturn(faculty);
+        when(facultyRepository.updateReturning(1L, "test", "color", 4L))
+                .thenReturn(Optional.of(createFacultyRow(1, "test", "color", 5)));
 
-        assertThat(facultyService.update(1L, facultyRecord)).isEqualTo(facultyRecord);
+        FacultyRecord updated = facultyService.update(1L, facultyRecord);
+        assertThat(updated).isEqualTo(facultyRecord);
+        assertThat(updated.getVersion()).isEqualTo(5L);
+        verify(facultyRepository, never()).findById(any());
+        verify(eventPublisher).publishEvent(refEq(new FacultyChangedEvent(1, "test", "color", 5)));
     }
 
     @Test
     public void updateNotFound() {
         FacultyRecord facultyRecord = createFacultyRecord(1, "test", "color");
-        when(facultyRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+        when(facultyRepository.updateReturning(1L, "test", "color", FacultyRepository.ANY_VERSION))
+                .thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> facultyService.update(1L, facultyRecord)).isInstanceOf(FacultyNotFoundException.class);
     }
 
+    @Test
+    public void updateVersionConflict() {
+        FacultyRecord facultyRecord = createFacultyRecord(1, "test", "color");
+        facultyRecord.setVersion(4L);
+        when(facultyRepository.updateReturning(1L, "test", "color", 4L)).thenReturn(Optional.empty());
+        when(facultyRepository.existsById(1L)).thenReturn(true);
+
+        assertThatThrownBy(() -> facultyService.update(1L, facultyRecord))
+                .isInstanceOf(FacultyVersionConflictException.class);
+        verifyNoInteractions(eventPublisher);
+    }
+
     @Test
     public void delete() {
-        Faculty faculty = createFaculty(1, "test", "color");
         FacultyRecord facultyRecord = createFacultyRecord(1, "test", "color");
-        when(facultyRepository.findById(any(Long.class))).thenReturn(Optional.of(faculty));
-        doNothing().when(facultyRepository).delete(any(Faculty.class));
+        when(facultyRepository.deleteReturning(1L, FacultyRepository.ANY_VERSION))
+                .thenReturn(Optional.of(createFacultyRow(1, "test", "color", 0)));
 
-        assertThat(facultyService.delete(1L)).isEqualTo(facultyRecord);
-        verify(facultyRepository, times(1)).delete(any(Faculty.class));
+        assertThat(facultyService.delete(1L, null)).isEqualTo(facultyRecord);
+        verify(facultyRepository, never()).findById(any());
+        verify(eventPublisher).publishEvent(refEq(FacultyChangedEvent.deleted(1)));
     }
 
     @Test
     public void deleteNotFound() {
-        FacultyRecord facultyRecord = createFacultyRecord(1, "test", "color");
-        when(facultyRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+        when(facultyRepository.deleteReturning(1L, FacultyRepository.ANY_VERSION)).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> facultyService.delete(1L)).isInstanceOf(FacultyNotFoundException.class);
+        assertThatThrownBy(() -> facultyService.delete(1L, null)).isInstanceOf(FacultyNotFoundException.class);
     }
 
     @Test
-    public void findByColor() {
-        List<Faculty> faculties = List.of(
-                createFaculty(1, "1", "red"),
-                createFaculty(3, "3", "red"),
-                createFaculty(5, "5", "red")
-        );
+    public void moveStudentsByIds() {
+        Faculty faculty = createFaculty(2, "target", "blue");
+        StudentSelection selection = new StudentSelection(List.of(1L, 3L), null, null, null);
+        when(facultyRepository.existsById(2L)).thenReturn(true);
+        when(facultyRepository.getReferenceById(2L)).thenReturn(faculty);
+        when(studentRepository.moveToFaculty(List.of(1L, 3L), Integer.MIN_VALUE, Integer.MAX_VALUE,
+                StudentRepository.ANY_FACULTY, faculty)).thenReturn(2);
+
+        assertThat(facultyService.moveStudents(2L, selection).getUpdated()).isEqualTo(2);
+        verify(eventPublisher).publishEvent(refEq(new StudentsMovedEvent(selection, 2)));
+    }
 
-        when(facultyRepository.findByColor(any()))
-                .thenReturn(faculties)
-                .thenReturn(Collections.emptyList());
+    @Test
+    public void moveStudentsByManyIds() {
+        Faculty faculty = createFaculty(2, "target", "blue");
+        List<Long> ids = LongStream.rangeClosed(1, FacultyService.MOVE_CHUNK_SIZE * 2L + 1).boxed()
+                .collect(Collectors.toList());
+        when(facultyRepository.existsById(2L)).thenReturn(true);
+        when(facultyRepository.getReferenceById(2L)).thenReturn(faculty);
+        when(studentRepository.moveToFaculty(anyCollection(), anyInt(), anyInt(), anyLong(), eq(faculty)))
+                .thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(0).size());
+
+        assertThat(facultyService.moveStudents(2L, new StudentSelection(ids, null, null, null)).getUpdated())
+                .isEqualTo(ids.size());
+        verify(studentRepository).moveToFaculty(eq(ids.subList(0, FacultyService.MOVE_CHUNK_SIZE)), anyInt(), anyInt(),
+                anyLong(), eq(faculty));
+        verify(studentRepository).moveToFaculty(eq(List.of((long) ids.size())), anyInt(), anyInt(), anyLong(), eq(faculty));
+        verify(studentRepository, times(3)).moveToFaculty(anyCollection(), anyInt(), anyInt(), anyLong(), eq(faculty));
+    }
 
-        assertThat(facultyService.findByColor(any()))
-                .filteredOn(faculty -> faculty.getColor().equals("red"))
-                .hasSize(3);
-        assertThat(facultyService.findByColor(any()))
-                .filteredOn(faculty -> faculty.getColor().equals("blue"))
-                .hasSize(0);
+    @Test
+    public void moveStudentsByFilter() {
+        Faculty faculty = createFaculty(2, "target", "blue");
+        when(facultyRepository.existsById(2L)).thenReturn(true);
+        when(facultyRepository.getReferenceById(2L)).thenReturn(faculty);
+        when(studentRepository.moveToFaculty(17, Integer.MAX_VALUE, 1L, faculty)).thenReturn(0);
+
+        assertThat(facultyService.moveStudents(2L, new StudentSelection(null, 17, null, 1L)).getUpdated()).isZero();
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
-    public void getByFilterString() {
-        List<Faculty> facultiesEqualColor = List.of(
-                createFaculty(1, "1", "red"),
-                createFaculty(3, "3", "red")
-        );
-        List<Faculty> facultiesEqualName = List.of(
-                createFaculty(1, "1", "red"),
-                createFaculty(3, "1", "blue")
-        );
+    public void moveStudentsEmptySelection() {
+        assertThatThrownBy(() -> facultyService.moveStudents(2L, new StudentSelection()))
+                .isInstanceOf(EmptyStudentSelectionException.class);
+        verifyNoInteractions(studentRepository);
+    }
 
-        List<FacultyRecord> facultiesRecordEqualColor = List.of(
-                createFacultyRecord(1, "1", "red"),
-                createFacultyRecord(3, "3", "red")
-        );
-        List<FacultyRecord> facultiesRecordEqualName = List.of(
-                createFacultyRecord(1, "1", "red"),
-                createFacultyRecord(3, "1", "blue")
-        );
+    @Test
+    public void moveStudentsFacultyNotFound() {
+        when(facultyRepository.existsById(2L)).thenReturn(false);
 
-        when(facultyRepository.findByNameLikeIgnoreCaseOrColorLikeIgnoreCase("red", "red"))
-                .thenReturn(facultiesEqualColor);
+        assertThatThrownBy(() -> facultyService.moveStudents(2L, new StudentSelection(List.of(1L), null, null, null)))
+                .isInstanceOf(FacultyNotFoundException.class);
+        verifyNoInteractions(studentRepository);
+    }
+
+    @Test
+    public void merge() {
+        Faculty faculty = createFaculty(2, "target", "blue");
+        when(facultyRepository.existsById(2L)).thenReturn(true);
+        when(facultyRepository.getReferenceById(2L)).thenReturn(faculty);
+        when(studentRepository.moveToFaculty(Integer.MIN_VALUE, Integer.MAX_VALUE, 1L, faculty)).thenReturn(3);
+        when(facultyRepository.deleteReturning(1L, FacultyRepository.ANY_VERSION))
+                .thenReturn(Optional.of(createFacultyRow(1, "test", "color", 4)));
+
+        FacultyMergeResult result = facultyService.merge(1L, 2L);
+
+        assertThat(result.getMovedStudents()).isEqualTo(3);
+        assertThat(result.getRemovedFaculty()).isEqualTo(createFacultyRecord(1, "test", "color"));
+        verify(eventPublisher).publishEvent(refEq(new StudentsMovedEvent(
+                new StudentSelection(null, null, null, 1L), 2), "selection"));
+        verify(eventPublisher).publishEvent(refEq(FacultyChangedEvent.deleted(1)));
+    }
+
+    @Test
+    public void mergeIntoItself() {
+        assertThatThrownBy(() -> facultyService.merge(1L, 1L)).isInstanceOf(FacultySelfMergeException.class);
+        verifyNoInteractions(studentRepository);
+    }
 
+    @Test
+    public void mergeNotFound() {
+        Faculty faculty = createFaculty(2, "target", "blue");
+        when(facultyRepository.existsById(2L)).thenReturn(true);
+        when(facultyRepository.getReferenceById(2L)).thenReturn(faculty);
+        when(facultyRepository.deleteReturning(1L, FacultyRepository.ANY_VERSION)).thenReturn(Optional.empty());
 
-        when(facultyRepository.findByNameLikeIgnoreCaseOrColorLikeIgnoreCase("1", "1"))
-                .thenReturn(facultiesEqualName);
+        assertThatThrownBy(() -> facultyService.merge(1L, 2L)).isInstanceOf(FacultyNotFoundException.class);
+    }
+
+    @Test
+    public void findByColor() {
+        when(facultyCatalog.snapshot()).thenReturn(new FacultyCatalog.Snapshot(List.of(
+                createFacultyRecord(1, "1", "red"),
+                createFacultyRecord(3, "3", "red"),
+                createFacultyRecord(5, "5", "red"),
+                createFacultyRecord(7, "7", "green")
+        )));
+
+        assertThat(facultyService.findByColor("red"))
+                .extracting(FacultyRecord::getId)
+                .containsExactly(1L, 3L, 5L);
+        assertThat(facultyService.findByColor("blue"))
+                .hasSize(0);
+        verifyNoInteractions(facultyRepository);
+    }
+
+    @Test
+    public void getByFilterString() {
+        when(facultyCatalog.snapshot()).thenReturn(new FacultyCatalog.Snapshot(List.of(
+                createFacultyRecord(1, "1", "red"),
+                createFacultyRecord(3, "3", "Red"),
+                createFacultyRecord(5, "1", "blue"),
+                createFacultyRecord(7, "50%", "green")
+        )));
 
         assertThat(facultyService.findByFilterString("red"))
-                .hasSize(2)
-                .containsExactlyInAnyOrderElementsOf(facultiesRecordEqualColor);
+                .extracting(FacultyRecord::getId)
+                .containsExactly(1L, 3L);
         assertThat(facultyService.findByFilterString("1"))
-                .hasSize(2)
-                .containsExactlyInAnyOrderElementsOf(facultiesRecordEqualName);
+                .extracting(FacultyRecord::getId)
+                .containsExactly(1L, 5L);
+        assertThat(facultyService.findByFilterString("%e_"))
+                .extracting(FacultyRecord::getId)
+                .containsExactly(1L, 3L, 7L);
+        assertThat(facultyService.findByFilterString("%\\%"))
+                .extracting(FacultyRecord::getId)
+                .containsExactly(7L);
+        assertThat(facultyService.findByFilterString("")).isEmpty();
+        verifyNoInteractions(facultyRepository);
     }
 
     @Test
     public void findStudent() {
-        Faculty faculty = createFaculty(1, "test", "color");
         List<Student> students = List.of(
                 createStudent(1, "1", 18),
                 createStudent(3, "3", 19)
@@ -170,9 +314,7 @@ public class FacultyServiceTest {
                 createStudentRecord(3, "3", 19)
         );
 
-        faculty.setStudents(students);
-
-        when(facultyRepository.findById(1L)).thenReturn(Optional.of(faculty));
+        when(studentRepository.findByFacultyId(1L, Pageable.unpaged())).thenReturn(students);
 
         assertThat(facultyService.getStudentsByFaculty(1L))
                 .hasSize(2)
@@ -181,25 +323,66 @@ public class FacultyServiceTest {
 
     @Test
     public void findStudentFacultyNotFound() {
-        when(facultyRepository.findById(1L)).thenReturn(Optional.empty());
+        when(studentRepository.findByFacultyId(1L, Pageable.unpaged())).thenReturn(List.of());
+        when(facultyRepository.existsById(1L)).thenReturn(false);
 
         assertThatThrownBy(() -> facultyService.getStudentsByFaculty(1L)).isInstanceOf(FacultyNotFoundException.class);
     }
 
+    @Test
+    public void getStudentsByFacultyPage() {
+        Faculty faculty = createFaculty(1, "test", "red");
+        Student student = createStudent(3, "3", 19);
+        student.setFaculty(faculty);
+        PageRequest pageRequest = PageRequest.of(1, 2, Sort.by("name"));
+
+        when(studentRepository.countByFacultyId(1L)).thenReturn(3L);
+        when(studentRepository.findByFacultyId(1L, pageRequest)).thenReturn(List.of(student));
+
+        Page<StudentRecord> page = facultyService.getStudentsByFaculty(1L, pageRequest);
+
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(page.getTotalPages()).isEqualTo(2);
+        assertThat(page.getContent()).extracting(StudentRecord::getId).containsExactly(3L);
+        verify(facultyRepository, never()).existsById(any());
+    }
+
+    @Test
+    public void getStudentsByFacultyPageBeyondTotal() {
+        when(studentRepository.countByFacultyId(1L)).thenReturn(3L);
+
+        assertThat(facultyService.getStudentsByFaculty(1L, PageRequest.of(5, 2))).isEmpty();
+        verify(studentRepository, never()).findByFacultyId(any(), any());
+    }
+
+    @Test
+    public void getStudentsByFacultyPageNotFound() {
+        when(studentRepository.countByFacultyId(1L)).thenReturn(0L);
+        when(facultyRepository.existsById(1L)).thenReturn(false);
+
+        assertThatThrownBy(() -> facultyService.getStudentsByFaculty(1L, PageRequest.of(0, 2)))
+                .isInstanceOf(FacultyNotFoundException.class);
+    }
+
+    @Test
+    public void getStudentsByFacultyPageUnsupportedSort() {
+        assertThatThrownBy(() -> facultyService.getStudentsByFaculty(1L, PageRequest.of(0, 2, Sort.by("avatar"))))
+                .isInstanceOf(UnsupportedSortException.class);
+        verifyNoInteractions(studentRepository);
+    }
+
     @Test
     public void getFacultyLongestName() {
-        List<Faculty> faculties = List.of(
-                createFaculty(1, "3", "red"),
-                createFaculty(3, "12", "red"),
-                createFaculty(5, "5", "red")
-        );
-        when(facultyRepository.findAll()).thenReturn(faculties);
+        when(facultyCatalog.snapshot()).thenReturn(new FacultyCatalog.Snapshot(List.of(
+                createFacultyRecord(1, "3", "red"),
+                createFacultyRecord(3, "12", "red"),
+                createFacultyRecord(5, "5", "red")
+        )));
         assertThat(facultyService.getFacultyLongestName())
                 .isEqualTo("12");
-
+        verifyNoInteractions(facultyRepository);
     }
 
-
     private Faculty createFaculty(long id, String name, String color) {
         Faculty faculty = new Faculty();
         faculty.setId(id);
@@ -232,4 +415,28 @@ public class FacultyServiceTest {
         return studentRecord;
     }
 
+
+    private FacultyRow createFacultyRow(long id, String name, String color, long version) {
+        return new FacultyRow() {
+            @Override
+            public long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getColor() {
+                return color;
+            }
+
+            @Override
+            public long getVersion() {
+                return version;
+            }
+        };
+    }
 }
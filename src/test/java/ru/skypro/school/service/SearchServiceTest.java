@@ -0,0 +1,133 @@
+package ru.skypro.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.event.FacultyChangedEvent;
+import ru.skypro.school.event.StudentChangedEvent;
+import ru.skypro.school.record.SearchHit;
+import ru.skypro.school.record.StudentName;
+import ru.skypro.school.repository.FacultyRepository;
+import ru.skypro.school.repository.StudentRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SearchServiceTest {
+
+    @Mock
+    StudentRepository studentRepository;
+
+    @Mock
+    FacultyRepository facultyRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    SearchService searchService;
+
+    @BeforeEach
+    public void setUp() {
+        searchService = new SearchService(studentRepository, facultyRepository, transactionManager);
+        when(studentRepository.streamNames()).thenReturn(Stream.of(
+                createStudentName(1, "Гарри Поттер"),
+                createStudentName(2, "Полумна Лавгуд"),
+                createStudentName(5, null)
+        ));
+        when(facultyRepository.findAll()).thenReturn(List.of(
+                createFaculty(1, "Гриффиндор", "красный"),
+                createFaculty(2, "Когтевран", "синий"),
+                createFaculty(3, "Слизерин", "зелёный"),
+                createFaculty(5, "Без цвета", null)
+        ));
+        searchService.load();
+    }
+
+    @Test
+    public void search() {
+        assertThat(searchService.search("ГРИФ", 10))
+                .containsExactly(new SearchHit(SearchHit.Type.FACULTY, 1, "Гриффиндор", "Гриффиндор"));
+        assertThat(searchService.search("ин", 10)).containsExactly(
+                new SearchHit(SearchHit.Type.FACULTY, 2, "Когтевран", "синий"),
+                new SearchHit(SearchHit.Type.FACULTY, 3, "Слизерин", "Слизерин"),
+                new SearchHit(SearchHit.Type.FACULTY, 1, "Гриффиндор", "Гриффиндор"));
+        assertThat(searchService.search("по", 10)).containsExactly(
+                new SearchHit(SearchHit.Type.STUDENT, 2, "Полумна Лавгуд", "Полумна Лавгуд"),
+                new SearchHit(SearchHit.Type.STUDENT, 1, "Гарри Поттер", "Гарри Поттер"));
+        assertThat(searchService.search("ин", 1)).hasSize(1);
+        assertThat(searchService.search(" ", 10)).isEmpty();
+    }
+
+    @Test
+    public void nullTextsAreNotIndexed() {
+        searchService.onFacultyChanged(new FacultyChangedEvent(1, "Гриффиндор", null, 1));
+        searchService.onStudentChanged(new StudentChangedEvent(1, "Гарри Поттер", null, 18, null));
+
+        assertThat(searchService.search("красн", 10)).isEmpty();
+        assertThat(searchService.search("поттер", 10)).isEmpty();
+        assertThat(searchService.search("цвет", 10)).extracting(SearchHit::getId).containsExactly(5L);
+    }
+
+    @Test
+    public void followsChanges() {
+        searchService.onStudentChanged(new StudentChangedEvent(1, "Гарри Поттер", "Гарри Уизли", 18, null));
+        searchService.onStudentChanged(new StudentChangedEvent(3, null, "Рон Уизли", 18, null));
+        searchService.onStudentChanged(StudentChangedEvent.deleted(2, "Полумна Лавгуд"));
+        searchService.onFacultyChanged(new FacultyChangedEvent(4, "Пуффендуй", "жёлтый", 1));
+        searchService.onFacultyChanged(FacultyChangedEvent.deleted(2));
+
+        assertThat(searchService.search("уизли", 10)).extracting(SearchHit::getId).containsExactly(3L, 1L);
+        assertThat(searchService.search("поттер", 10)).isEmpty();
+        assertThat(searchService.search("лав", 10)).isEmpty();
+        assertThat(searchService.search("ёлт", 10)).extracting(SearchHit::getName).containsExactly("Пуффендуй");
+        assertThat(searchService.search("синий", 10)).isEmpty();
+    }
+
+    @Test
+    public void changesDuringLoadAreReplayed() {
+        when(studentRepository.streamNames()).thenReturn(Stream.of(createStudentName(1, "Гарри Поттер"))
+                .peek(name -> searchService.onStudentChanged(
+                        new StudentChangedEvent(1, "Гарри Поттер", "Гарри Уизли", 18, null))));
+        when(facultyRepository.findAll()).thenAnswer(invocation -> {
+            searchService.onFacultyChanged(FacultyChangedEvent.deleted(2));
+            return List.of(createFaculty(1, "Гриффиндор", "красный"), createFaculty(2, "Когтевран", "синий"));
+        });
+
+        searchService.load();
+
+        assertThat(searchService.search("уизли", 10)).extracting(SearchHit::getId).containsExactly(1L);
+        assertThat(searchService.search("поттер", 10)).isEmpty();
+        assertThat(searchService.search("синий", 10)).isEmpty();
+        assertThat(searchService.search("красн", 10)).extracting(SearchHit::getId).containsExactly(1L);
+    }
+
+    private StudentName createStudentName(long id, String name) {
+        return new StudentName() {
+            @Override
+            public long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+
+    private Faculty createFaculty(long id, String name, String color) {
+        Faculty faculty = new Faculty();
+        faculty.setId(id);
+        faculty.setName(name);
+        faculty.setColor(color);
+        return faculty;
+    }
+}
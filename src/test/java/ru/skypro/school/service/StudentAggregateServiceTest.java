@@ -0,0 +1,117 @@
+package ru.skypro.school.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.entity.StudentAggregate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import(StudentAggregateService.class)
+public class StudentAggregateServiceTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    StudentAggregateService studentAggregateService;
+
+    @Test
+    public void getWithoutRow() {
+        assertThat(studentAggregateService.get().getQuantity()).isZero();
+        assertThat(studentAggregateService.get().getAverageAge()).isZero();
+    }
+
+    @Test
+    public void addCreatesRowFromTable() {
+        persistStudent("Harry", 17);
+        persistStudent("Hermione", 18);
+
+        studentAggregateService.add(1, 18);
+        entityManager.clear();
+
+        assertAggregate(2, 35);
+    }
+
+    @Test
+    public void addAppliesDelta() {
+        persistStudent("Harry", 17);
+        studentAggregateService.reconcile();
+
+        studentAggregateService.add(1, 18);
+        studentAggregateService.add(0, 2);
+        studentAggregateService.add(-1, -17);
+        entityManager.clear();
+
+        assertAggregate(1, 20);
+        assertThat(studentAggregateService.get().getAverageAge()).isEqualTo(20);
+    }
+
+    @Test
+    public void reconcileRepairsDrift() {
+        studentAggregateService.reconcile();
+        persistStudent("Harry", 17);
+        persistStudent("Ron", 17);
+
+        StudentAggregate actual = studentAggregateService.reconcile();
+
+        assertThat(actual.getQuantity()).isEqualTo(2);
+        assertThat(actual.getAgeSum()).isEqualTo(34);
+        entityManager.clear();
+        assertAggregate(2, 34);
+    }
+
+    @Test
+    public void getSumsStripes() {
+        persistStripe(StudentAggregate.ID, 2, 35);
+        persistStripe(StudentAggregate.ID + 5, 1, 18);
+        persistStripe(StudentAggregate.ID + 9, -1, -17);
+
+        assertAggregate(2, 36);
+    }
+
+    @Test
+    public void reconcileFoldsStripes() {
+        persistStudent("Harry", 17);
+        persistStripe(StudentAggregate.ID + 3, 1, 17);
+
+        studentAggregateService.reconcile();
+        entityManager.clear();
+
+        assertThat(entityManager.find(StudentAggregate.class, StudentAggregate.ID))
+                .extracting(StudentAggregate::getQuantity, StudentAggregate::getAgeSum).containsExactly(1L, 17L);
+        assertThat(entityManager.find(StudentAggregate.class, StudentAggregate.ID + 3).getQuantity()).isZero();
+        assertThat(entityManager.find(StudentAggregate.class, StudentAggregate.ID + StudentAggregate.STRIPES - 1))
+                .isNotNull();
+        assertThat(StudentAggregateService.stripe())
+                .isBetween(StudentAggregate.ID, StudentAggregate.ID + StudentAggregate.STRIPES - 1);
+    }
+
+    private void persistStripe(int id, long quantity, long ageSum) {
+        StudentAggregate stripe = new StudentAggregate();
+        stripe.setId(id);
+        stripe.setQuantity(quantity);
+        stripe.setAgeSum(ageSum);
+        entityManager.persist(stripe);
+    }
+
+    private void persistStudent(String name, int age) {
+        Student student = new Student();
+        student.setName(name);
+        student.setAge(age);
+        entityManager.persist(student);
+    }
+
+    private void assertAggregate(long quantity, long ageSum) {
+        StudentAggregate actual = studentAggregateService.get();
+        assertThat(actual.getQuantity()).isEqualTo(quantity);
+        assertThat(actual.getAgeSum()).isEqualTo(ageSum);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.skypro.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.skypro.school.event.StudentChangedEvent;
+import ru.skypro.school.record.StudentName;
+import ru.skypro.school.repository.StudentRepository;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StudentAutocompleteServiceTest {
+
+    @Mock
+    StudentRepository studentRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    StudentAutocompleteService studentAutocompleteService;
+
+    @BeforeEach
+    public void setUp() {
+        studentAutocompleteService = new StudentAutocompleteService(studentRepository, transactionManager);
+        when(studentRepository.streamNames()).thenReturn(Stream.of(
+                createStudentName(1, "Гарри Поттер"),
+                createStudentName(2, "Гермиона Грейнджер"),
+                createStudentName(3, "гарри поттер"),
+                createStudentName(4, "Гарри Поттер"),
+                createStudentName(5, "Драко Малфой"),
+                createStudentName(7, null)
+        ));
+        studentAutocompleteService.load();
+    }
+
+    @Test
+    public void complete() {
+        assertThat(studentAutocompleteService.complete("гар", 10))
+                .containsExactly("Гарри Поттер", "гарри поттер");
+        assertThat(studentAutocompleteService.complete("Г", 2))
+                .containsExactly("Гарри Поттер", "гарри поттер");
+        assertThat(studentAutocompleteService.complete("", 10))
+                .containsExactly("Гарри Поттер", "гарри поттер", "Гермиона Грейнджер", "Драко Малфой");
+        assertThat(studentAutocompleteService.complete("Рон", 10)).isEmpty();
+    }
+
+    @Test
+    public void onStudentChanged() {
+        studentAutocompleteService.onStudentChanged(new StudentChangedEvent(6, null, "Рон Уизли", 18, null));
+        studentAutocompleteService.onStudentChanged(new StudentChangedEvent(2, "Гермиона Грейнджер", "Гермиона Уизли", 18, null));
+        studentAutocompleteService.onStudentChanged(StudentChangedEvent.deleted(3, "гарри поттер"));
+        studentAutocompleteService.onStudentChanged(StudentChangedEvent.deleted(1, "Гарри Поттер"));
+
+        assertThat(studentAutocompleteService.complete("г", 10))
+                .containsExactly("Гарри Поттер", "Гермиона Уизли");
+        assertThat(studentAutocompleteService.complete("р", 10)).containsExactly("Рон Уизли");
+    }
+
+    @Test
+    public void onStudentChangedWithoutName() {
+        studentAutocompleteService.onStudentChanged(new StudentChangedEvent(8, null, null, 18, null));
+        studentAutocompleteService.onStudentChanged(new StudentChangedEvent(5, "Драко Малфой", null, 18, null));
+        studentAutocompleteService.onStudentChanged(new StudentChangedEvent(7, null, "Луна Лавгуд", 17, null));
+
+        assertThat(studentAutocompleteService.complete("", 10))
+                .containsExactly("Гарри Поттер", "гарри поттер", "Гермиона Грейнджер", "Луна Лавгуд");
+    }
+
+    @Test
+    public void changesDuringLoadAreReplayed() {
+        when(studentRepository.streamNames()).thenReturn(Stream.of(
+                        createStudentName(1, "Гарри Поттер"),
+                        createStudentName(2, "Гермиона Грейнджер"))
+                .peek(name -> {
+                    if (name.getId() == 1) {
+                        studentAutocompleteService.onStudentChanged(new StudentChangedEvent(2, "Гермиона Грейнджер", "Гермиона Уизли", 18, null));
+                        studentAutocompleteService.onStudentChanged(new StudentChangedEvent(6, null, "Рон Уизли", 18, null));
+                    }
+                }));
+
+        studentAutocompleteService.load();
+
+        assertThat(studentAutocompleteService.complete("", 10))
+                .containsExactly("Гарри Поттер", "Гермиона Уизли", "Рон Уизли");
+    }
+
+    private StudentName createStudentName(long id, String name) {
+        return new StudentName() {
+            @Override
+            public long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}
@@ -0,0 +1,109 @@
+package ru.skypro.school.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import ru.skypro.school.component.RecordMapper;
+import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.exception.UnsupportedFormatException;
+import ru.skypro.school.record.StudentRecord;
+import ru.skypro.school.repository.StudentRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import({StudentExportService.class, RecordMapper.class, JacksonAutoConfiguration.class})
+public class StudentExportServiceTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    StudentExportService studentExportService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private Student first;
+
+    @BeforeEach
+    public void setUp() {
+        Faculty faculty = new Faculty();
+        faculty.setName("Gryffindor, \"lions\"");
+        faculty.setColor("red");
+        entityManager.persist(faculty);
+
+        first = createStudent("Harry", 17, faculty);
+        createStudent("Ron", 17, null);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void exportNdjson() throws Exception {
+        String[] lines = export(StudentFormat.NDJSON).split("\n");
+
+        assertThat(lines).hasSize(2);
+        StudentRecord record = objectMapper.readValue(lines[0], StudentRecord.class);
+        assertThat(record.getId()).isEqualTo(first.getId());
+        assertThat(record.getFacultyRecord().getName()).isEqualTo("Gryffindor, \"lions\"");
+        assertThat(objectMapper.readValue(lines[1], StudentRecord.class).getName()).isEqualTo("Ron");
+    }
+
+    @Test
+    public void exportCsv() throws Exception {
+        assertThat(export(StudentFormat.CSV).split("\n")).containsExactly(
+                "id,name,age,faculty_id,faculty_name,avatar_id",
+                first.getId() + ",Harry,17," + first.getFaculty().getId() + ",\"Gryffindor, \"\"lions\"\"\",",
+                (first.getId() + 1) + ",Ron,17,,,");
+    }
+
+    @Test
+    public void exportMoreThanFetchSize() throws Exception {
+        int count = StudentRepository.EXPORT_FETCH_SIZE * 2 + 1;
+        for (int i = 0; i < count; i++) {
+            createStudent("student" + i, 18, null);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<String> lines = List.of(export(StudentFormat.NDJSON).split("\n"));
+        assertThat(lines).hasSize(count + 2);
+        assertThat(objectMapper.readValue(lines.get(lines.size() - 1), StudentRecord.class).getName())
+                .isEqualTo("student" + (count - 1));
+    }
+
+    @Test
+    public void unsupportedFormat() {
+        assertThatThrownBy(() -> StudentFormat.of("xml")).isInstanceOf(UnsupportedFormatException.class);
+        assertThat(StudentFormat.of("csv")).isEqualTo(StudentFormat.CSV);
+    }
+
+    private String export(StudentFormat format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        studentExportService.export(format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Student createStudent(String name, int age, Faculty faculty) {
+        Student student = new Student();
+        student.setName(name);
+        student.setAge(age);
+        student.setFaculty(faculty);
+        return entityManager.persist(student);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.skypro.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import ru.skypro.school.entity.Faculty;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.record.StudentImportError;
+import ru.skypro.school.record.StudentImportResult;
+import ru.skypro.school.repository.StudentRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "student.import.batch-size=2"
+})
+@Import({StudentImportService.class, StudentAggregateService.class, JacksonAutoConfiguration.class})
+public class StudentImportServiceTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    StudentImportService studentImportService;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    StudentAggregateService studentAggregateService;
+
+    private long facultyId;
+
+    @BeforeEach
+    public void setUp() {
+        Faculty faculty = new Faculty();
+        faculty.setName("Gryffindor");
+        faculty.setColor("red");
+        facultyId = entityManager.persistAndGetId(faculty, Long.class);
+        entityManager.flush();
+    }
+
+    @Test
+    public void importNdjson() throws IOException {
+        StudentImportResult result = importStudents(StudentFormat.NDJSON,
+                "{\"name\":\"Harry\",\"age\":17,\"facultyRecord\":{\"id\":" + facultyId + "}}\n" +
+                        "{\"name\":\"Ron\",\"age\":17}\n" +
+                        "\n" +
+                        "{\"name\":\"Hermione\",\n" +
+                        "{\"name\":\"\",\"age\":18}\n" +
+                        "{\"name\":\"Neville\",\"age\":17,\"facultyRecord\":{\"id\":" + (facultyId + 100) + "}}\n" +
+                        "{\"name\":\"Ginny\",\"age\":16}\n");
+
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getErrors()).extracting(StudentImportError::getLine).containsExactly(4L, 5L, 6L);
+        assertThat(result.getErrors().get(2).getMessage()).contains("Факультет");
+
+        List<Student> students = studentRepository.findAll();
+        assertThat(students).extracting(Student::getName).containsExactlyInAnyOrder("Harry", "Ron", "Ginny");
+        assertThat(students).filteredOn(s -> s.getName().equals("Harry"))
+                .allMatch(s -> s.getFaculty().getId() == facultyId);
+        assertThat(studentAggregateService.get().getQuantity()).isEqualTo(3);
+        assertThat(studentAggregateService.get().getAgeSum()).isEqualTo(50);
+    }
+
+    @Test
+    public void importCsv() throws IOException {
+        StudentImportResult result = importStudents(StudentFormat.CSV,
+                "id,name,age,faculty_id,faculty_name\n" +
+                        "1,\"Potter, Harry\",17," + facultyId + ",Gryffindor\n" +
+                        ",Ron,seventeen,,\n" +
+                        ",Ginny,16\n");
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(StudentImportError::getLine).containsExactly(3L);
+        assertThat(studentRepository.findAll()).extracting(Student::getName)
+                .containsExactlyInAnyOrder("Potter, Harry", "Ginny");
+    }
+
+    @Test
+    public void importCsvWithoutRequiredColumns() throws IOException {
+        StudentImportResult result = importStudents(StudentFormat.CSV, "id,name\n1,Harry\n");
+
+        assertThat(result.getImported()).isZero();
+        assertThat(result.getErrors()).extracting(StudentImportError::getLine).containsExactly(1L);
+    }
+
+    @Test
+    public void splitCsv() {
+        assertThat(StudentImportService.splitCsv("a,\"b,\"\"c\"\"\",,d"))
+                .containsExactly("a", "b,\"c\"", "", "d");
+    }
+
+    private StudentImportResult importStudents(StudentFormat format, String body) throws IOException {
+        return studentImportService.importStudents(format,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
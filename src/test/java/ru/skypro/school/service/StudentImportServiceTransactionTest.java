@@ -0,0 +1,76 @@
+package ru.skypro.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.skypro.school.entity.Student;
+import ru.skypro.school.record.StudentImportError;
+import ru.skypro.school.record.StudentImportResult;
+import ru.skypro.school.repository.StudentAggregateRepository;
+import ru.skypro.school.repository.StudentRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports without the usual test transaction, so that a batch rejected by the database rolls back only its own
+ * transaction.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "student.import.batch-size=3"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({StudentImportService.class, StudentAggregateService.class, JacksonAutoConfiguration.class})
+public class StudentImportServiceTransactionTest {
+
+    @Autowired
+    StudentImportService studentImportService;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    StudentAggregateRepository studentAggregateRepository;
+
+    @Autowired
+    StudentAggregateService studentAggregateService;
+
+    @AfterEach
+    public void tearDown() {
+        studentRepository.deleteAll();
+        studentAggregateRepository.deleteAll();
+    }
+
+    @Test
+    public void failedBatchIsRetriedRowByRow() throws IOException {
+        String tooLong = "x".repeat(300);
+        StudentImportResult result = importStudents(
+                "{\"name\":\"Harry\",\"age\":17}\n" +
+                        "{\"name\":\"" + tooLong + "\",\"age\":17}\n" +
+                        "{\"name\":\"Ron\",\"age\":17}\n" +
+                        "{\"name\":\"Ginny\",\"age\":16}\n");
+
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(StudentImportError::getLine).containsExactly(2L);
+        assertThat(studentRepository.findAll()).extracting(Student::getName)
+                .containsExactlyInAnyOrder("Harry", "Ron", "Ginny");
+        assertThat(studentAggregateService.get().getQuantity()).isEqualTo(3);
+        assertThat(studentAggregateService.get().getAgeSum()).isEqualTo(50);
+    }
+
+    private StudentImportResult importStudents(String body) throws IOException {
+        return studentImportService.importStudents(StudentFormat.NDJSON,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -1,26 +1,47 @@
 package ru.skypro.school.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.skypro.school.component.CursorCodec;
+import ru.skypro.school.component.GroupCommitter;
 import ru.skypro.school.component.RecordMapper;
 import ru.skypro.school.entity.Avatar;
 import ru.skypro.school.entity.Faculty;
 import ru.skypro.school.entity.Student;
+import ru.skypro.school.entity.StudentAggregate;
+import ru.skypro.school.event.StudentChangedEvent;
+import ru.skypro.school.exception.AvatarNotFoundException;
+import ru.skypro.school.exception.NullIdException;
 import ru.skypro.school.exception.StudentFacultyNotFoundException;
 import ru.skypro.school.exception.StudentNotFoundException;
+import ru.skypro.school.exception.StudentVersionConflictException;
+import ru.skypro.school.exception.TooManyIdsException;
 import ru.skypro.school.record.*;
-import ru.skypro.school.repository.AvatarRepository;
-import ru.skypro.school.repository.FacultyRepository;
 import ru.skypro.school.repository.StudentRepository;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -33,18 +54,27 @@ public class StudentServiceTest {
     @Mock
     StudentRepository studentRepository;
 
+    @Spy
+    RecordMapper recordMapper = new RecordMapper();
+
+    @Spy
+    CursorCodec cursorCodec = new CursorCodec();
+
     @Mock
-    FacultyRepository facultyRepository;
+    StudentAggregateService studentAggregateService;
 
     @Mock
-    AvatarRepository avatarRepository;
+    ApplicationEventPublisher eventPublisher;
 
     @Spy
-    RecordMapper recordMapper = new RecordMapper();
+    GroupCommitter groupCommitter = new GroupCommitter(mock(PlatformTransactionManager.class), false, Duration.ZERO, 1,
+            Duration.ZERO);
 
     @InjectMocks
     StudentService studentService;
 
+    ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
     @Test
     public void create() {
         Student student = createStudent(1, "test", 18);
@@ -52,6 +82,8 @@ public class StudentServiceTest {
         when(studentRepository.save(any(Student.class))).thenReturn(student);
 
         assertThat(studentService.create(studentRecord)).isEqualTo(studentRecord);
+        verify(studentAggregateService).add(1, 18);
+        verify(eventPublisher).publishEvent(refEq(new StudentChangedEvent(1, null, "test", 18, null)));
     }
 
     @Test
@@ -64,6 +96,36 @@ public class StudentServiceTest {
         assertThat(studentService.read(1L)).isEqualTo(studentRecord);
     }
 
+    @Test
+    public void readByIds() {
+        when(studentRepository.findByIdIn(List.of(3L, 1L, 2L)))
+                .thenReturn(List.of(createStudent(1, "first", 18), createStudent(3, "third", 19)));
+
+        MultiGetResult<StudentRecord> result = studentService.read(List.of(3L, 1L, 3L, 2L));
+
+        assertThat(result.getFound()).containsExactly(createStudentRecord(3, "third", 19),
+                createStudentRecord(1, "first", 18));
+        assertThat(result.getMissingIds()).containsExactly(2L);
+    }
+
+    @Test
+    public void readByManyIds() {
+        List<Long> ids = LongStream.rangeClosed(1, StudentService.READ_CHUNK_SIZE + 1).boxed().collect(Collectors.toList());
+        when(studentRepository.findByIdIn(any())).thenReturn(List.of());
+
+        assertThat(studentService.read(ids).getMissingIds()).hasSize(ids.size());
+        verify(studentRepository).findByIdIn(ids.subList(0, StudentService.READ_CHUNK_SIZE));
+        verify(studentRepository).findByIdIn(List.of((long) ids.size()));
+    }
+
+    @Test
+    public void readByInvalidIds() {
+        List<Long> tooMany = Collections.nCopies(MultiGetResult.MAX_IDS + 1, 1L);
+        assertThatThrownBy(() -> studentService.read(tooMany)).isInstanceOf(TooManyIdsException.class);
+        assertThatThrownBy(() -> studentService.read(Arrays.asList(1L, null))).isInstanceOf(NullIdException.class);
+        verifyNoInteractions(studentRepository);
+    }
+
     @Test
     public void readNotFound() {
         Student student = createStudent(1, "test", 18);
@@ -76,38 +138,59 @@ public class StudentServiceTest {
     @Test
     public void update() {
         StudentRecord studentRecord = createStudentRecord(1, "testRecord", 20);
-        Student student = createStudent(1, "test", 18);
-        when(studentRepository.findById(any(Long.class))).thenReturn(Optional.of(student));
-        when(studentRepository.save(any(Student.class))).thenReturn(student);
-
-        assertThat(studentService.update(1L, studentRecord)).isEqualTo(studentRecord);
+        when(studentRepository.updateReturning(1L, "testRecord", 20, StudentRepository.ANY_VERSION))
+                .thenReturn(Optional.of(createStudentRow(1, "test", 18, "testRecord", 20)));
+
+        StudentRecord updated = studentService.update(1L, studentRecord);
+        assertThat(updated).isEqualTo(studentRecord);
+        assertThat(updated.getVersion()).isEqualTo(2L);
+        assertThat(updated.getFacultyRecord().getName()).isEqualTo("Гриффиндор");
+        verify(studentRepository, never()).findById(any());
+        verify(studentAggregateService).add(0, 2);
+        verify(eventPublisher).publishEvent(refEq(new StudentChangedEvent(1, "test", "testRecord", 20, 3L)));
     }
 
     @Test
     public void updateNotFound() {
         StudentRecord studentRecord = createStudentRecord(1, "testRecord", 20);
-        when(studentRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+        when(studentRepository.updateReturning(1L, "testRecord", 20, StudentRepository.ANY_VERSION))
+                .thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> studentService.update(1L, studentRecord)).isInstanceOf(StudentNotFoundException.class);
+        verify(studentRepository, never()).existsById(any());
+    }
+
+    @Test
+    public void updateVersionConflict() {
+        StudentRecord studentRecord = createStudentRecord(1, "testRecord", 20);
+        studentRecord.setVersion(1L);
+        when(studentRepository.updateReturning(1L, "testRecord", 20, 1L)).thenReturn(Optional.empty());
+        when(studentRepository.existsById(1L)).thenReturn(true);
+
+        assertThatThrownBy(() -> studentService.update(1L, studentRecord))
+                .isInstanceOf(StudentVersionConflictException.class);
+        verifyNoInteractions(studentAggregateService, eventPublisher);
     }
 
     @Test
     public void delete() {
-        Student student = createStudent(1, "test", 18);
         StudentRecord studentRecord = createStudentRecord(1, "test", 18);
-        when(studentRepository.findById(any(Long.class))).thenReturn(Optional.of(student));
-        doNothing().when(studentRepository).delete(any(Student.class));
+        when(studentRepository.deleteReturning(1L, StudentRepository.ANY_VERSION))
+                .thenReturn(Optional.of(createStudentRow(1, "test", 18, "test", 18)));
 
-        assertThat(studentService.delete(1L)).isEqualTo(studentRecord);
-        verify(studentRepository, times(1)).delete(any(Student.class));
+        assertThat(studentService.delete(1L, null)).isEqualTo(studentRecord);
+        verify(studentRepository, never()).findById(any());
+        verify(studentAggregateService).add(-1, -18);
+        verify(eventPublisher).publishEvent(refEq(StudentChangedEvent.deleted(1, "test")));
     }
 
     @Test
     public void deleteNotFound() {
-        StudentRecord studentRecord = createStudentRecord(1, "testRecord", 20);
-        when(studentRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+        when(studentRepository.deleteReturning(1L, 3L)).thenReturn(Optional.empty());
+        when(studentRepository.existsById(1L)).thenReturn(false);
 
-        assertThatThrownBy(() -> studentService.delete(1L)).isInstanceOf(StudentNotFoundException.class);
+        assertThatThrownBy(() -> studentService.delete(1L, 3L)).isInstanceOf(StudentNotFoundException.class);
+        verifyNoInteractions(studentAggregateService);
     }
 
     @Test
@@ -188,63 +271,70 @@ public class StudentServiceTest {
 
     @Test
     public void updateAvatar() {
-        Avatar avatar = createAvatar(2, "home", 4);
-        Student student = createStudent(1, "test", 18);
-        StudentRecord studentRecord = createStudentRecord(1, "test", 18);
-        AvatarRecord avatarRecord = createAvatarRecord(2);
-
-        studentRecord.setAvatarRecord(avatarRecord);
-        student.setAvatar(avatar);
+        Map<String, Object> row = createStudentRowValues(1, "test", 18, "test", 18);
+        row.put("avatarId", 2L);
+        row.put("avatarMediaType", MediaType.MULTIPART_FORM_DATA_VALUE);
+        when(studentRepository.updateAvatarReturning(1L, 2L))
+                .thenReturn(Optional.of(projectionFactory.createProjection(StudentRow.class, row)));
+
+        StudentRecord studentRecord = studentService.updateAvatar(1L, 2L);
+        assertThat(studentRecord).isEqualTo(createStudentRecord(1, "test", 18));
+        assertThat(studentRecord.getAvatarRecord()).usingRecursiveComparison().isEqualTo(createAvatarRecord(2));
+        verify(studentRepository, never()).findById(any());
+    }
 
-        when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
-        when(avatarRepository.findById(2L)).thenReturn(Optional.of(avatar));
-        when(studentRepository.save(any(Student.class))).thenReturn(student);
+    @Test
+    public void updateAvatarNotFound() {
+        when(studentRepository.updateAvatarReturning(1L, 2L)).thenReturn(Optional.empty());
+        when(studentRepository.existsById(1L)).thenReturn(true);
 
-        assertThat(studentService.updateAvatar(1L, 2L)).isEqualTo(studentRecord);
+        assertThatThrownBy(() -> studentService.updateAvatar(1L, 2L)).isInstanceOf(AvatarNotFoundException.class);
     }
 
     @Test
     public void updateFaculty() {
-        Student student = createStudent(1, "test", 18);
-        Faculty faculty = createFaculty(1, "1", "red");
-        StudentRecord studentRecord = createStudentRecord(1, "test", 18);
-        FacultyRecord facultyRecord = createFacultyRecord(1, "1", "red");
+        when(studentRepository.updateFacultyReturning(1L, 3L))
+                .thenReturn(Optional.of(createStudentRow(1, "test", 18, "test", 18)));
 
-        student.setFaculty(faculty);
-        studentRecord.setFacultyRecord(facultyRecord);
+        StudentRecord studentRecord = studentService.updateFaculty(1L, 3L);
+        assertThat(studentRecord).isEqualTo(createStudentRecord(1, "test", 18));
+        assertThat(studentRecord.getFacultyRecord()).isEqualTo(createFacultyRecord(3, "Гриффиндор", "red"));
+        verify(eventPublisher).publishEvent(refEq(new StudentChangedEvent(1, "test", "test", 18, 3L)));
+    }
 
-        when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
-        when(facultyRepository.findById(1L)).thenReturn(Optional.of(faculty));
-        when(studentRepository.save(any(Student.class))).thenReturn(student);
+    @Test
+    public void updateFacultyNotFound() {
+        when(studentRepository.updateFacultyReturning(1L, 3L)).thenReturn(Optional.empty());
+        when(studentRepository.existsById(1L)).thenReturn(false);
 
-        assertThat(studentService.updateFaculty(1L, 1L)).isEqualTo(studentRecord);
+        assertThatThrownBy(() -> studentService.updateFaculty(1L, 3L)).isInstanceOf(StudentNotFoundException.class);
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
-    public void getStudentQuantity() {
-        StudentQuantity expected = new StudentQuantity() {
-            @Override
-            public int getStudentQuantity() {
-                return 4;
-            }
-        };
+    public void getStudentQuantity() throws JsonProcessingException {
+        when(studentAggregateService.get()).thenReturn(createStudentAggregate(4, 70));
 
-        when(studentRepository.getStudentQuantity()).thenReturn(expected);
+        StudentQuantity actual = studentService.getStudentQuantity();
 
-        assertThat(studentService.getStudentQuantity()).isEqualTo(expected);
+        assertThat(actual.getStudentQuantity()).isEqualTo(4);
+        assertThat(new ObjectMapper().writeValueAsString(actual)).isEqualTo("{\"studentQuantity\":4}");
+        verifyNoInteractions(studentRepository);
     }
 
     @Test
     public void getStudentAverageAge() {
-        StudentAverageAge expected = new StudentAverageAge() {
-            @Override
-            public double getStudentAverageAge() {
-                return 10.5;
-            }
-        };
-        when(studentRepository.getStudentAverageAge()).thenReturn(expected);
+        when(studentAggregateService.get()).thenReturn(createStudentAggregate(4, 42));
+
+        assertThat(studentService.getStudentAverageAge().getStudentAverageAge()).isEqualTo(10.5);
+        verifyNoInteractions(studentRepository);
+    }
+
+    @Test
+    public void getStudentAverageAgeOfNobody() {
+        when(studentAggregateService.get()).thenReturn(createStudentAggregate(0, 0));
 
-        assertThat(studentService.getStudentAverageAge()).isEqualTo(expected);
+        assertThat(studentService.getStudentAverageAge().getStudentAverageAge()).isZero();
     }
 
     @Test
@@ -254,43 +344,89 @@ public class StudentServiceTest {
                 createStudent(6, "3", 18)
         );
 
-        when(studentRepository.getLastStudents(any())).thenReturn(students);
+        when(studentRepository.getLastStudents(PageRequest.of(0, 2))).thenReturn(students);
 
         assertThat(studentService.getLastAddedStudents(2)).hasSize(2);
     }
 
     @Test
-    public void getNamesStudentsStartWith() {
+    public void getLastStudentsSize() {
+        when(studentRepository.getLastStudents(PageRequest.of(0, 2000))).thenReturn(List.of());
+
+        assertThat(studentService.getLastAddedStudents(2000)).isEmpty();
+        assertThat(studentService.getLastAddedStudents(0)).isEmpty();
+        verify(studentRepository, times(1)).getLastStudents(any());
+    }
+
+    @Test
+    public void getStudentsAfterCursor() {
         List<Student> students = List.of(
-                createStudent(6, "Гермиона Грейнджер", 18),
-                createStudent(7, "Гарри Поттер", 18),
-                createStudent(8, "Драко Малфой", 18),
-                createStudent(9, "Маркус Флинт", 18)
+                createStudent(1, "test1", 18),
+                createStudent(2, "test2", 19)
         );
+        when(studentRepository.findByIdGreaterThan(0, PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(students, PageRequest.of(0, 2), true));
+        when(studentRepository.findByIdGreaterThan(2, PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 2), false));
+
+        CursorPage<StudentRecord> first = studentService.getStudents(null, 2);
+        assertThat(first.getContent()).extracting(StudentRecord::getId).containsExactly(1L, 2L);
+
+        CursorPage<StudentRecord> last = studentService.getStudents(first.getNextCursor(), 2);
+        assertThat(last.getContent()).isEmpty();
+        assertThat(last.getNextCursor()).isNull();
+        verify(studentRepository, never()).count();
+    }
+
+    @Test
+    public void getNamesStudentsStartWith() {
+        when(studentRepository.findNamesInRange("Г", "Д", "Г%", PageRequest.of(0, 10)))
+                .thenReturn(List.of("Гарри Поттер", "Гермиона Грейнджер"));
         List<String> expected = List.of("ГАРРИ ПОТТЕР", "ГЕРМИОНА ГРЕЙНДЖЕР");
 
-        when(studentRepository.findAll()).thenReturn(students);
-        assertThat(studentService.getNamesStudentsStartWith("Г"))
+        assertThat(studentService.getNamesStudentsStartWith("Г", 10))
                 .hasSize(2)
                 .containsExactlyElementsOf(expected);
+        verify(studentRepository, never()).findAll();
+    }
+
+    @Test
+    public void getNamesStudentsStartWithWildcard() {
+        when(studentRepository.findNamesInRange("50%_", "50%`", "50\\%\\_%", PageRequest.of(0, 1000)))
+                .thenReturn(List.of());
 
+        assertThat(studentService.getNamesStudentsStartWith("50%_", 5000)).isEmpty();
     }
 
     @Test
-    public void getStudentAverageAgeFromStream() {
-        List<Student> students = List.of(
-                createStudent(6, "Гермиона Грейнджер", 17),
-                createStudent(7, "Гарри Поттер", 18),
-                createStudent(8, "Драко Малфой", 19),
-                createStudent(9, "Маркус Флинт", 20)
-        );
+    public void getNamesStudentsStartWithoutLimit() {
+        when(studentRepository.findNamesInRange("Г", "Д", "Г%", Pageable.unpaged()))
+                .thenReturn(List.of("Гарри Поттер"));
+
+        assertThat(studentService.getNamesStudentsStartWith("Г", null)).containsExactly("ГАРРИ ПОТТЕР");
+    }
 
-        double expected = 18.5;
+    @Test
+    public void getNamesStudentsStartWithEmptyPrefix() {
+        when(studentRepository.findNames(PageRequest.of(0, 1))).thenReturn(List.of("Гарри Поттер"));
+
+        assertThat(studentService.getNamesStudentsStartWith("", 1)).containsExactly("ГАРРИ ПОТТЕР");
+    }
 
-        when(studentRepository.findAll()).thenReturn(students);
+    @Test
+    public void nextPrefix() {
+        assertThat(StudentService.nextPrefix("Га")).isEqualTo("Гб");
+        assertThat(StudentService.nextPrefix("a" + Character.MAX_VALUE)).isEqualTo("b");
+        assertThat(StudentService.nextPrefix("")).isNull();
+    }
+
+    @Test
+    public void getStudentAverageAgeFromStream() {
+        when(studentAggregateService.get()).thenReturn(createStudentAggregate(4, 74));
 
         assertThat(studentService.getStudentAverageAgeFromStream())
-                .isEqualTo(expected);
+                .isEqualTo(18.5);
+        verify(studentRepository, never()).findAll();
     }
 
     private Student createStudent(long id, String name, int age) {
@@ -301,6 +437,13 @@ public class StudentServiceTest {
         return student;
     }
 
+    private StudentAggregate createStudentAggregate(long quantity, long ageSum) {
+        StudentAggregate aggregate = new StudentAggregate();
+        aggregate.setQuantity(quantity);
+        aggregate.setAgeSum(ageSum);
+        return aggregate;
+    }
+
     private StudentRecord createStudentRecord(long id, String name, int age) {
         StudentRecord studentRecord = new StudentRecord();
         studentRecord.setId(id);
@@ -317,6 +460,24 @@ public class StudentServiceTest {
         return faculty;
     }
 
+    private StudentRow createStudentRow(long id, String oldName, int oldAge, String name, int age) {
+        return projectionFactory.createProjection(StudentRow.class, createStudentRowValues(id, oldName, oldAge, name, age));
+    }
+
+    private Map<String, Object> createStudentRowValues(long id, String oldName, int oldAge, String name, int age) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("oldName", oldName);
+        row.put("oldAge", oldAge);
+        row.put("name", name);
+        row.put("age", age);
+        row.put("version", 2L);
+        row.put("facultyId", 3L);
+        row.put("facultyName", "Гриффиндор");
+        row.put("facultyColor", "red");
+        return row;
+    }
+
     private FacultyRecord createFacultyRecord(long id, String name, String color) {
         FacultyRecord facultyRecord = new FacultyRecord();
         facultyRecord.setId(id);
@@ -331,7 +492,6 @@ public class StudentServiceTest {
         avatar.setMediaType(MediaType.MULTIPART_FORM_DATA_VALUE);
         avatar.setFilePath(filePath);
         avatar.setFileSize(fileSize);
-        avatar.setData(new byte[]{0, 1, 2, 3});
         return avatar;
     }
 
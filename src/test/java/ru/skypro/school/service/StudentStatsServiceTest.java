@@ -0,0 +1,115 @@
+package ru.skypro.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.skypro.school.event.FacultyChangedEvent;
+import ru.skypro.school.event.StudentChangedEvent;
+import ru.skypro.school.record.StudentStats;
+import ru.skypro.school.record.StudentStatsRow;
+import ru.skypro.school.repository.StudentRepository;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StudentStatsServiceTest {
+
+    @Mock
+    StudentRepository studentRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    StudentStatsService studentStatsService;
+
+    @BeforeEach
+    public void setUp() {
+        studentStatsService = new StudentStatsService(studentRepository, transactionManager);
+        when(studentRepository.streamStatsRows()).thenReturn(Stream.of(
+                createRow(1, 17, 1L),
+                createRow(2, 18, 1L),
+                createRow(3, 18, 2L),
+                createRow(4, 21, null)
+        ));
+        studentStatsService.load();
+    }
+
+    @Test
+    public void getStats() {
+        assertThat(studentStatsService.getStats(null, null, null)).isEqualTo(new StudentStats(4, 18.5, 17, 21));
+        assertThat(studentStatsService.getStats(18, 20, null)).isEqualTo(new StudentStats(2, 18, 18, 18));
+        assertThat(studentStatsService.getStats(null, null, 1L)).isEqualTo(new StudentStats(2, 17.5, 17, 18));
+        assertThat(studentStatsService.getStats(30, null, null)).isEqualTo(new StudentStats(0, 0, null, null));
+    }
+
+    @Test
+    public void getAgeHistogram() {
+        assertThat(studentStatsService.getAgeHistogram(null, null, null)).containsExactly(
+                Map.entry(17, 1L), Map.entry(18, 2L), Map.entry(21, 1L));
+        assertThat(studentStatsService.getAgeHistogram(18, null, 1L)).containsExactly(Map.entry(18, 1L));
+    }
+
+    @Test
+    public void followsChanges() {
+        studentStatsService.onStudentChanged(new StudentChangedEvent(5, null, "Рон Уизли", 19, 2L));
+        studentStatsService.onStudentChanged(new StudentChangedEvent(2, "Гермиона Грейнджер", "Гермиона Грейнджер", 20, 2L));
+        studentStatsService.onStudentChanged(StudentChangedEvent.deleted(4, "Драко Малфой"));
+        studentStatsService.onFacultyChanged(FacultyChangedEvent.deleted(1));
+
+        assertThat(studentStatsService.getAgeHistogram(null, null, null)).containsExactly(
+                Map.entry(17, 1L), Map.entry(18, 1L), Map.entry(19, 1L), Map.entry(20, 1L));
+        assertThat(studentStatsService.getStats(null, null, 2L)).isEqualTo(new StudentStats(3, 19, 18, 20));
+        assertThat(studentStatsService.getStats(null, null, 1L).getCount()).isZero();
+    }
+
+    @Test
+    public void namelessStudentIsNotDeleted() {
+        studentStatsService.onStudentChanged(new StudentChangedEvent(5, null, null, 19, null));
+        studentStatsService.onStudentChanged(new StudentChangedEvent(1, "Гарри Поттер", null, 17, 1L));
+
+        assertThat(studentStatsService.getStats(null, null, null).getCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void changesDuringLoadAreReplayed() {
+        when(studentRepository.streamStatsRows()).thenReturn(Stream.of(createRow(1, 17, 1L), createRow(2, 18, 1L))
+                .peek(row -> {
+                    if (row.getId() == 1) {
+                        studentStatsService.onStudentChanged(new StudentChangedEvent(2, "Гермиона Грейнджер", "Гермиона Грейнджер", 20, 2L));
+                        studentStatsService.onStudentChanged(new StudentChangedEvent(7, null, "Рон Уизли", 19, 2L));
+                    }
+                }));
+
+        studentStatsService.load();
+
+        assertThat(studentStatsService.getAgeHistogram(null, null, null)).containsExactly(
+                Map.entry(17, 1L), Map.entry(19, 1L), Map.entry(20, 1L));
+        assertThat(studentStatsService.getStats(null, null, 2L).getCount()).isEqualTo(2);
+    }
+
+    private StudentStatsRow createRow(long id, int age, Long facultyId) {
+        return new StudentStatsRow() {
+            @Override
+            public long getId() {
+                return id;
+            }
+
+            @Override
+            public int getAge() {
+                return age;
+            }
+
+            @Override
+            public Long getFacultyId() {
+                return facultyId;
+            }
+        };
+    }
+}
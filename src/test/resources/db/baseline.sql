@@ -0,0 +1,34 @@
+-- The schema Hibernate generated for the original entities, which the Liquibase changesets start from,
+-- with a few rows for the data migrations to carry over.
+CREATE TABLE faculties (
+    id BIGSERIAL PRIMARY KEY,
+    color VARCHAR(255),
+    name VARCHAR(255)
+);
+CREATE TABLE avatars (
+    id BIGSERIAL PRIMARY KEY,
+    data BYTEA,
+    file_path VARCHAR(255),
+    file_size BIGINT NOT NULL,
+    media_type VARCHAR(255)
+);
+CREATE TABLE students (
+    id BIGSERIAL PRIMARY KEY,
+    age INTEGER NOT NULL,
+    name VARCHAR(255),
+    avatar_id BIGINT REFERENCES avatars,
+    faculty_id BIGINT REFERENCES faculties
+);
+
+INSERT INTO faculties (id, color, name) VALUES (1, 'red', 'Gryffindor'), (2, 'green', 'Slytherin');
+INSERT INTO avatars (id, data, file_path, file_size, media_type) VALUES
+    (1, 'same', 'avatars/1.gif', 4, 'image/gif'),
+    (2, 'same', 'avatars/2.gif', 4, 'image/gif'),
+    (3, 'other', 'avatars/3.gif', 5, 'image/gif');
+INSERT INTO students (id, age, name, avatar_id, faculty_id) VALUES
+    (1, 17, 'Harry Potter', 1, 1),
+    (2, 17, 'Ron Weasley', 2, 1),
+    (3, 18, 'Draco Malfoy', NULL, 2);
+SELECT setval(pg_get_serial_sequence('faculties', 'id'), 2);
+SELECT setval(pg_get_serial_sequence('avatars', 'id'), 3);
+SELECT setval(pg_get_serial_sequence('students', 'id'), 3);